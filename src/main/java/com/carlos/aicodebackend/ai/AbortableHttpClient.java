@@ -0,0 +1,89 @@
+package com.carlos.aicodebackend.ai;
+
+import dev.langchain4j.http.client.HttpClient;
+import dev.langchain4j.http.client.HttpClientBuilder;
+import dev.langchain4j.http.client.HttpRequest;
+import dev.langchain4j.http.client.SuccessfulHttpResponse;
+import dev.langchain4j.http.client.sse.ServerSentEventListener;
+import dev.langchain4j.http.client.sse.ServerSentEventParser;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+
+/**
+ * 可中止的模型 HTTP 客户端
+ * 流式请求发起时取当前线程绑定的 {@link UpstreamAbortHandle}，把响应流登记到句柄上，
+ * 句柄中止时关闭响应流即断开连接；未绑定句柄的请求原样转发
+ *
+ * @author <a href="https://github.com/LichCarlos">LichCarlos</a>
+ */
+@Slf4j
+public class AbortableHttpClient implements HttpClient {
+
+    private final HttpClient delegate;
+
+    public AbortableHttpClient(HttpClient delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public SuccessfulHttpResponse execute(HttpRequest request) {
+        return delegate.execute(request);
+    }
+
+    @Override
+    public void execute(HttpRequest request, ServerSentEventParser parser, ServerSentEventListener listener) {
+        UpstreamAbortHandle abortHandle = UpstreamAbortHandle.current();
+        if (abortHandle == null) {
+            delegate.execute(request, parser, listener);
+            return;
+        }
+        if (abortHandle.isAborted()) {
+            log.info("生成已取消，跳过模型请求");
+            return;
+        }
+        delegate.execute(request, (inputStream, eventListener) -> {
+            abortHandle.register(inputStream);
+            parser.parse(inputStream, eventListener);
+        }, listener);
+    }
+
+    /**
+     * 包装原有构建器，构建出的客户端支持中止
+     */
+    public static class Builder implements HttpClientBuilder {
+
+        private final HttpClientBuilder delegate;
+
+        public Builder(HttpClientBuilder delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Duration connectTimeout() {
+            return delegate.connectTimeout();
+        }
+
+        @Override
+        public HttpClientBuilder connectTimeout(Duration timeout) {
+            delegate.connectTimeout(timeout);
+            return this;
+        }
+
+        @Override
+        public Duration readTimeout() {
+            return delegate.readTimeout();
+        }
+
+        @Override
+        public HttpClientBuilder readTimeout(Duration timeout) {
+            delegate.readTimeout(timeout);
+            return this;
+        }
+
+        @Override
+        public HttpClient build() {
+            return new AbortableHttpClient(delegate.build());
+        }
+    }
+}
@@ -22,4 +22,13 @@ public interface AiCodeGeneratorService {
    */
   @SystemMessage(fromResource = "prompt/codegen-multi-file-system-prompt.md")
   Flux<String> generateMultiFileCodeStream(String userMessage);
+
+  /**
+   * 生成项目代码（流式），每个代码块带路径标注
+   *
+   * @param userMessage 用户消息
+   * @return 生成的代码结果
+   */
+  @SystemMessage(fromResource = "prompt/codegen-project-system-prompt.md")
+  Flux<String> generateProjectCodeStream(String userMessage);
 }
@@ -1,5 +1,6 @@
 package com.carlos.aicodebackend.ai;
 
+import com.carlos.aicodebackend.config.CodeGenProperties;
 import com.carlos.aicodebackend.service.ChatHistoryService;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
@@ -9,6 +10,8 @@ import dev.langchain4j.memory.chat.MessageWindowChatMemory;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.service.AiServices;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
@@ -16,6 +19,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
 
 import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * AI 代码生成服务工厂类
@@ -40,6 +44,27 @@ public class AiCodeGeneratorServiceFactory {
     @Lazy
     private ChatHistoryService chatHistoryService;
 
+    @Resource
+    private CodeGenProperties codeGenProperties;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 生成使用的流式模型（启用对冲时为包装后的模型）
+     */
+    private StreamingChatModel generationStreamingChatModel;
+
+    private static final int CREATE_LOCK_STRIPES = 64;
+
+    private final ReentrantLock[] createLocks = new ReentrantLock[CREATE_LOCK_STRIPES];
+
+    {
+        for (int i = 0; i < CREATE_LOCK_STRIPES; i++) {
+            createLocks[i] = new ReentrantLock();
+        }
+    }
+
     /**
      * AI 服务实例缓存
      * 缓存策略：
@@ -56,6 +81,13 @@ public class AiCodeGeneratorServiceFactory {
             })
             .build();
 
+    @PostConstruct
+    public void init() {
+        generationStreamingChatModel = codeGenProperties.getHedge().isEnabled()
+                ? new HedgingStreamingChatModel(streamingChatModel, codeGenProperties.getHedge(), meterRegistry)
+                : streamingChatModel;
+    }
+
     /**
      * 根据 appId 获取服务（带缓存）
      *
@@ -63,7 +95,33 @@ public class AiCodeGeneratorServiceFactory {
      * @return AI 代码生成服务实例
      */
     public AiCodeGeneratorService getAiCodeGeneratorService(long appId) {
-        return serviceCache.get(appId, this::createAiCodeGeneratorService);
+        AiCodeGeneratorService service = serviceCache.getIfPresent(appId);
+        if (service != null) {
+            return service;
+        }
+        // 创建实例要查询数据库和 Redis，不在 Caffeine 的 compute（synchronized）内执行，避免虚拟线程被钉住；
+        // 同一 appId 由分段锁保证只创建一次
+        ReentrantLock lock = createLocks[(int) (appId & (CREATE_LOCK_STRIPES - 1))];
+        lock.lock();
+        try {
+            service = serviceCache.getIfPresent(appId);
+            if (service == null) {
+                service = createAiCodeGeneratorService(appId);
+                serviceCache.put(appId, service);
+            }
+            return service;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 移除缓存的服务实例，下次获取时重新从数据库加载对话记忆
+     *
+     * @param appId 应用ID
+     */
+    public void invalidateAiCodeGeneratorService(long appId) {
+        serviceCache.invalidate(appId);
     }
 
     /**
@@ -87,11 +145,23 @@ public class AiCodeGeneratorServiceFactory {
 
         return AiServices.builder(AiCodeGeneratorService.class)
                 .chatModel(chatModel)
-                .streamingChatModel(streamingChatModel)
+                .streamingChatModel(generationStreamingChatModel)
                 .chatMemory(chatMemory)
                 .build();
     }
 
+    /**
+     * 多文件并行生成服务（不带对话记忆，所有应用共用）
+     *
+     * @return 多文件并行生成服务实例
+     */
+    @Bean
+    public ParallelMultiFileGeneratorService parallelMultiFileGeneratorService() {
+        return AiServices.builder(ParallelMultiFileGeneratorService.class)
+                .streamingChatModel(generationStreamingChatModel)
+                .build();
+    }
+
     /**
      * 默认提供一个 Bean（兼容旧代码）
      *
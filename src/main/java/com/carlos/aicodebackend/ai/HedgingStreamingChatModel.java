@@ -0,0 +1,370 @@
+package com.carlos.aicodebackend.ai;
+
+import com.carlos.aicodebackend.config.CodeGenProperties;
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 对冲请求的流式模型
+ * 模型首 token 延迟是长尾分布：请求发出后超过阈值（近期首 token 延迟的指定分位数）仍没有收到 token 时，
+ * 再发起一个相同的请求，采用先产出首个 token 的那一路，另一路立即中止。延迟样本按调用方实际等待的时间记录
+ * （从请求开始算起，对冲胜出时包含等待阈值的时间），否则样本只剩对冲请求的短延迟，阈值会逐渐降低。对冲请求受预算限制
+ * （每个请求积累 budgetRatio 个额度，对冲消耗 1 个），额外请求不超过该比例；
+ * 对冲结果计入 llm.hedge 指标（outcome=won/lost/failed/throttled）
+ *
+ * @author <a href="https://github.com/LichCarlos">LichCarlos</a>
+ */
+@Slf4j
+public class HedgingStreamingChatModel implements StreamingChatModel {
+
+    /**
+     * 预算额度上限，限制长时间空闲后的突发对冲
+     */
+    private static final double MAX_BUDGET = 10;
+
+    private final StreamingChatModel delegate;
+
+    private final CodeGenProperties.Hedge properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Scheduler scheduler;
+
+    private final ReentrantLock statsLock = new ReentrantLock();
+
+    // 最近的首 token 延迟（纳秒），环形缓冲区
+    private final long[] ttftWindow;
+
+    private int ttftCount;
+
+    private int ttftNext;
+
+    private double budget;
+
+    public HedgingStreamingChatModel(StreamingChatModel delegate, CodeGenProperties.Hedge properties,
+            MeterRegistry meterRegistry) {
+        this(delegate, properties, meterRegistry, Schedulers.boundedElastic());
+    }
+
+    /**
+     * @param scheduler 触发对冲请求的调度器（对冲请求可能在该线程上同步建立连接）
+     */
+    public HedgingStreamingChatModel(StreamingChatModel delegate, CodeGenProperties.Hedge properties,
+            MeterRegistry meterRegistry, Scheduler scheduler) {
+        this.delegate = delegate;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.scheduler = scheduler;
+        this.ttftWindow = new long[Math.max(1, properties.getWindowSize())];
+        Gauge.builder("llm.hedge.threshold", this, model -> model.currentThreshold().toMillis())
+                .description("当前对冲阈值（毫秒）")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        depositBudget();
+        new Exchange(chatRequest, handler, UpstreamAbortHandle.current()).start();
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public List<ChatModelListener> listeners() {
+        // 监听器由被包装的模型在每一路请求上各自调用
+        return List.of();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return delegate.provider();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+
+    /**
+     * 当前对冲阈值：样本不足时使用初始阈值，否则为近期首 token 延迟的指定分位数（不低于最小阈值）
+     */
+    public Duration currentThreshold() {
+        long[] samples;
+        statsLock.lock();
+        try {
+            if (ttftCount < properties.getMinSamples()) {
+                return properties.getInitialThreshold();
+            }
+            samples = Arrays.copyOf(ttftWindow, ttftCount);
+        } finally {
+            statsLock.unlock();
+        }
+        Arrays.sort(samples);
+        int index = (int) Math.ceil(properties.getPercentile() * samples.length) - 1;
+        long threshold = samples[Math.min(samples.length - 1, Math.max(0, index))];
+        return Duration.ofNanos(Math.max(threshold, properties.getMinThreshold().toNanos()));
+    }
+
+    private void recordTtft(long nanos) {
+        statsLock.lock();
+        try {
+            ttftWindow[ttftNext] = nanos;
+            ttftNext = (ttftNext + 1) % ttftWindow.length;
+            ttftCount = Math.min(ttftCount + 1, ttftWindow.length);
+        } finally {
+            statsLock.unlock();
+        }
+    }
+
+    private void depositBudget() {
+        statsLock.lock();
+        try {
+            budget = Math.min(MAX_BUDGET, budget + properties.getBudgetRatio());
+        } finally {
+            statsLock.unlock();
+        }
+    }
+
+    private boolean tryAcquireBudget() {
+        statsLock.lock();
+        try {
+            if (budget < 1) {
+                return false;
+            }
+            budget -= 1;
+            return true;
+        } finally {
+            statsLock.unlock();
+        }
+    }
+
+    private void recordOutcome(String outcome) {
+        meterRegistry.counter("llm.hedge", "outcome", outcome).increment();
+    }
+
+    /**
+     * 一次对话请求：主请求和（可能的）对冲请求，只有胜出的一路把回调转发给调用方
+     */
+    private class Exchange {
+
+        private final ChatRequest chatRequest;
+
+        private final StreamingChatResponseHandler handler;
+
+        private final UpstreamAbortHandle parentHandle;
+
+        private final AtomicReference<Attempt> winner = new AtomicReference<>();
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private Attempt primary;
+
+        private Attempt hedge;
+
+        private Disposable hedgeTimer;
+
+        // 请求开始的时间，首 token 延迟从这里算起
+        private final long startNanos = System.nanoTime();
+
+        // 已决出胜者或已失败，不再发起对冲
+        private boolean settled;
+
+        Exchange(ChatRequest chatRequest, StreamingChatResponseHandler handler, UpstreamAbortHandle parentHandle) {
+            this.chatRequest = chatRequest;
+            this.handler = handler;
+            this.parentHandle = parentHandle;
+        }
+
+        void start() {
+            primary = newAttempt("primary");
+            long delay = currentThreshold().toNanos();
+            lock.lock();
+            try {
+                hedgeTimer = scheduler.schedule(this::onThreshold, delay, TimeUnit.NANOSECONDS);
+            } finally {
+                lock.unlock();
+            }
+            primary.send();
+        }
+
+        /**
+         * 超过阈值仍未收到 token：预算允许时发起对冲请求
+         */
+        private void onThreshold() {
+            Attempt attempt;
+            lock.lock();
+            try {
+                hedgeTimer = null;
+                if (settled || winner.get() != null || primary.failed
+                        || (parentHandle != null && parentHandle.isAborted())) {
+                    return;
+                }
+                if (!tryAcquireBudget()) {
+                    recordOutcome("throttled");
+                    return;
+                }
+                hedge = newAttempt("hedge");
+                attempt = hedge;
+            } finally {
+                lock.unlock();
+            }
+            log.info("首 token 超过对冲阈值，发起对冲请求");
+            attempt.send();
+        }
+
+        private Attempt newAttempt(String name) {
+            UpstreamAbortHandle abortHandle = new UpstreamAbortHandle();
+            if (parentHandle != null) {
+                // 调用方中止时两路一起中止
+                parentHandle.register(abortHandle::abort);
+            }
+            return new Attempt(this, name, abortHandle);
+        }
+
+        /**
+         * 尝试让该路胜出：首个产出 token（或直接完成）的一路胜出，另一路中止
+         *
+         * @return 该路是否为胜者
+         */
+        boolean commit(Attempt attempt) {
+            Attempt current = winner.get();
+            if (current != null) {
+                return current == attempt;
+            }
+            if (!winner.compareAndSet(null, attempt)) {
+                return winner.get() == attempt;
+            }
+            // 无论哪一路胜出，都记录调用方看到的首 token 延迟
+            recordTtft(System.nanoTime() - startNanos);
+            Attempt loser;
+            lock.lock();
+            try {
+                settled = true;
+                cancelTimer();
+                loser = attempt == primary ? hedge : primary;
+            } finally {
+                lock.unlock();
+            }
+            if (loser != null) {
+                recordOutcome(attempt == hedge ? "won" : "lost");
+                loser.abortHandle.abort();
+            }
+            return true;
+        }
+
+        void onError(Attempt attempt, Throwable error) {
+            Attempt current = winner.get();
+            if (current != null) {
+                if (current == attempt) {
+                    handler.onError(error);
+                }
+                return;
+            }
+            boolean hedged;
+            lock.lock();
+            try {
+                attempt.failed = true;
+                Attempt other = attempt == primary ? hedge : primary;
+                if (other != null && !other.failed) {
+                    // 另一路仍在进行，等待其结果
+                    log.warn("{} 请求失败，等待另一路结果: {}", attempt.name, error.getMessage());
+                    return;
+                }
+                settled = true;
+                cancelTimer();
+                hedged = hedge != null;
+            } finally {
+                lock.unlock();
+            }
+            if (winner.compareAndSet(null, attempt)) {
+                if (hedged) {
+                    recordOutcome("failed");
+                }
+                handler.onError(error);
+            }
+        }
+
+        private void cancelTimer() {
+            if (hedgeTimer != null) {
+                hedgeTimer.dispose();
+                hedgeTimer = null;
+            }
+        }
+    }
+
+    /**
+     * 一路请求，回调只在胜出时转发
+     */
+    private class Attempt implements StreamingChatResponseHandler {
+
+        private final Exchange exchange;
+
+        private final String name;
+
+        private final UpstreamAbortHandle abortHandle;
+
+        private volatile boolean failed;
+
+        Attempt(Exchange exchange, String name, UpstreamAbortHandle abortHandle) {
+            this.exchange = exchange;
+            this.name = name;
+            this.abortHandle = abortHandle;
+        }
+
+        void send() {
+            if (abortHandle.isAborted()) {
+                return;
+            }
+            try {
+                abortHandle.bind(() -> {
+                    delegate.chat(exchange.chatRequest, this);
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                onError(e);
+            }
+        }
+
+        @Override
+        public void onPartialResponse(String partialResponse) {
+            if (exchange.commit(this)) {
+                exchange.handler.onPartialResponse(partialResponse);
+            }
+        }
+
+        @Override
+        public void onCompleteResponse(ChatResponse completeResponse) {
+            if (exchange.commit(this)) {
+                exchange.handler.onCompleteResponse(completeResponse);
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            exchange.onError(this, error);
+        }
+    }
+}
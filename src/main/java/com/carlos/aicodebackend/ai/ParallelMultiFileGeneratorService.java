@@ -0,0 +1,61 @@
+package com.carlos.aicodebackend.ai;
+
+import dev.langchain4j.service.SystemMessage;
+import dev.langchain4j.service.UserMessage;
+import dev.langchain4j.service.V;
+import reactor.core.publisher.Flux;
+
+/**
+ * 多文件并行生成服务
+ * 先由规划调用确定页面结构和 class/id 约定，再按约定分别生成 HTML、CSS、JS 三个文件。
+ * 不带对话记忆，各次调用相互独立，可以并发执行
+ */
+public interface ParallelMultiFileGeneratorService {
+
+  /**
+   * 单文件生成的用户消息模板：原始需求加上规划结果
+   */
+  String FILE_USER_MESSAGE = "用户需求：\n{{requirement}}\n\n页面结构约定：\n{{plan}}";
+
+  /**
+   * 规划页面结构（流式）
+   *
+   * @param userMessage 用户消息
+   * @return 结构约定（纯文本，不含代码块）
+   */
+  @SystemMessage(fromResource = "prompt/codegen-multi-file-plan-system-prompt.md")
+  Flux<String> planMultiFileStream(String userMessage);
+
+  /**
+   * 按结构约定生成 index.html（流式）
+   *
+   * @param requirement 用户需求
+   * @param plan        结构约定
+   * @return 包含一个 html 代码块的输出
+   */
+  @SystemMessage(fromResource = "prompt/codegen-multi-file-html-system-prompt.md")
+  @UserMessage(FILE_USER_MESSAGE)
+  Flux<String> generateHtmlFileStream(@V("requirement") String requirement, @V("plan") String plan);
+
+  /**
+   * 按结构约定生成 style.css（流式）
+   *
+   * @param requirement 用户需求
+   * @param plan        结构约定
+   * @return 包含一个 css 代码块的输出
+   */
+  @SystemMessage(fromResource = "prompt/codegen-multi-file-css-system-prompt.md")
+  @UserMessage(FILE_USER_MESSAGE)
+  Flux<String> generateCssFileStream(@V("requirement") String requirement, @V("plan") String plan);
+
+  /**
+   * 按结构约定生成 script.js（流式）
+   *
+   * @param requirement 用户需求
+   * @param plan        结构约定
+   * @return 包含一个 js 代码块的输出
+   */
+  @SystemMessage(fromResource = "prompt/codegen-multi-file-js-system-prompt.md")
+  @UserMessage(FILE_USER_MESSAGE)
+  Flux<String> generateJsFileStream(@V("requirement") String requirement, @V("plan") String plan);
+}
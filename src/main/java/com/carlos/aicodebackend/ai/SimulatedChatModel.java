@@ -0,0 +1,58 @@
+package com.carlos.aicodebackend.ai;
+
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * 进程内的模拟对话模型（非流式），等待模拟流式模型完整输出后返回，延迟与失败行为与流式一致
+ *
+ * @author <a href="https://github.com/LichCarlos">LichCarlos</a>
+ */
+public class SimulatedChatModel implements ChatModel {
+
+    private final SimulatedStreamingChatModel streamingChatModel;
+
+    public SimulatedChatModel(SimulatedStreamingChatModel streamingChatModel) {
+        this.streamingChatModel = streamingChatModel;
+    }
+
+    @Override
+    public ChatResponse doChat(ChatRequest chatRequest) {
+        CompletableFuture<ChatResponse> future = new CompletableFuture<>();
+        streamingChatModel.chat(chatRequest, new StreamingChatResponseHandler() {
+
+            @Override
+            public void onPartialResponse(String partialResponse) {
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                future.complete(completeResponse);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                future.completeExceptionally(error);
+            }
+        });
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return ModelProvider.OTHER;
+    }
+}
@@ -0,0 +1,239 @@
+package com.carlos.aicodebackend.ai;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 模拟模型的响应内容
+ * 按请求的系统提示词判断要输出的内容（单文件 HTML、多文件、项目文件树、结构规划或单个 HTML/CSS/JS 文件），
+ * 优先从录制目录中随机选取对应类型的真实响应（文件名以类型前缀开头，如 html-1.md、multi-file-blog.md），
+ * 没有录制时生成合成的代码块，格式与真实模型一致，可以走完解析、保存流程
+ *
+ * @author <a href="https://github.com/LichCarlos">LichCarlos</a>
+ */
+@Slf4j
+public class SimulatedResponses {
+
+    /**
+     * 响应类型，prefix 为录制文件名前缀
+     */
+    public enum Kind {
+        HTML("html"),
+        MULTI_FILE("multi-file"),
+        PROJECT("project"),
+        PLAN("plan"),
+        HTML_FILE("html-file"),
+        CSS_FILE("css-file"),
+        JS_FILE("js-file");
+
+        private final String prefix;
+
+        Kind(String prefix) {
+            this.prefix = prefix;
+        }
+    }
+
+    private final Map<Kind, List<String>> recorded = new EnumMap<>(Kind.class);
+
+    private final int syntheticSize;
+
+    /**
+     * @param recordedDir   录制响应所在目录，为空时只使用合成响应
+     * @param syntheticSize 合成响应的目标字符数
+     */
+    public SimulatedResponses(String recordedDir, int syntheticSize) {
+        this.syntheticSize = syntheticSize;
+        if (StrUtil.isNotBlank(recordedDir)) {
+            loadRecorded(new File(recordedDir));
+        }
+    }
+
+    /**
+     * 生成一次请求的完整响应
+     *
+     * @param chatRequest 请求
+     * @param random      本次请求的随机数来源
+     * @return 响应文本
+     */
+    public String respond(ChatRequest chatRequest, Random random) {
+        Kind kind = detectKind(systemPrompt(chatRequest));
+        List<String> candidates = recorded.get(kind);
+        if (candidates != null && !candidates.isEmpty()) {
+            return candidates.get(random.nextInt(candidates.size()));
+        }
+        return synthesize(kind, userPrompt(chatRequest));
+    }
+
+    /**
+     * 按系统提示词判断响应类型：规划提示词禁止代码块；项目提示词要求代码块带 path= 标注；
+     * 单文件提示词只提到一种代码块；多文件提示词不提代码块语言，按三个文件输出
+     */
+    static Kind detectKind(String systemPrompt) {
+        if (systemPrompt.contains("结构规划")) {
+            return Kind.PLAN;
+        }
+        if (systemPrompt.contains("path=")) {
+            return Kind.PROJECT;
+        }
+        boolean html = systemPrompt.contains("```html");
+        boolean css = systemPrompt.contains("```css");
+        boolean js = systemPrompt.contains("```js") || systemPrompt.contains("```javascript");
+        if (html && !css && !js) {
+            // 单文件 HTML 模式与并行生成的 HTML 文件提示词都只提到 html 代码块，后者指明文件名 index.html
+            return systemPrompt.contains("index.html") ? Kind.HTML_FILE : Kind.HTML;
+        }
+        if (css && !html && !js) {
+            return Kind.CSS_FILE;
+        }
+        if (js && !html && !css) {
+            return Kind.JS_FILE;
+        }
+        return Kind.MULTI_FILE;
+    }
+
+    private String synthesize(Kind kind, String userPrompt) {
+        String title = StrUtil.isBlank(userPrompt) ? "模拟页面" : StrUtil.sub(userPrompt.trim(), 0, 40)
+                .replace('<', ' ').replace('>', ' ');
+        boolean multiFile = kind == Kind.MULTI_FILE || kind == Kind.PROJECT;
+        int sections = Math.max(1, syntheticSize / (multiFile ? 1200 : 600));
+        return switch (kind) {
+            case PLAN -> plan(sections);
+            case HTML -> fence("html", html(title, sections, true));
+            case HTML_FILE -> fence("html", html(title, sections, false));
+            case CSS_FILE -> fence("css", css(sections));
+            case JS_FILE -> fence("js", js(sections));
+            case MULTI_FILE -> fence("html", html(title, sections, false)) + "\n\n"
+                    + fence("css", css(sections)) + "\n\n" + fence("javascript", js(sections));
+            case PROJECT -> "项目结构：index.html、about.html、css/、js/、data/\n\n"
+                    + fence("html path=index.html", projectHtml(title, sections)) + "\n\n"
+                    + fence("html path=about.html", projectHtml("关于", 1)) + "\n\n"
+                    + fence("css path=css/style.css", css(sections)) + "\n\n"
+                    + fence("js path=js/app.js", js(sections)) + "\n\n"
+                    + fence("json path=data/sections.json", "{ \"sections\": " + sections + " }\n");
+        };
+    }
+
+    private static String fence(String language, String code) {
+        return "```" + language + "\n" + code + "```";
+    }
+
+    private static String plan(int sections) {
+        StringBuilder plan = new StringBuilder("1. **页面分区**\n");
+        for (int i = 1; i <= sections; i++) {
+            plan.append("   - 区块 ").append(i).append("：`<section id=\"section-").append(i).append("\">`\n");
+        }
+        return plan.append("2. **交互约定**：点击 `.card` 切换 `is-active`\n").toString();
+    }
+
+    private static String html(String title, int sections, boolean inline) {
+        StringBuilder html = new StringBuilder("<!DOCTYPE html>\n<html lang=\"zh-CN\">\n<head>\n")
+                .append("  <meta charset=\"UTF-8\">\n  <title>").append(title).append("</title>\n");
+        if (inline) {
+            html.append("  <style>\n").append(css(sections)).append("  </style>\n");
+        } else {
+            html.append("  <link rel=\"stylesheet\" href=\"style.css\">\n");
+        }
+        html.append("</head>\n<body>\n  <h1>").append(title).append("</h1>\n");
+        for (int i = 1; i <= sections; i++) {
+            html.append("  <section id=\"section-").append(i).append("\" class=\"card\">\n")
+                    .append("    <h2>区块 ").append(i).append("</h2>\n")
+                    .append("    <p>这是模拟模型生成的第 ").append(i)
+                    .append(" 个区块，用于离线压测生成、解析和保存的完整链路。</p>\n")
+                    .append("  </section>\n");
+        }
+        if (inline) {
+            html.append("  <script>\n").append(js(sections)).append("  </script>\n");
+        } else {
+            html.append("  <script src=\"script.js\"></script>\n");
+        }
+        return html.append("</body>\n</html>\n").toString();
+    }
+
+    /**
+     * 项目模式的页面，样式和脚本位于子目录
+     */
+    private static String projectHtml(String title, int sections) {
+        return html(title, sections, false).replace("style.css", "css/style.css").replace("script.js", "js/app.js");
+    }
+
+    private static String css(int sections) {
+        StringBuilder css = new StringBuilder("body { margin: 0; font-family: sans-serif; }\n")
+                .append(".card { padding: 16px; border-radius: 8px; }\n")
+                .append(".card.is-active { outline: 2px solid #3b82f6; }\n");
+        for (int i = 1; i <= sections; i++) {
+            css.append("#section-").append(i).append(" { background: hsl(").append(i * 37 % 360)
+                    .append(", 70%, 95%); }\n");
+        }
+        return css.toString();
+    }
+
+    private static String js(int sections) {
+        return "(function () {\n"
+                + "  document.querySelectorAll('.card').forEach(function (card) {\n"
+                + "    card.addEventListener('click', function () {\n"
+                + "      card.classList.toggle('is-active');\n"
+                + "    });\n"
+                + "  });\n"
+                + "  console.log('sections: " + sections + "');\n"
+                + "})();\n";
+    }
+
+    private void loadRecorded(File dir) {
+        List<File> files = FileUtil.loopFiles(dir, file -> file.isFile() && !file.isHidden());
+        for (File file : files) {
+            Kind kind = kindOfFile(file.getName());
+            if (kind == null) {
+                log.warn("无法识别录制响应的类型，已忽略: {}", file.getName());
+                continue;
+            }
+            recorded.computeIfAbsent(kind, k -> new ArrayList<>()).add(FileUtil.readString(file, StandardCharsets.UTF_8));
+        }
+        log.info("已加载模拟模型录制响应: {}", recorded.keySet());
+    }
+
+    /**
+     * 按最长前缀匹配类型（html-file 优先于 html）
+     */
+    private static Kind kindOfFile(String fileName) {
+        Kind matched = null;
+        for (Kind kind : Kind.values()) {
+            if (fileName.startsWith(kind.prefix) && (matched == null || kind.prefix.length() > matched.prefix.length())) {
+                matched = kind;
+            }
+        }
+        return matched;
+    }
+
+    private static String systemPrompt(ChatRequest chatRequest) {
+        StringBuilder prompt = new StringBuilder();
+        for (ChatMessage message : chatRequest.messages()) {
+            if (message instanceof SystemMessage systemMessage) {
+                prompt.append(systemMessage.text());
+            }
+        }
+        return prompt.toString();
+    }
+
+    private static String userPrompt(ChatRequest chatRequest) {
+        List<ChatMessage> messages = chatRequest.messages();
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (messages.get(i) instanceof UserMessage userMessage && userMessage.hasSingleText()) {
+                return userMessage.singleText();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,214 @@
+package com.carlos.aicodebackend.ai;
+
+import com.carlos.aicodebackend.config.CodeGenProperties;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.exception.InternalServerException;
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.TokenUsage;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 进程内的模拟流式模型
+ * 按配置的首 token 延迟、输出速度和抖动逐个推送 {@link SimulatedResponses} 给出的响应，
+ * 并按概率模拟调用失败、输出截断和中途停顿，用于在不调用付费模型的情况下离线压测完整的生成链路。
+ * 与真实模型一样支持通过 {@link UpstreamAbortHandle} 中止
+ *
+ * @author <a href="https://github.com/LichCarlos">LichCarlos</a>
+ */
+@Slf4j
+public class SimulatedStreamingChatModel implements StreamingChatModel {
+
+    private final SimulatedResponses responses;
+
+    private final CodeGenProperties.Simulated properties;
+
+    private final Scheduler scheduler;
+
+    /**
+     * 已接收的请求数，与种子一起决定每个请求的随机序列
+     */
+    private final AtomicLong requestCount = new AtomicLong();
+
+    public SimulatedStreamingChatModel(SimulatedResponses responses, CodeGenProperties.Simulated properties) {
+        this(responses, properties, Schedulers.boundedElastic());
+    }
+
+    /**
+     * @param scheduler 推送 token 的调度器（下游的解析、保存在推送线程上执行）
+     */
+    public SimulatedStreamingChatModel(SimulatedResponses responses, CodeGenProperties.Simulated properties,
+            Scheduler scheduler) {
+        this.responses = responses;
+        this.properties = properties;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        Random random = newRandom(requestCount.getAndIncrement());
+        Playback playback = new Playback(responses.respond(chatRequest, random), random, handler);
+        UpstreamAbortHandle abortHandle = UpstreamAbortHandle.current();
+        if (abortHandle != null) {
+            abortHandle.register(playback::cancel);
+        }
+        playback.start();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return ModelProvider.OTHER;
+    }
+
+    /**
+     * 为第 ordinal 个请求创建独立的随机数来源。
+     * 请求之间不共享随机序列，固定种子时第 N 个请求的响应和故障位置不受并发交错影响
+     */
+    private Random newRandom(long ordinal) {
+        long seed = properties.getSeed();
+        if (seed == 0) {
+            return new Random();
+        }
+        // SplittableRandom 同款的 64 位混合，避免相邻序号得到相关的序列
+        long mixed = seed + ordinal * 0x9E3779B97F4A7C15L;
+        mixed = (mixed ^ (mixed >>> 30)) * 0xBF58476D1CE4E5B9L;
+        mixed = (mixed ^ (mixed >>> 27)) * 0x94D049BB133111EBL;
+        return new Random(mixed ^ (mixed >>> 31));
+    }
+
+    /**
+     * 一次响应的推送过程：按抽样结果决定失败、截断、停顿的位置（以 token 序号计）
+     */
+    private class Playback {
+
+        private final String text;
+
+        private final Random random;
+
+        private final StreamingChatResponseHandler handler;
+
+        private final int tokenCount;
+
+        private final int failAt;
+
+        private final int truncateAt;
+
+        private final int stallAt;
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private int next;
+
+        private Disposable pending;
+
+        private boolean cancelled;
+
+        Playback(String text, Random random, StreamingChatResponseHandler handler) {
+            this.text = text;
+            this.random = random;
+            this.handler = handler;
+            this.tokenCount = Math.max(1, (text.length() + properties.getCharsPerToken() - 1)
+                    / properties.getCharsPerToken());
+            this.failAt = sample(properties.getErrorRate());
+            this.truncateAt = sample(properties.getTruncationRate());
+            this.stallAt = sample(properties.getStallRate());
+        }
+
+        /**
+         * 按概率抽样一个 token 序号，未命中时返回 -1
+         */
+        private int sample(double rate) {
+            return rate > 0 && random.nextDouble() < rate ? random.nextInt(tokenCount) : -1;
+        }
+
+        /**
+         * 在 ±jitter 范围内随机浮动的时长（纳秒）
+         */
+        private long jittered(double nanos) {
+            double factor = 1 + properties.getJitter() * (2 * random.nextDouble() - 1);
+            return (long) Math.max(0, nanos * factor);
+        }
+
+        void start() {
+            schedule(jittered(properties.getFirstTokenLatency().toNanos()));
+        }
+
+        void cancel() {
+            lock.lock();
+            try {
+                cancelled = true;
+                if (pending != null) {
+                    pending.dispose();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void schedule(long delayNanos) {
+            lock.lock();
+            try {
+                if (!cancelled) {
+                    pending = scheduler.schedule(this::emit, delayNanos, TimeUnit.NANOSECONDS);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void emit() {
+            lock.lock();
+            try {
+                if (cancelled) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            int index = next++;
+            if (index == failAt) {
+                log.info("模拟模型调用失败，已输出 {}/{} 个 token", index, tokenCount);
+                handler.onError(new InternalServerException("模拟的模型服务错误"));
+                return;
+            }
+            if (index == truncateAt) {
+                log.info("模拟模型输出截断，已输出 {}/{} 个 token", index, tokenCount);
+                complete(index, FinishReason.LENGTH);
+                return;
+            }
+            int start = index * properties.getCharsPerToken();
+            handler.onPartialResponse(text.substring(start, Math.min(text.length(), start + properties.getCharsPerToken())));
+            if (next >= tokenCount) {
+                complete(tokenCount, FinishReason.STOP);
+                return;
+            }
+            long delay = jittered(TimeUnit.SECONDS.toNanos(1) / properties.getTokensPerSecond());
+            if (index == stallAt) {
+                log.info("模拟模型输出停顿 {}", properties.getStallDuration());
+                delay += properties.getStallDuration().toNanos();
+            }
+            schedule(delay);
+        }
+
+        private void complete(int tokens, FinishReason finishReason) {
+            String output = text.substring(0, Math.min(text.length(), tokens * properties.getCharsPerToken()));
+            handler.onCompleteResponse(ChatResponse.builder()
+                    .aiMessage(AiMessage.from(output))
+                    .finishReason(finishReason)
+                    .tokenUsage(new TokenUsage(0, tokens))
+                    .build());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.carlos.aicodebackend.ai;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 上游模型流的中止句柄
+ * 调用 AI 服务时通过 {@link #bind(Supplier)} 绑定到当前线程，期间发起的流式 HTTP 请求会把响应流登记到句柄上；
+ * 下游取消时调用 {@link #abort()} 关闭响应流，立即断开与模型的连接，不再为后续 token 付费
+ *
+ * @author <a href="https://github.com/LichCarlos">LichCarlos</a>
+ */
+@Slf4j
+public class UpstreamAbortHandle {
+
+    private static final ThreadLocal<UpstreamAbortHandle> CURRENT = new ThreadLocal<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final List<Closeable> streams = new ArrayList<>();
+
+    private boolean aborted;
+
+    /**
+     * 在绑定本句柄的情况下执行调用（流式请求在调用线程上同步发起）
+     *
+     * @param call 调用
+     * @return 调用结果
+     */
+    public <T> T bind(Supplier<T> call) {
+        UpstreamAbortHandle previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return call.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 当前线程绑定的句柄
+     *
+     * @return 句柄，未绑定时返回 null
+     */
+    static UpstreamAbortHandle current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 登记上游响应流，已中止时立即关闭
+     *
+     * @param stream 响应流
+     */
+    void register(Closeable stream) {
+        lock.lock();
+        try {
+            if (!aborted) {
+                streams.add(stream);
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        closeQuietly(stream);
+    }
+
+    /**
+     * 中止上游：关闭所有已登记的响应流，之后登记的流也会被立即关闭
+     */
+    public void abort() {
+        List<Closeable> toClose;
+        lock.lock();
+        try {
+            if (aborted) {
+                return;
+            }
+            aborted = true;
+            toClose = List.copyOf(streams);
+            streams.clear();
+        } finally {
+            lock.unlock();
+        }
+        if (!toClose.isEmpty()) {
+            log.info("中止上游模型流，关闭 {} 个连接", toClose.size());
+        }
+        toClose.forEach(UpstreamAbortHandle::closeQuietly);
+    }
+
+    /**
+     * 是否已中止
+     */
+    public boolean isAborted() {
+        lock.lock();
+        try {
+            return aborted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void closeQuietly(Closeable stream) {
+        try {
+            stream.close();
+        } catch (IOException | RuntimeException e) {
+            log.debug("关闭上游响应流失败: {}", e.getMessage());
+        }
+    }
+}
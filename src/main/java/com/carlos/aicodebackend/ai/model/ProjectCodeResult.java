@@ -0,0 +1,17 @@
+package com.carlos.aicodebackend.ai.model;
+
+import com.carlos.aicodebackend.core.parser.VirtualFileTree;
+
+import dev.langchain4j.model.output.structured.Description;
+import lombok.Data;
+
+@Description("生成项目文件树的结果")
+@Data
+public class ProjectCodeResult {
+
+  @Description("项目文件树")
+  private VirtualFileTree fileTree;
+
+  @Description("生成代码的描述")
+  private String description;
+}
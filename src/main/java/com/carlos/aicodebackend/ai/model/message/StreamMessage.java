@@ -0,0 +1,91 @@
+package com.carlos.aicodebackend.ai.model.message;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 流式消息
+ * 代码生成流中的一条消息，AI 响应片段之外还包括保存结果等事件
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StreamMessage {
+
+  /**
+   * 消息类型，见 {@link StreamMessageTypeEnum}
+   */
+  private String type;
+
+  /**
+   * 消息内容
+   */
+  private String data;
+
+  /**
+   * 事件 ID（生成 ID:序号），用于断线续传；不可续传的消息为 null
+   */
+  private String id;
+
+  /**
+   * 片段所属的文件名（并行生成多文件时区分各文件的输出），其余消息为 null
+   */
+  private String file;
+
+  public StreamMessage(String type, String data) {
+    this(type, data, null, null);
+  }
+
+  public StreamMessage(String type, String data, String id) {
+    this(type, data, id, null);
+  }
+
+  public static StreamMessage aiResponse(String data) {
+    return new StreamMessage(StreamMessageTypeEnum.AI_RESPONSE.getValue(), data);
+  }
+
+  /**
+   * 属于指定文件的 AI 响应片段
+   *
+   * @param data 片段内容
+   * @param file 文件名
+   */
+  public static StreamMessage aiResponse(String data, String file) {
+    return new StreamMessage(StreamMessageTypeEnum.AI_RESPONSE.getValue(), data, null, file);
+  }
+
+  public static StreamMessage saved(String data) {
+    return new StreamMessage(StreamMessageTypeEnum.SAVED.getValue(), data);
+  }
+
+  public static StreamMessage error(String data) {
+    return new StreamMessage(StreamMessageTypeEnum.ERROR.getValue(), data);
+  }
+
+  /**
+   * 排队消息
+   *
+   * @param position 当前排队位置（从 1 开始）
+   */
+  public static StreamMessage queued(int position) {
+    return new StreamMessage(StreamMessageTypeEnum.QUEUED.getValue(), String.valueOf(position));
+  }
+
+  /**
+   * 复制一条带事件 ID 的消息
+   *
+   * @param id 事件 ID
+   * @return 新消息
+   */
+  public StreamMessage withId(String id) {
+    return new StreamMessage(type, data, id, file);
+  }
+
+  /**
+   * 是否为 AI 响应片段
+   */
+  public boolean isAiResponse() {
+    return StreamMessageTypeEnum.AI_RESPONSE.getValue().equals(type);
+  }
+}
@@ -0,0 +1,43 @@
+package com.carlos.aicodebackend.ai.model.message;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 流式消息类型枚举
+ */
+@Getter
+public enum StreamMessageTypeEnum {
+
+  AI_RESPONSE("AI 响应", "ai_response"),
+  SAVED("保存完成", "saved"),
+  ERROR("错误", "error"),
+  QUEUED("排队中", "queued");
+
+  private final String text;
+
+  private final String value;
+
+  StreamMessageTypeEnum(String text, String value) {
+    this.text = text;
+    this.value = value;
+  }
+
+  /**
+   * 根据 value 获取枚举
+   *
+   * @param value 枚举值的value
+   * @return 枚举值
+   */
+  public static StreamMessageTypeEnum getEnumByValue(String value) {
+    if (ObjUtil.isEmpty(value)) {
+      return null;
+    }
+    for (StreamMessageTypeEnum anEnum : StreamMessageTypeEnum.values()) {
+      if (anEnum.value.equals(value)) {
+        return anEnum;
+      }
+    }
+    return null;
+  }
+}
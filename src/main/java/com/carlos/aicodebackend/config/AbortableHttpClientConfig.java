@@ -0,0 +1,28 @@
+package com.carlos.aicodebackend.config;
+
+import com.carlos.aicodebackend.ai.AbortableHttpClient;
+import dev.langchain4j.http.client.HttpClientBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * 将流式模型使用的 HTTP 客户端构建器替换为可中止的版本，生成取消时可以立即断开上游连接
+ */
+@Component
+public class AbortableHttpClientConfig implements BeanPostProcessor {
+
+    /**
+     * langchain4j OpenAI 自动配置中流式对话模型的 HTTP 客户端构建器 Bean 名称
+     */
+    private static final String STREAMING_CHAT_MODEL_HTTP_CLIENT_BUILDER = "openAiStreamingChatModelHttpClientBuilder";
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (STREAMING_CHAT_MODEL_HTTP_CLIENT_BUILDER.equals(beanName)
+                && bean instanceof HttpClientBuilder builder
+                && !(bean instanceof AbortableHttpClient.Builder)) {
+            return new AbortableHttpClient.Builder(builder);
+        }
+        return bean;
+    }
+}
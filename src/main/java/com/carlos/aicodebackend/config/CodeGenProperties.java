@@ -0,0 +1,364 @@
+package com.carlos.aicodebackend.config;
+
+import java.time.Duration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 代码生成配置
+ *
+ * @author <a href="https://github.com/LichCarlos">LichCarlos</a>
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code-gen")
+@Data
+public class CodeGenProperties {
+
+    /**
+     * 是否在生成过程中边解析边写入文件（关闭后在生成完成时整体保存）
+     */
+    private boolean streamingSave = true;
+
+    /**
+     * 单次生成允许的最大输出（UTF-8 字节），超出后中断生成，小于等于 0 表示不限制
+     */
+    private long maxResponseBytes = 1024 * 1024;
+
+    /**
+     * 非流式生成（生成并保存）的默认截止时间，超时后取消生成
+     */
+    private Duration generateTimeout = Duration.ofMinutes(5);
+
+    /**
+     * 内容存储全量清理没有引用的对象的间隔
+     */
+    private Duration blobGcInterval = Duration.ofHours(6);
+
+    /**
+     * 生成完成后的收尾阶段（解析、保存、写入对话历史）
+     */
+    private Completion completion = new Completion();
+
+    /**
+     * 首轮生成的输出缓存
+     */
+    private OutputCache outputCache = new OutputCache();
+
+    /**
+     * 生成准入控制（并发上限与排队）
+     */
+    private Admission admission = new Admission();
+
+    /**
+     * 生成流的缓冲与续传
+     */
+    private Stream stream = new Stream();
+
+    /**
+     * SSE 片段合并
+     */
+    private Coalesce coalesce = new Coalesce();
+
+    /**
+     * Reactor Netty 流式服务
+     */
+    private Netty netty = new Netty();
+
+    /**
+     * 多文件并行生成
+     */
+    private ParallelMultiFile parallelMultiFile = new ParallelMultiFile();
+
+    /**
+     * 流式模型的对冲请求
+     */
+    private Hedge hedge = new Hedge();
+
+    /**
+     * 模拟模型（simulated profile 下生效）
+     */
+    private Simulated simulated = new Simulated();
+
+    /**
+     * 项目模式配置
+     */
+    private Project project = new Project();
+
+    @Data
+    public static class Completion {
+
+        /**
+         * 收尾线程数
+         */
+        private int threads = 8;
+
+        /**
+         * 等待队列容量，队列满时拒绝新的收尾任务并向客户端返回错误事件
+         */
+        private int queueCapacity = 1000;
+    }
+
+    @Data
+    public static class OutputCache {
+
+        /**
+         * 是否启用（默认关闭）
+         */
+        private boolean enabled = false;
+
+        /**
+         * 内存缓存的最大条目数
+         */
+        private long maximumSize = 500;
+
+        /**
+         * 写入后的过期时间（内存和磁盘共用）
+         */
+        private Duration expireAfterWrite = Duration.ofDays(7);
+
+        /**
+         * 是否启用磁盘缓存（gzip 压缩后存放在 tmp 目录下）
+         */
+        private boolean diskEnabled = true;
+
+        /**
+         * 命中时回放的每个片段的字符数
+         */
+        private int replayChunkSize = 32;
+
+        /**
+         * 命中时回放片段之间的间隔
+         */
+        private Duration replayInterval = Duration.ofMillis(15);
+    }
+
+    @Data
+    public static class Admission {
+
+        /**
+         * 是否启用（关闭后不限制并发）
+         */
+        private boolean enabled = true;
+
+        /**
+         * 本节点同时进行的生成数上限
+         */
+        private int maxConcurrent = 32;
+
+        /**
+         * 单个用户同时进行的生成数上限
+         */
+        private int maxPerUser = 2;
+
+        /**
+         * 排队数上限，超出后直接拒绝
+         */
+        private int maxQueueSize = 200;
+    }
+
+    @Data
+    public static class Stream {
+
+        /**
+         * 每次生成保留的最近事件数（环形缓冲区），断线重连时从中续传
+         */
+        private int ringBufferSize = 8192;
+
+        /**
+         * 每个订阅者的待推送事件上限，超出后断开该订阅者（可凭 Last-Event-ID 续传）
+         */
+        private int subscriberBufferSize = 1024;
+
+        /**
+         * 所有订阅者断开后继续生成的时长，期间重连可续传，超时后取消生成（断开模型连接）。
+         * 期间模型仍在输出并计费；设为 0 时最后一个订阅者断开即取消，不再支持断线续传
+         */
+        private Duration idleTimeout = Duration.ofSeconds(15);
+
+        /**
+         * 生成结束后保留事件的时长，期间可续传
+         */
+        private Duration retention = Duration.ofSeconds(60);
+    }
+
+    @Data
+    public static class Coalesce {
+
+        /**
+         * 是否启用（关闭后每个模型片段单独推送一个事件）
+         */
+        private boolean enabled = true;
+
+        /**
+         * 默认合并时间窗口，窗口内到达的片段合并为一个事件
+         */
+        private Duration flushInterval = Duration.ofMillis(25);
+
+        /**
+         * 默认合并字节数，待推送内容达到该大小时立即推送（UTF-8 字节）
+         */
+        private int flushSize = 1024;
+
+        /**
+         * 客户端推送过慢时时间窗口可扩大到的上限，也是客户端可指定的上限
+         */
+        private Duration maxFlushInterval = Duration.ofMillis(400);
+
+        /**
+         * 客户端推送过慢时合并字节数可扩大到的上限，也是客户端可指定的上限
+         */
+        private int maxFlushSize = 16 * 1024;
+    }
+
+    @Data
+    public static class Netty {
+
+        /**
+         * 是否启用：启用后流式生成接口额外由 Reactor Netty 在独立端口上提供，不占用 Servlet 线程和连接
+         */
+        private boolean enabled = false;
+
+        /**
+         * 监听端口
+         */
+        private int port = 8124;
+
+        /**
+         * 阻塞调用（数据库、session）专用线程数
+         */
+        private int blockingThreads = 64;
+
+        /**
+         * 阻塞调用的排队上限
+         */
+        private int blockingQueueSize = 10000;
+    }
+
+    @Data
+    public static class ParallelMultiFile {
+
+        /**
+         * 是否启用：启用后多文件模式的首轮生成先规划页面结构，再并行生成 HTML、CSS、JS（默认关闭）
+         */
+        private boolean enabled = false;
+    }
+
+    @Data
+    public static class Hedge {
+
+        /**
+         * 是否启用（默认关闭）
+         */
+        private boolean enabled = false;
+
+        /**
+         * 对冲阈值取近期首 token 延迟的该分位数
+         */
+        private double percentile = 0.95;
+
+        /**
+         * 参与分位数计算的最近请求数
+         */
+        private int windowSize = 200;
+
+        /**
+         * 样本数达到该值后才按分位数计算阈值
+         */
+        private int minSamples = 20;
+
+        /**
+         * 样本不足时使用的阈值
+         */
+        private Duration initialThreshold = Duration.ofSeconds(8);
+
+        /**
+         * 阈值下限，避免模型很快时频繁对冲
+         */
+        private Duration minThreshold = Duration.ofSeconds(1);
+
+        /**
+         * 对冲预算：额外请求数占请求总数的比例上限
+         */
+        private double budgetRatio = 0.05;
+    }
+
+    @Data
+    public static class Project {
+
+        /**
+         * 文件数上限
+         */
+        private int maxFiles = 50;
+
+        /**
+         * 单个文件的字节数上限
+         */
+        private long maxFileBytes = 256 * 1024;
+
+        /**
+         * 全部文件的字节数上限
+         */
+        private long maxTotalBytes = 1024 * 1024;
+    }
+
+    @Data
+    public static class Simulated {
+
+        /**
+         * 录制响应所在目录（文件名以 html、multi-file、project、plan、html-file、css-file、js-file 开头），为空时使用合成响应
+         */
+        private String recordedDir;
+
+        /**
+         * 合成响应的大致字符数
+         */
+        private int syntheticSize = 6000;
+
+        /**
+         * 首 token 延迟
+         */
+        private Duration firstTokenLatency = Duration.ofMillis(800);
+
+        /**
+         * 输出速度（token/秒）
+         */
+        private double tokensPerSecond = 60;
+
+        /**
+         * 每个 token 的字符数
+         */
+        private int charsPerToken = 4;
+
+        /**
+         * 延迟抖动比例：首 token 延迟和 token 间隔在 ±该比例内随机浮动
+         */
+        private double jitter = 0.2;
+
+        /**
+         * 调用失败的概率，失败发生在输出过程中的随机位置
+         */
+        private double errorRate = 0;
+
+        /**
+         * 输出被截断的概率（在随机位置以 LENGTH 结束）
+         */
+        private double truncationRate = 0;
+
+        /**
+         * 输出中途停顿的概率
+         */
+        private double stallRate = 0;
+
+        /**
+         * 停顿时长
+         */
+        private Duration stallDuration = Duration.ofSeconds(30);
+
+        /**
+         * 随机种子，与请求序号一起决定每个请求的随机序列，为 0 时每次启动不同
+         */
+        private long seed = 0;
+    }
+}
@@ -0,0 +1,43 @@
+package com.carlos.aicodebackend.config;
+
+import com.carlos.aicodebackend.ai.SimulatedChatModel;
+import com.carlos.aicodebackend.ai.SimulatedResponses;
+import com.carlos.aicodebackend.ai.SimulatedStreamingChatModel;
+import dev.langchain4j.model.chat.ChatModel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * 模拟模型配置
+ * 激活 simulated profile 后（如 --spring.profiles.active=local,simulated），对话模型替换为进程内的模拟模型，
+ * 生成链路的其余部分（对话记忆、解析、保存、对话历史）不变，可以在本地离线压测。
+ * 延迟、速度和故障概率见 application-simulated.yml
+ *
+ * @author <a href="https://github.com/LichCarlos">LichCarlos</a>
+ */
+@Slf4j
+@Configuration
+@Profile("simulated")
+public class SimulatedModelConfig {
+
+    @Bean
+    @Primary
+    public SimulatedStreamingChatModel simulatedStreamingChatModel(CodeGenProperties codeGenProperties) {
+        CodeGenProperties.Simulated properties = codeGenProperties.getSimulated();
+        log.warn("已启用模拟模型：首 token 延迟 {}，{} token/秒，失败率 {}，截断率 {}，停顿率 {}",
+                properties.getFirstTokenLatency(), properties.getTokensPerSecond(), properties.getErrorRate(),
+                properties.getTruncationRate(), properties.getStallRate());
+        SimulatedResponses responses = new SimulatedResponses(properties.getRecordedDir(),
+                properties.getSyntheticSize());
+        return new SimulatedStreamingChatModel(responses, properties);
+    }
+
+    @Bean
+    @Primary
+    public ChatModel simulatedChatModel(SimulatedStreamingChatModel simulatedStreamingChatModel) {
+        return new SimulatedChatModel(simulatedStreamingChatModel);
+    }
+}
@@ -27,6 +27,21 @@ public interface AppConstant {
      */
     String CODE_DEPLOY_ROOT_DIR = System.getProperty("user.dir") + "/tmp/code_deploy";
 
+    /**
+     * 生成文件的内容寻址存储目录（与生成目录、部署目录位于同一文件系统，才能使用硬链接）
+     */
+    String CODE_BLOB_ROOT_DIR = System.getProperty("user.dir") + "/tmp/code_blobs";
+
+    /**
+     * 生成结果缓存目录
+     */
+    String CODE_GEN_CACHE_DIR = System.getProperty("user.dir") + "/tmp/code_gen_cache";
+
+    /**
+     * 生成被取消时，追加在部分 AI 响应之后的截断标记
+     */
+    String TRUNCATED_RESPONSE_MARK = "\n\n[生成已中断，以上为部分内容]";
+
     /**
      * 应用部署域名
      */
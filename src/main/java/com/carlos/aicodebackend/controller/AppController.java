@@ -9,19 +9,21 @@ import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import cn.hutool.json.JSONUtil;
-import java.util.Map;
 
+import com.carlos.aicodebackend.ai.model.message.StreamMessage;
 import com.carlos.aicodebackend.annotation.AuthCheck;
 import com.carlos.aicodebackend.common.BaseResponse;
 import com.carlos.aicodebackend.common.DeleteRequest;
 import com.carlos.aicodebackend.common.ResultUtils;
 import com.carlos.aicodebackend.constant.UserConstant;
+import com.carlos.aicodebackend.core.StreamMessageCoalescer;
+import com.carlos.aicodebackend.core.StreamMessageEncoder;
 import com.carlos.aicodebackend.exception.BusinessException;
 import com.carlos.aicodebackend.exception.ErrorCode;
 import com.carlos.aicodebackend.exception.ThrowUtils;
@@ -57,6 +59,9 @@ public class AppController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private StreamMessageCoalescer streamMessageCoalescer;
+
     /**
      * 创建应用
      *
@@ -70,6 +75,9 @@ public class AppController {
         // 参数校验
         String initPrompt = appAddRequest.getInitPrompt();
         ThrowUtils.throwIf(StrUtil.isBlank(initPrompt), ErrorCode.PARAMS_ERROR, "初始化 prompt 不能为空");
+        String codeGenType = appAddRequest.getCodeGenType();
+        ThrowUtils.throwIf(StrUtil.isNotBlank(codeGenType) && CodeGenTypeEnum.getEnumByValue(codeGenType) == null,
+                ErrorCode.PARAMS_ERROR, "不支持的代码生成类型");
 
         // 获取当前登录用户
         User loginUser = userService.getLoginUser(request);
@@ -79,8 +87,8 @@ public class AppController {
         app.setUserId(loginUser.getId());
         // 应用名称暂时为 initPrompt 前 12 位
         app.setAppName(initPrompt.substring(0, Math.min(initPrompt.length(), 12)));
-        // 暂时设置为多文件生成
-        app.setCodeGenType(CodeGenTypeEnum.MULTI_FILE.getValue());
+        // 未指定时默认为多文件生成
+        app.setCodeGenType(StrUtil.isNotBlank(codeGenType) ? codeGenType : CodeGenTypeEnum.MULTI_FILE.getValue());
         // 插入数据库
         boolean result = appService.save(app);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
@@ -297,31 +305,79 @@ public class AppController {
     /**
      * 应用聊天生成代码（流式 SSE）
      *
-     * @param appId   应用 ID
-     * @param message 用户消息
-     * @param request 请求对象
+     * @param appId       应用 ID
+     * @param message     用户消息
+     * @param lastEventId 断线重连时浏览器携带的最后事件 ID
+     * @param flushInterval 片段合并的时间窗口（毫秒），不传使用默认值，0 表示逐片段推送
+     * @param flushSize   片段合并的字节数，不传使用默认值
+     * @param request     请求对象
      * @return 生成结果流
      */
     @GetMapping(value = "/chat/gen/code", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public Flux<ServerSentEvent<String>> chatToGenCode(@RequestParam Long appId,
             @RequestParam String message,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            @RequestParam(required = false) Long flushInterval,
+            @RequestParam(required = false) Integer flushSize,
             HttpServletRequest request) {
         // 参数校验
         ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用ID无效");
         ThrowUtils.throwIf(StrUtil.isBlank(message), ErrorCode.PARAMS_ERROR, "用户消息不能为空");
         // 获取当前登录用户
         User loginUser = userService.getLoginUser(request);
-        // 调用服务生成代码（流式）
-        Flux<String> contentFlux = appService.chatToGenCode(appId, message, loginUser);
-        // 转换为 ServerSentEvent 格式
+        // 调用服务生成代码（流式）；断线重连时携带 Last-Event-ID，从断开处续传而不重新生成
+        Flux<StreamMessage> contentFlux = StrUtil.isNotBlank(lastEventId)
+                ? appService.resumeGenCode(appId, lastEventId, loginUser)
+                : appService.chatToGenCode(appId, message, loginUser);
+        // 合并细碎的模型片段后转换为 ServerSentEvent 格式
+        return toServerSentEvents(streamMessageCoalescer.coalesce(contentFlux, flushInterval, flushSize));
+    }
+
+    /**
+     * 旁观应用正在进行的生成（流式 SSE），多个标签页或管理员共享同一次生成
+     *
+     * @param appId       应用 ID
+     * @param lastEventId 断线重连时浏览器携带的最后事件 ID
+     * @param flushInterval 片段合并的时间窗口（毫秒），不传使用默认值，0 表示逐片段推送
+     * @param flushSize   片段合并的字节数，不传使用默认值
+     * @param request     请求对象
+     * @return 生成结果流
+     */
+    @GetMapping(value = "/chat/gen/watch", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> watchGenCode(@RequestParam Long appId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            @RequestParam(required = false) Long flushInterval,
+            @RequestParam(required = false) Integer flushSize,
+            HttpServletRequest request) {
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用ID无效");
+        User loginUser = userService.getLoginUser(request);
+        Flux<StreamMessage> contentFlux = StrUtil.isNotBlank(lastEventId)
+                ? appService.resumeGenCode(appId, lastEventId, loginUser)
+                : appService.watchGenCode(appId, loginUser);
+        return toServerSentEvents(streamMessageCoalescer.coalesce(contentFlux, flushInterval, flushSize));
+    }
+
+    /**
+     * 将生成结果流转换为 SSE 事件流，并在末尾追加结束事件
+     *
+     * @param contentFlux 生成结果流
+     * @return SSE 事件流
+     */
+    private Flux<ServerSentEvent<String>> toServerSentEvents(Flux<StreamMessage> contentFlux) {
         return contentFlux
-                .map(chunk -> {
-                    // 将内容包装成JSON对象
-                    Map<String, String> wrapper = Map.of("d", chunk);
-                    String jsonData = JSONUtil.toJsonStr(wrapper);
-                    return ServerSentEvent.<String>builder()
-                            .data(jsonData)
-                            .build();
+                .map(streamMessage -> {
+                    // 将内容包装成JSON对象 {"d":"..."}，并行生成多文件时附加文件名 {"d":"...","f":"..."}
+                    String jsonData = StreamMessageEncoder.toJson(streamMessage.getData(), streamMessage.getFile());
+                    // AI 响应片段不设置事件名，保存结果等消息使用消息类型作为事件名
+                    ServerSentEvent.Builder<String> builder = ServerSentEvent.<String>builder().data(jsonData);
+                    if (!streamMessage.isAiResponse()) {
+                        builder.event(streamMessage.getType());
+                    }
+                    // 可续传的消息带上事件 ID，浏览器重连时会通过 Last-Event-ID 回传
+                    if (streamMessage.getId() != null) {
+                        builder.id(streamMessage.getId());
+                    }
+                    return builder.build();
                 })
                 .concatWith(Mono.just(
                         // 发送结束事件
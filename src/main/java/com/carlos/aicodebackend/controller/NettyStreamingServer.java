@@ -0,0 +1,294 @@
+package com.carlos.aicodebackend.controller;
+
+import cn.hutool.core.codec.Base64;
+import cn.hutool.core.util.StrUtil;
+import com.carlos.aicodebackend.ai.model.message.StreamMessage;
+import com.carlos.aicodebackend.config.CodeGenProperties;
+import com.carlos.aicodebackend.constant.UserConstant;
+import com.carlos.aicodebackend.core.StreamMessageCoalescer;
+import com.carlos.aicodebackend.core.StreamMessageEncoder;
+import com.carlos.aicodebackend.exception.BusinessException;
+import com.carlos.aicodebackend.exception.ErrorCode;
+import com.carlos.aicodebackend.exception.ThrowUtils;
+import com.carlos.aicodebackend.model.entity.User;
+import com.carlos.aicodebackend.service.AppService;
+import com.carlos.aicodebackend.service.UserService;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.handler.codec.http.cookie.Cookie;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.session.Session;
+import org.springframework.session.SessionRepository;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Reactor Netty 流式服务
+ * 在独立端口上提供与 {@link AppController} 相同的流式生成和旁观接口（参数、Cookie 登录态和 SSE 格式一致），
+ * 连接由 Netty 事件循环持有，不占用 Servlet 线程；登录态查询、数据库等阻塞调用在专用调度器上执行，
+ * SSE 事件由 {@link StreamMessageEncoder} 直接写入池化缓冲区
+ *
+ * @author <a href="https://github.com/LichCarlos">LichCarlos</a>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "code-gen.netty", name = "enabled", havingValue = "true")
+public class NettyStreamingServer implements SmartLifecycle {
+
+    /**
+     * Spring Session 默认的 Cookie 名
+     */
+    private static final String SESSION_COOKIE = "SESSION";
+
+    private final AppService appService;
+
+    private final UserService userService;
+
+    private final SessionRepository<? extends Session> sessionRepository;
+
+    private final StreamMessageCoalescer streamMessageCoalescer;
+
+    private final CodeGenProperties.Netty properties;
+
+    private final String contextPath;
+
+    private final boolean virtualThreads;
+
+    private Scheduler blockingScheduler;
+
+    private volatile DisposableServer server;
+
+    public NettyStreamingServer(AppService appService, UserService userService,
+            SessionRepository<? extends Session> sessionRepository, StreamMessageCoalescer streamMessageCoalescer,
+            CodeGenProperties codeGenProperties, @Value("${server.servlet.context-path:}") String contextPath,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.appService = appService;
+        this.userService = userService;
+        this.sessionRepository = sessionRepository;
+        this.streamMessageCoalescer = streamMessageCoalescer;
+        this.properties = codeGenProperties.getNetty();
+        this.contextPath = StrUtil.removeSuffix(contextPath, "/");
+        this.virtualThreads = virtualThreads;
+    }
+
+    @Override
+    public void start() {
+        // 虚拟线程模式下阻塞调用各自占用一个虚拟线程，并发由数据库连接池限制
+        blockingScheduler = virtualThreads
+                ? Schedulers.fromExecutorService(Executors.newThreadPerTaskExecutor(
+                        Thread.ofVirtual().name("code-gen-netty-blocking-", 0).factory()), "code-gen-netty-blocking")
+                : Schedulers.newBoundedElastic(properties.getBlockingThreads(),
+                        properties.getBlockingQueueSize(), "code-gen-netty-blocking");
+        server = HttpServer.create()
+                .port(properties.getPort())
+                .route(routes -> routes
+                        .get(contextPath + "/app/chat/gen/code", (request, response) ->
+                                handle(request, response, this::openChatStream))
+                        .get(contextPath + "/app/chat/gen/watch", (request, response) ->
+                                handle(request, response, this::openWatchStream)))
+                .bindNow();
+        log.info("Netty 流式服务已启动，端口: {}", server.port());
+    }
+
+    @Override
+    public void stop() {
+        if (server != null) {
+            server.disposeNow();
+            server = null;
+        }
+        if (blockingScheduler != null) {
+            blockingScheduler.dispose();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    /**
+     * 实际监听的端口（配置为 0 时由系统分配）
+     */
+    public int getPort() {
+        return server.port();
+    }
+
+    /**
+     * 处理一个流式请求：在阻塞调度器上完成登录态、参数校验和生成流的创建，
+     * 成功后以 SSE 推送，失败时与 Servlet 接口一样返回错误状态码和一条 error 事件
+     */
+    private Mono<Void> handle(HttpServerRequest request, HttpServerResponse response,
+            Function<StreamRequest, Flux<StreamMessage>> opener) {
+        applyCors(request, response);
+        StreamRequest streamRequest = new StreamRequest(request);
+        return Mono.fromCallable(() -> streamMessageCoalescer.coalesce(opener.apply(streamRequest),
+                        streamRequest.getLong("flushInterval"), streamRequest.getInt("flushSize")))
+                .subscribeOn(blockingScheduler)
+                .onErrorResume(e -> sendError(response, e).then(Mono.empty()))
+                .flatMap(contentFlux -> sendEvents(response, contentFlux)
+                        // 客户端断开等写出错误，连接已不可用
+                        .onErrorResume(e -> {
+                            log.debug("SSE 写出失败: {}", e.getMessage());
+                            return Mono.empty();
+                        }));
+    }
+
+    private Flux<StreamMessage> openChatStream(StreamRequest request) {
+        Long appId = request.getLong("appId");
+        String message = request.get("message");
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用ID无效");
+        ThrowUtils.throwIf(StrUtil.isBlank(message), ErrorCode.PARAMS_ERROR, "用户消息不能为空");
+        User loginUser = getLoginUser(request);
+        Flux<StreamMessage> contentFlux = StrUtil.isNotBlank(request.lastEventId)
+                ? appService.resumeGenCode(appId, request.lastEventId, loginUser)
+                : appService.chatToGenCode(appId, message, loginUser);
+        // 首次订阅时会写入对话历史，订阅也放在阻塞调度器上
+        return contentFlux.subscribeOn(blockingScheduler);
+    }
+
+    private Flux<StreamMessage> openWatchStream(StreamRequest request) {
+        Long appId = request.getLong("appId");
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用ID无效");
+        User loginUser = getLoginUser(request);
+        Flux<StreamMessage> contentFlux = StrUtil.isNotBlank(request.lastEventId)
+                ? appService.resumeGenCode(appId, request.lastEventId, loginUser)
+                : appService.watchGenCode(appId, loginUser);
+        return contentFlux.subscribeOn(blockingScheduler);
+    }
+
+    /**
+     * 从 Spring Session 的 Cookie 中取出登录态（与 Servlet 接口共用 Redis 中的 session）
+     */
+    private User getLoginUser(StreamRequest request) {
+        String sessionId = request.sessionId;
+        if (StrUtil.isBlank(sessionId)) {
+            throw new BusinessException(ErrorCode.NOT_LOGIN_ERROR);
+        }
+        Session session = sessionRepository.findById(sessionId);
+        User sessionUser = session == null ? null : session.getAttribute(UserConstant.USER_LOGIN_STATE);
+        return userService.getLoginUser(sessionUser);
+    }
+
+    private Mono<Void> sendEvents(HttpServerResponse response, Flux<StreamMessage> contentFlux) {
+        NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(response.alloc());
+        Flux<ByteBuf> frames = contentFlux
+                .onErrorResume(e -> {
+                    // 推送开始后出错时，以错误事件告知客户端
+                    log.error("流式生成出错: {}", e.getMessage());
+                    return Flux.just(StreamMessage.error(e.getMessage()));
+                })
+                .map(message -> NettyDataBufferFactory.toByteBuf(StreamMessageEncoder.encode(message, bufferFactory)))
+                .concatWith(Mono.fromSupplier(() ->
+                        NettyDataBufferFactory.toByteBuf(StreamMessageEncoder.encodeDone(bufferFactory))));
+        return response
+                .header(HttpHeaderNames.CONTENT_TYPE, "text/event-stream;charset=UTF-8")
+                .header(HttpHeaderNames.CACHE_CONTROL, "no-cache")
+                .send(frames, frame -> true)
+                .then();
+    }
+
+    /**
+     * 与 GlobalExceptionHandler 对 SSE 请求的处理一致：状态码由错误码映射，响应体为一条 error 事件
+     */
+    private Mono<Void> sendError(HttpServerResponse response, Throwable e) {
+        int code;
+        String message;
+        if (e instanceof BusinessException businessException) {
+            log.error("BusinessException", e);
+            code = businessException.getCode();
+            message = businessException.getMessage();
+        } else {
+            log.error("RuntimeException", e);
+            code = ErrorCode.SYSTEM_ERROR.getCode();
+            message = "系统错误";
+        }
+        return response
+                .status(ErrorCode.toHttpStatus(code))
+                .header(HttpHeaderNames.CONTENT_TYPE, "text/event-stream;charset=UTF-8")
+                .header(HttpHeaderNames.CACHE_CONTROL, "no-cache")
+                .sendString(Mono.just(StreamMessageEncoder.encodeError(message)), StandardCharsets.UTF_8)
+                .then();
+    }
+
+    /**
+     * 与 CorsConfig 一致：允许任意来源携带 Cookie
+     */
+    private void applyCors(HttpServerRequest request, HttpServerResponse response) {
+        String origin = request.requestHeaders().get(HttpHeaderNames.ORIGIN);
+        if (origin != null) {
+            response.header(HttpHeaderNames.ACCESS_CONTROL_ALLOW_ORIGIN, origin)
+                    .header(HttpHeaderNames.ACCESS_CONTROL_ALLOW_CREDENTIALS, "true")
+                    .header(HttpHeaderNames.VARY, HttpHeaderNames.ORIGIN);
+        }
+    }
+
+    /**
+     * 流式请求的参数、Last-Event-ID 和 session ID（在事件循环线程上解析，之后交给阻塞调度器）
+     */
+    private static class StreamRequest {
+
+        private final Map<String, List<String>> parameters;
+
+        private final String lastEventId;
+
+        private final String sessionId;
+
+        StreamRequest(HttpServerRequest request) {
+            this.parameters = new QueryStringDecoder(request.uri()).parameters();
+            this.lastEventId = request.requestHeaders().get("Last-Event-ID");
+            List<Cookie> cookies = request.allCookies().get(SESSION_COOKIE);
+            this.sessionId = cookies == null || cookies.isEmpty() ? null : decodeSessionId(cookies.get(0).value());
+        }
+
+        String get(String name) {
+            List<String> values = parameters.get(name);
+            return values == null || values.isEmpty() ? null : values.get(0);
+        }
+
+        Long getLong(String name) {
+            String value = get(name);
+            if (StrUtil.isBlank(value)) {
+                return null;
+            }
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                throw new BusinessException(ErrorCode.PARAMS_ERROR, "参数格式错误: " + name);
+            }
+        }
+
+        Integer getInt(String name) {
+            Long value = getLong(name);
+            return value == null ? null : (int) Math.min(Integer.MAX_VALUE, Math.max(Integer.MIN_VALUE, value));
+        }
+
+        /**
+         * Spring Session 默认将 session ID 以 Base64 写入 Cookie
+         */
+        private static String decodeSessionId(String cookieValue) {
+            try {
+                return Base64.decodeStr(cookieValue);
+            } catch (RuntimeException e) {
+                return cookieValue;
+            }
+        }
+    }
+}
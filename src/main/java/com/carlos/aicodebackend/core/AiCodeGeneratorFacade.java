@@ -1,19 +1,31 @@
 package com.carlos.aicodebackend.core;
 
 import java.io.File;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
 import org.springframework.stereotype.Service;
 import com.carlos.aicodebackend.ai.AiCodeGeneratorService;
 import com.carlos.aicodebackend.ai.AiCodeGeneratorServiceFactory;
-import com.carlos.aicodebackend.ai.model.HtmlCodeResult;
-import com.carlos.aicodebackend.ai.model.MultiFileCodeResult;
-import com.carlos.aicodebackend.core.parser.CodeParserExecutor;
-import com.carlos.aicodebackend.core.saver.CodeFileSaverExecutor;
+import com.carlos.aicodebackend.ai.UpstreamAbortHandle;
+import com.carlos.aicodebackend.ai.model.message.StreamMessage;
+import com.carlos.aicodebackend.config.CodeGenProperties;
+import com.carlos.aicodebackend.core.handler.CodeGenTypeHandler;
+import com.carlos.aicodebackend.core.handler.CodeGenTypeRegistry;
+import com.carlos.aicodebackend.core.parser.StreamingCodeParser;
+import com.carlos.aicodebackend.core.saver.CodeFileSaverTemplate;
+import com.carlos.aicodebackend.core.saver.SavedFiles;
+import com.carlos.aicodebackend.core.saver.StreamingCodeFileSaver;
+import com.carlos.aicodebackend.core.store.BlobStore;
 import com.carlos.aicodebackend.exception.BusinessException;
 import com.carlos.aicodebackend.exception.ErrorCode;
 import com.carlos.aicodebackend.model.enums.CodeGenTypeEnum;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 /**
  * AI 代码生成外观类，组合生成和保存功能
@@ -25,41 +37,85 @@ public class AiCodeGeneratorFacade {
   @Resource
   private AiCodeGeneratorServiceFactory aiCodeGeneratorServiceFactory;
 
+  @Resource
+  private CodeGenProperties codeGenProperties;
+
+  @Resource
+  private CodeGenCompletionExecutor completionExecutor;
+
+  @Resource
+  private CodeGenOutputCache outputCache;
+
+  @Resource
+  private MeterRegistry meterRegistry;
+
+  @Resource
+  private ParallelMultiFileCodeGenerator parallelMultiFileCodeGenerator;
+
+  @Resource
+  private CodeGenMetrics codeGenMetrics;
+
+  @Resource
+  private CodeGenTypeRegistry codeGenTypeRegistry;
+
+  @Resource
+  private BlobStore blobStore;
+
   /**
-   * 生成 HTML 模式的代码并保存
+   * 根据类型调用 AI 服务，获取代码流
+   * 调用期间绑定中止句柄，下游取消时立即断开与模型的连接
    *
-   * @param userMessage 用户提示词
-   * @param appId       应用ID
-   * @return 保存的目录
+   * @param userMessage     用户提示词
+   * @param codeGenTypeEnum 生成类型
+   * @param appId           应用 ID
+   * @return 代码流
    */
-  private File generateAndSaveHtmlCode(String userMessage, Long appId) {
+  private Flux<String> openCodeStream(String userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId) {
     // 根据 appId 获取对应的 AI 服务实例
     AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorServiceFactory.getAiCodeGeneratorService(appId);
-    Flux<String> result = aiCodeGeneratorService.generateHtmlCodeStream(userMessage);
-    String codeResult = result.collect(StringBuilder::new, StringBuilder::append)
-        .block()
-        .toString();
-    HtmlCodeResult htmlCodeResult = (HtmlCodeResult) CodeParserExecutor.executeParser(codeResult, CodeGenTypeEnum.HTML);
-    return CodeFileSaverExecutor.executeSaver(htmlCodeResult, CodeGenTypeEnum.HTML);
+    CodeGenTypeHandler<?> handler = codeGenTypeRegistry.getHandler(codeGenTypeEnum);
+    UpstreamAbortHandle abortHandle = new UpstreamAbortHandle();
+    Flux<String> codeStream = abortHandle.bind(() -> handler.openCodeStream(aiCodeGeneratorService, userMessage));
+    return codeStream.doOnCancel(abortHandle::abort);
   }
 
   /**
-   * 生成多文件模式的代码并保存
+   * 记录一次生成取消，计入 code.gen.cancelled 指标
+   *
+   * @param codeGenType 生成类型
+   * @param appId       应用 ID
+   * @param received    取消前已接收的字符数
+   */
+  private void recordCancel(CodeGenTypeEnum codeGenType, Long appId, int received) {
+    log.info("代码生成已取消，appId: {}, 已接收 {} 字符", appId, received);
+    meterRegistry.counter("code.gen.cancelled", "type", codeGenType.getValue()).increment();
+  }
+
+  /**
+   * 生成代码并保存（异步）
+   * AI 服务在虚拟线程上调用（会同步加载对话记忆），片段到达时增量解析，流结束后在收尾线程池中保存
    *
    * @param userMessage 用户提示词
-   * @param appId       应用ID
-   * @return 保存的目录
+   * @param codeGenType 生成类型
+   * @param appId       应用 ID
+   * @return 保存的目录（订阅时才开始生成）
    */
-  private File generateAndSaveMultiFileCode(String userMessage, Long appId) {
-    // 根据 appId 获取对应的 AI 服务实例
-    AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorServiceFactory.getAiCodeGeneratorService(appId);
-    Flux<String> result = aiCodeGeneratorService.generateMultiFileCodeStream(userMessage);
-    String codeResult = result.collect(StringBuilder::new, StringBuilder::append)
-        .block()
-        .toString();
-    MultiFileCodeResult multiFileCodeResult = (MultiFileCodeResult) CodeParserExecutor.executeParser(codeResult,
-        CodeGenTypeEnum.MULTI_FILE);
-    return CodeFileSaverExecutor.executeSaver(multiFileCodeResult, CodeGenTypeEnum.MULTI_FILE);
+  private Mono<File> doGenerateAndSaveCode(String userMessage, CodeGenTypeEnum codeGenType, Long appId) {
+    return Mono.defer(() -> {
+      StreamingCodeParser streamingParser = new StreamingCodeParser(newAccumulator(), null);
+      CodeGenMetrics.StreamObservation observation = codeGenMetrics.startStream(codeGenType);
+      Flux<String> codeStream = Mono.fromCallable(() -> openCodeStream(userMessage, codeGenType, appId))
+          .subscribeOn(completionExecutor.getVirtualThreadScheduler())
+          .flatMapMany(stream -> stream)
+          .doOnNext(streamingParser::append);
+      return observation.observe(codeStream, chunk -> chunk)
+          // 取消时不保存，未完成的输出直接丢弃
+          .doOnCancel(() -> recordCancel(codeGenType, appId, streamingParser.getSource().length()))
+          .then(completionExecutor.submit(() -> {
+            streamingParser.finish();
+            return parseAndSave(codeGenTypeRegistry.getHandler(codeGenType), streamingParser, null, null);
+          }));
+    });
   }
 
   /**
@@ -68,26 +124,150 @@ public class AiCodeGeneratorFacade {
    * @param codeStream  代码流
    * @param codeGenType 代码生成类型
    * @param appId       应用 ID
-   * @return 流式响应
+   * @param accumulator 本次生成共享的输出累加器
+   * @param onSaved     保存成功后的回调，可为 null
+   * @param observation 生成流观测，回放缓存时为 null（不计入生成指标）
+   * @return 流式响应，AI 响应片段之后是保存结果消息
    */
-  private Flux<String> processCodeStream(Flux<String> codeStream, CodeGenTypeEnum codeGenType, Long appId) {
-    StringBuilder codeBuilder = new StringBuilder();
-    return codeStream.doOnNext(chunk -> {
-      // 实时收集代码片段
-      codeBuilder.append(chunk);
-    }).doOnComplete(() -> {
-      // 流式返回完成后保存代码
-      try {
-        String completeCode = codeBuilder.toString();
-        // 使用执行器解析代码
-        Object parsedResult = CodeParserExecutor.executeParser(completeCode, codeGenType);
-        // 使用执行器保存代码
-        File savedDir = CodeFileSaverExecutor.executeSaver(parsedResult, codeGenType, appId);
-        log.info("保存成功，路径为：" + savedDir.getAbsolutePath());
-      } catch (Exception e) {
-        log.error("保存失败: {}", e.getMessage());
+  private Flux<StreamMessage> processCodeStream(Flux<String> codeStream, CodeGenTypeEnum codeGenType, Long appId,
+      ChunkAccumulator accumulator, Runnable onSaved, CodeGenMetrics.StreamObservation observation) {
+    // 流式保存模式下，代码块开始时即在暂存目录中打开文件，内容到达时边解析边写入，校验通过后才移入应用目录
+    StreamingCodeFileSaver streamingSaver = codeGenProperties.isStreamingSave()
+        ? codeGenTypeRegistry.getHandler(codeGenType).getSaver().openStreamingSaver(appId)
+        : null;
+    StreamingCodeParser streamingParser = new StreamingCodeParser(accumulator, streamingSaver);
+    Flux<StreamMessage> contentFlux = codeStream.map(chunk -> {
+      // 实时收集并增量解析代码片段
+      streamingParser.append(chunk);
+      return StreamMessage.aiResponse(chunk);
+    }).doOnError(error -> {
+      // 生成出错时清理未完成的临时文件
+      if (streamingSaver != null) {
+        streamingSaver.close();
+      }
+    }).doOnCancel(() -> {
+      recordCancel(codeGenType, appId, accumulator.length());
+      // 取消时不保存：丢弃暂存的文件，应用目录保持上一次生成的内容
+      if (streamingSaver != null) {
+        streamingSaver.close();
       }
     });
+    if (observation != null) {
+      contentFlux = observation.observe(contentFlux, StreamMessage::getData);
+    }
+    // 流式返回完成后，在收尾线程池中保存代码，并将结果作为最后一条消息返回
+    return contentFlux.concatWith(saveParsedCode(streamingParser, streamingSaver, codeGenType, appId, onSaved));
+  }
+
+  /**
+   * 多文件并行生成：规划后同时生成 HTML、CSS、JS，完成后按原有流程解析和保存
+   *
+   * @param userMessage 用户提示词
+   * @param appId       应用 ID
+   * @param accumulator 本次生成共享的输出累加器
+   * @param onSaved     保存成功后的回调，可为 null
+   * @return 流式响应，AI 响应片段之后是保存结果消息
+   */
+  private Flux<StreamMessage> processParallelMultiFileStream(String userMessage, Long appId,
+      ChunkAccumulator accumulator, Runnable onSaved) {
+    // 并行生成不经过按 appId 隔离的对话记忆，丢弃可能已创建的服务实例，下一轮从对话历史重新加载记忆
+    aiCodeGeneratorServiceFactory.invalidateAiCodeGeneratorService(appId);
+    // 三个文件交错到达，不做流式保存，各文件完整后统一保存
+    StreamingCodeParser streamingParser = new StreamingCodeParser(accumulator, null);
+    CodeGenMetrics.StreamObservation observation = codeGenMetrics.startStream(CodeGenTypeEnum.MULTI_FILE);
+    Flux<StreamMessage> contentFlux = observation.observe(
+            parallelMultiFileCodeGenerator.generate(userMessage, streamingParser), StreamMessage::getData)
+        .doOnCancel(() -> recordCancel(CodeGenTypeEnum.MULTI_FILE, appId, accumulator.length()));
+    return contentFlux.concatWith(saveParsedCode(streamingParser, null, CodeGenTypeEnum.MULTI_FILE, appId, onSaved));
+  }
+
+  /**
+   * 在收尾线程池中组装解析结果并保存代码
+   *
+   * @param streamingParser 流式解析器
+   * @param streamingSaver  流式保存器，为 null 时整体保存
+   * @param codeGenType     代码生成类型
+   * @param appId           应用 ID
+   * @param onSaved         保存成功后的回调，可为 null
+   * @return 保存结果消息，失败时为错误消息
+   */
+  private Mono<StreamMessage> saveParsedCode(StreamingCodeParser streamingParser,
+      StreamingCodeFileSaver streamingSaver, CodeGenTypeEnum codeGenType, Long appId, Runnable onSaved) {
+    return completionExecutor.submit(() -> {
+      streamingParser.finish();
+      File savedDir = parseAndSave(codeGenTypeRegistry.getHandler(codeGenType), streamingParser, streamingSaver,
+          appId);
+      log.info("保存成功，路径为：" + savedDir.getAbsolutePath());
+      if (onSaved != null) {
+        onSaved.run();
+      }
+      return StreamMessage.saved(savedDir.getName());
+    }).onErrorResume(e -> {
+      log.error("保存失败: {}", e.getMessage());
+      if (streamingSaver != null) {
+        streamingSaver.close();
+      }
+      return Mono.just(StreamMessage.error("保存失败: " + e.getMessage()));
+    });
+  }
+
+  /**
+   * 使用生成类型对应的解析器组装结果（代码块已在流式过程中解析完成），再用保存器保存，
+   * 保存后按写入时计算的摘要提交到内容存储（文件替换为对象的硬链接并写入清单）
+   *
+   * @param handler         生成类型处理器
+   * @param streamingParser 已结束的流式解析器
+   * @param streamingSaver  流式保存器，不为 null 时只做收尾
+   * @param appId           应用 ID，与流式保存器均为 null 时保存到唯一目录
+   * @return 保存的目录
+   */
+  private <T> File parseAndSave(CodeGenTypeHandler<T> handler, StreamingCodeParser streamingParser,
+      StreamingCodeFileSaver streamingSaver, Long appId) {
+    CodeGenTypeEnum codeGenType = handler.getCodeGenType();
+    T parsedResult = codeGenMetrics.timeParse(codeGenType, () -> handler.getParser().parseCode(streamingParser));
+    CodeFileSaverTemplate<T> saver = handler.getSaver();
+    return codeGenMetrics.timeSave(codeGenType, () -> {
+      SavedFiles savedFiles;
+      if (streamingSaver != null) {
+        savedFiles = saver.finishStreamingSave(parsedResult, streamingSaver);
+      } else {
+        savedFiles = appId != null ? saver.saveCode(parsedResult, appId) : saver.saveCode(parsedResult);
+      }
+      blobStore.commit(savedFiles.dir().toPath(), savedFiles.digests());
+      return savedFiles.dir();
+    });
+  }
+
+  /**
+   * 根据类型和配置选择顺序生成或多文件并行生成
+   *
+   * @param userMessage     用户提示词
+   * @param codeGenTypeEnum 生成类型
+   * @param appId           应用 ID
+   * @param accumulator     本次生成共享的输出累加器
+   * @param firstTurn       是否为首轮生成
+   * @param onSaved         保存成功后的回调，可为 null
+   * @return 流式响应
+   */
+  private Flux<StreamMessage> generateCodeStream(String userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId,
+      ChunkAccumulator accumulator, boolean firstTurn, Runnable onSaved) {
+    // 并行生成的各次调用不带对话记忆，只用于首轮生成
+    if (firstTurn && codeGenTypeEnum == CodeGenTypeEnum.MULTI_FILE
+        && codeGenProperties.getParallelMultiFile().isEnabled()) {
+      return processParallelMultiFileStream(userMessage, appId, accumulator, onSaved);
+    }
+    CodeGenMetrics.StreamObservation observation = codeGenMetrics.startStream(codeGenTypeEnum);
+    Flux<String> codeStream = openCodeStream(userMessage, codeGenTypeEnum, appId);
+    return processCodeStream(codeStream, codeGenTypeEnum, appId, accumulator, onSaved, observation);
+  }
+
+  /**
+   * 创建带字节预算的输出累加器
+   *
+   * @return 输出累加器
+   */
+  public ChunkAccumulator newAccumulator() {
+    return new ChunkAccumulator(codeGenProperties.getMaxResponseBytes());
   }
 
   /**
@@ -108,13 +288,15 @@ public class AiCodeGeneratorFacade {
    * @param userMessage     用户提示词
    * @param codeGenTypeEnum 生成类型
    */
-  public Flux<String> generateAndSaveCodeStream(String userMessage, CodeGenTypeEnum codeGenTypeEnum) {
+  public Flux<StreamMessage> generateAndSaveCodeStream(String userMessage, CodeGenTypeEnum codeGenTypeEnum) {
     // 使用默认的 appId (0) 保持向后兼容
     return generateAndSaveCodeStream(userMessage, codeGenTypeEnum, 0L);
   }
 
   /**
    * 统一入口：根据类型生成并保存代码（使用 appId）
+   * 阻塞直到保存完成或超过默认截止时间；生成过程中的阻塞步骤运行在虚拟线程上，
+   * 批量调用方可在虚拟线程中并发调用本方法，而不占用 Tomcat 线程
    *
    * @param userMessage     用户提示词
    * @param codeGenTypeEnum 生成类型
@@ -122,17 +304,54 @@ public class AiCodeGeneratorFacade {
    * @return 保存的目录
    */
   public File generateAndSaveCode(String userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId) {
+    return generateAndSaveCodeAsync(userMessage, codeGenTypeEnum, appId).block();
+  }
+
+  /**
+   * 统一入口：根据类型生成并保存代码（异步，使用默认截止时间）
+   *
+   * @param userMessage     用户提示词
+   * @param codeGenTypeEnum 生成类型
+   * @param appId           应用 ID
+   * @return 保存的目录，订阅时开始生成，取消订阅即取消生成
+   */
+  public Mono<File> generateAndSaveCodeAsync(String userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId) {
+    return generateAndSaveCodeAsync(userMessage, codeGenTypeEnum, appId, codeGenProperties.getGenerateTimeout());
+  }
+
+  /**
+   * 统一入口：根据类型生成并保存代码（异步）
+   *
+   * @param userMessage     用户提示词
+   * @param codeGenTypeEnum 生成类型
+   * @param appId           应用 ID
+   * @param timeout         截止时间，超时后取消生成并返回业务异常
+   * @return 保存的目录，订阅时开始生成，取消订阅即取消生成
+   */
+  public Mono<File> generateAndSaveCodeAsync(String userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId,
+      Duration timeout) {
     if (codeGenTypeEnum == null) {
       throw new BusinessException(ErrorCode.SYSTEM_ERROR, "生成类型为空");
     }
-    return switch (codeGenTypeEnum) {
-      case HTML -> generateAndSaveHtmlCode(userMessage, appId);
-      case MULTI_FILE -> generateAndSaveMultiFileCode(userMessage, appId);
-      default -> {
-        String errorMessage = "不支持的生成类型：" + codeGenTypeEnum.getValue();
-        throw new BusinessException(ErrorCode.SYSTEM_ERROR, errorMessage);
-      }
-    };
+    return doGenerateAndSaveCode(userMessage, codeGenTypeEnum, appId)
+        .timeout(timeout)
+        .onErrorMap(TimeoutException.class, e -> {
+          log.warn("代码生成超时，appId: {}, 截止时间: {}", appId, timeout);
+          return new BusinessException(ErrorCode.OPERATION_ERROR, "代码生成超时（" + timeout.toSeconds() + " 秒）");
+        });
+  }
+
+  /**
+   * 统一入口：根据类型生成并保存代码（异步，CompletableFuture 形式）
+   *
+   * @param userMessage     用户提示词
+   * @param codeGenTypeEnum 生成类型
+   * @param appId           应用 ID
+   * @return 保存的目录，调用 cancel 即取消生成
+   */
+  public CompletableFuture<File> generateAndSaveCodeFuture(String userMessage, CodeGenTypeEnum codeGenTypeEnum,
+      Long appId) {
+    return generateAndSaveCodeAsync(userMessage, codeGenTypeEnum, appId).toFuture();
   }
 
   /**
@@ -142,25 +361,51 @@ public class AiCodeGeneratorFacade {
    * @param codeGenTypeEnum 生成类型
    * @param appId           应用 ID
    */
-  public Flux<String> generateAndSaveCodeStream(String userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId) {
+  public Flux<StreamMessage> generateAndSaveCodeStream(String userMessage, CodeGenTypeEnum codeGenTypeEnum,
+      Long appId) {
+    return generateAndSaveCodeStream(userMessage, codeGenTypeEnum, appId, newAccumulator());
+  }
+
+  /**
+   * 统一入口：根据类型生成并保存代码（流式，使用 appId 和调用方提供的输出累加器）
+   *
+   * @param userMessage     用户提示词
+   * @param codeGenTypeEnum 生成类型
+   * @param appId           应用 ID
+   * @param accumulator     输出累加器，流完成后即为完整的 AI 响应
+   */
+  public Flux<StreamMessage> generateAndSaveCodeStream(String userMessage, CodeGenTypeEnum codeGenTypeEnum,
+      Long appId, ChunkAccumulator accumulator) {
+    return generateAndSaveCodeStream(userMessage, codeGenTypeEnum, appId, accumulator, false);
+  }
+
+  /**
+   * 统一入口：根据类型生成并保存代码（流式，首轮生成可使用输出缓存）
+   *
+   * @param userMessage     用户提示词
+   * @param codeGenTypeEnum 生成类型
+   * @param appId           应用 ID
+   * @param accumulator     输出累加器，流完成后即为完整的 AI 响应
+   * @param firstTurn       是否为首轮生成（没有对话记忆，输出只取决于提示词）
+   */
+  public Flux<StreamMessage> generateAndSaveCodeStream(String userMessage, CodeGenTypeEnum codeGenTypeEnum,
+      Long appId, ChunkAccumulator accumulator, boolean firstTurn) {
     if (codeGenTypeEnum == null) {
       throw new BusinessException(ErrorCode.SYSTEM_ERROR, "生成类型为空");
     }
-    // 根据 appId 获取对应的 AI 服务实例
-    AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorServiceFactory.getAiCodeGeneratorService(appId);
-    return switch (codeGenTypeEnum) {
-      case HTML -> {
-        Flux<String> codeStream = aiCodeGeneratorService.generateHtmlCodeStream(userMessage);
-        yield processCodeStream(codeStream, CodeGenTypeEnum.HTML, appId);
-      }
-      case MULTI_FILE -> {
-        Flux<String> codeStream = aiCodeGeneratorService.generateMultiFileCodeStream(userMessage);
-        yield processCodeStream(codeStream, CodeGenTypeEnum.MULTI_FILE, appId);
-      }
-      default -> {
-        String errorMessage = "不支持的生成类型：" + codeGenTypeEnum.getValue();
-        throw new BusinessException(ErrorCode.SYSTEM_ERROR, errorMessage);
-      }
-    };
+    if (!firstTurn || !outputCache.isEnabled()) {
+      return generateCodeStream(userMessage, codeGenTypeEnum, appId, accumulator, firstTurn, null);
+    }
+    String cachedOutput = outputCache.get(codeGenTypeEnum, userMessage);
+    if (cachedOutput != null) {
+      log.info("命中生成缓存，appId: {}, 类型: {}", appId, codeGenTypeEnum.getValue());
+      // 本轮没有经过模型，丢弃可能已创建的服务实例，下一轮从对话历史重新加载记忆
+      aiCodeGeneratorServiceFactory.invalidateAiCodeGeneratorService(appId);
+      return processCodeStream(outputCache.replay(cachedOutput), codeGenTypeEnum, appId, accumulator, null,
+          null);
+    }
+    // 保存成功（输出可被正常解析）后才写入缓存
+    return generateCodeStream(userMessage, codeGenTypeEnum, appId, accumulator, true,
+        () -> outputCache.put(codeGenTypeEnum, userMessage, accumulator.toString()));
   }
 }
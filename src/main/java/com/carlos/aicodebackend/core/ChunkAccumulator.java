@@ -0,0 +1,211 @@
+package com.carlos.aicodebackend.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.carlos.aicodebackend.exception.BusinessException;
+import com.carlos.aicodebackend.exception.ErrorCode;
+
+/**
+ * 单次生成共享的输出累加器
+ * 直接持有模型返回的片段引用（不做拷贝），解析器、保存器和对话历史都从这里读取同一份内容，
+ * 并按 UTF-8 字节数限制单次生成的输出大小。
+ * 只有一个写入线程（模型线程）追加和读取；其他线程（如取消回调）只能通过 {@link #snapshot()} 读取，
+ * 追加、合并与快照之间互斥
+ */
+public class ChunkAccumulator implements CharSequence {
+
+  private final List<String> chunks = new ArrayList<>();
+
+  // offsets[i] 为第 i 个片段在整体内容中的起始位置
+  private int[] offsets = new int[64];
+
+  private int length;
+
+  private long byteCount;
+
+  // 字节预算，小于等于 0 表示不限制
+  private final long maxBytes;
+
+  // 最近一次定位到的片段下标，顺序扫描时可直接命中
+  private int lastChunkIndex;
+
+  public ChunkAccumulator() {
+    this(0);
+  }
+
+  public ChunkAccumulator(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * 追加片段
+   *
+   * @param chunk 模型输出片段
+   */
+  public synchronized void append(CharSequence chunk) {
+    if (chunk == null || chunk.isEmpty()) {
+      return;
+    }
+    String value = chunk.toString();
+    long bytes = StreamMessageEncoder.utf8Length(value);
+    if (maxBytes > 0 && byteCount + bytes > maxBytes) {
+      throw new BusinessException(ErrorCode.OPERATION_ERROR, "AI 输出超出长度限制（" + maxBytes + " 字节）");
+    }
+    if (chunks.size() == offsets.length) {
+      offsets = Arrays.copyOf(offsets, offsets.length * 2);
+    }
+    offsets[chunks.size()] = length;
+    chunks.add(value);
+    length += value.length();
+    byteCount += bytes;
+  }
+
+  /**
+   * 已累计的 UTF-8 字节数
+   */
+  public long getByteCount() {
+    return byteCount;
+  }
+
+  /**
+   * 已累计的片段数
+   */
+  public int getChunkCount() {
+    return chunks.size();
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public char charAt(int index) {
+    int chunkIndex = locate(index);
+    return chunks.get(chunkIndex).charAt(index - offsets[chunkIndex]);
+  }
+
+  /**
+   * 从指定位置开始查找字符串
+   *
+   * @param target    目标字符串
+   * @param fromIndex 起始位置
+   * @return 首次出现的位置，不存在时返回 -1
+   */
+  public int indexOf(String target, int fromIndex) {
+    int targetLength = target.length();
+    if (targetLength == 0) {
+      return Math.min(Math.max(fromIndex, 0), length);
+    }
+    char first = target.charAt(0);
+    int lastStart = length - targetLength;
+    for (int i = Math.max(fromIndex, 0); i <= lastStart; i++) {
+      if (charAt(i) != first) {
+        continue;
+      }
+      int matched = 1;
+      while (matched < targetLength && charAt(i + matched) == target.charAt(matched)) {
+        matched++;
+      }
+      if (matched == targetLength) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * 截取内容（只拷贝所需区间）
+   */
+  public String substring(int start, int end) {
+    if (start < 0 || end > length || start > end) {
+      throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+    }
+    if (start == end) {
+      return "";
+    }
+    int chunkIndex = locate(start);
+    String chunk = chunks.get(chunkIndex);
+    int chunkStart = offsets[chunkIndex];
+    if (end - chunkStart <= chunk.length()) {
+      return chunk.substring(start - chunkStart, end - chunkStart);
+    }
+    StringBuilder builder = new StringBuilder(end - start);
+    int position = start;
+    while (position < end) {
+      chunk = chunks.get(chunkIndex);
+      chunkStart = offsets[chunkIndex];
+      int from = position - chunkStart;
+      int to = Math.min(chunk.length(), end - chunkStart);
+      builder.append(chunk, from, to);
+      position = chunkStart + to;
+      chunkIndex++;
+    }
+    return builder.toString();
+  }
+
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    return substring(start, end);
+  }
+
+  /**
+   * 获取当前已累计内容的副本，不合并片段，可在写入线程之外调用
+   *
+   * @return 当前内容
+   */
+  public synchronized String snapshot() {
+    return length == 0 ? "" : substring(0, length);
+  }
+
+  /**
+   * 生成完整内容，并将片段合并为一个，避免同时持有两份数据（仅在写入线程或生成结束后调用）
+   */
+  @Override
+  public synchronized String toString() {
+    if (chunks.isEmpty()) {
+      return "";
+    }
+    if (chunks.size() == 1) {
+      return chunks.get(0);
+    }
+    String content = substring(0, length);
+    chunks.clear();
+    chunks.add(content);
+    offsets[0] = 0;
+    lastChunkIndex = 0;
+    return content;
+  }
+
+  /**
+   * 定位字符所在片段的下标
+   */
+  private int locate(int index) {
+    if (index < 0 || index >= length) {
+      throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+    }
+    int last = lastChunkIndex;
+    if (index >= offsets[last] && index < offsets[last] + chunks.get(last).length()) {
+      return last;
+    }
+    if (last + 1 < chunks.size() && index >= offsets[last + 1]
+        && index < offsets[last + 1] + chunks.get(last + 1).length()) {
+      lastChunkIndex = last + 1;
+      return lastChunkIndex;
+    }
+    int low = 0;
+    int high = chunks.size() - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (offsets[mid] <= index) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    lastChunkIndex = low;
+    return low;
+  }
+}
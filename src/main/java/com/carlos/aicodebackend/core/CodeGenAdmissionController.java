@@ -0,0 +1,278 @@
+package com.carlos.aicodebackend.core;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import com.carlos.aicodebackend.ai.model.message.StreamMessage;
+import com.carlos.aicodebackend.config.CodeGenProperties;
+import com.carlos.aicodebackend.exception.BusinessException;
+import com.carlos.aicodebackend.exception.ErrorCode;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+/**
+ * 代码生成准入控制
+ * 限制本节点的全局并发和单用户并发，超出后排队：优先通道（精选应用、管理员）先于普通通道，
+ * 同一通道内按用户轮转出队，避免单个用户占满上游连接。排队期间向客户端推送当前位置，
+ * 排队等待时间以 code.gen.admission.wait 为名注册到 Micrometer
+ */
+@Slf4j
+@Component
+public class CodeGenAdmissionController {
+
+  private static final Duration EMIT_TIMEOUT = Duration.ofMillis(100);
+
+  private final CodeGenProperties.Admission properties;
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final Lane priorityLane = new Lane();
+
+  private final Lane normalLane = new Lane();
+
+  private final Map<Long, Integer> runningPerUser = new HashMap<>();
+
+  private int running;
+
+  private final Timer priorityWaitTimer;
+
+  private final Timer normalWaitTimer;
+
+  public CodeGenAdmissionController(CodeGenProperties codeGenProperties, MeterRegistry meterRegistry) {
+    this.properties = codeGenProperties.getAdmission();
+    this.priorityWaitTimer = Timer.builder("code.gen.admission.wait").tag("lane", "priority")
+        .register(meterRegistry);
+    this.normalWaitTimer = Timer.builder("code.gen.admission.wait").tag("lane", "normal")
+        .register(meterRegistry);
+    Gauge.builder("code.gen.admission.running", this, CodeGenAdmissionController::getRunningCount)
+        .register(meterRegistry);
+    Gauge.builder("code.gen.admission.queued", this, CodeGenAdmissionController::getQueuedCount)
+        .register(meterRegistry);
+  }
+
+  /**
+   * 申请执行生成，获得许可前推送排队消息，生成结束（完成、出错或取消）后释放许可
+   *
+   * @param userId     用户 ID
+   * @param priority   是否走优先通道
+   * @param generation 生成流的工厂，获得许可后才调用
+   * @return 排队消息 + 生成流（订阅时申请许可）
+   */
+  public Flux<StreamMessage> admit(Long userId, boolean priority, Supplier<Flux<StreamMessage>> generation) {
+    if (!properties.isEnabled()) {
+      return Flux.defer(generation);
+    }
+    return Flux.defer(() -> {
+      Ticket ticket = new Ticket(userId, priority);
+      List<Runnable> notifications;
+      lock.lock();
+      try {
+        if (getQueuedCountLocked() >= properties.getMaxQueueSize()) {
+          log.warn("生成排队已满，拒绝请求，userId: {}", userId);
+          return Flux.error(new BusinessException(ErrorCode.SYSTEM_ERROR, "当前生成人数过多，请稍后重试"));
+        }
+        (priority ? priorityLane : normalLane).add(ticket);
+        notifications = dispatchLocked();
+      } finally {
+        lock.unlock();
+      }
+      notifications.forEach(Runnable::run);
+      return ticket.sink.asFlux()
+          .concatWith(Flux.defer(generation))
+          .doFinally(signal -> release(ticket));
+    });
+  }
+
+  /**
+   * 正在进行的生成数
+   */
+  public int getRunningCount() {
+    lock.lock();
+    try {
+      return running;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * 正在排队的请求数
+   */
+  public int getQueuedCount() {
+    lock.lock();
+    try {
+      return getQueuedCountLocked();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private int getQueuedCountLocked() {
+    return priorityLane.size + normalLane.size;
+  }
+
+  /**
+   * 生成结束或排队中取消时释放许可，并让后续请求出队
+   */
+  private void release(Ticket ticket) {
+    List<Runnable> notifications;
+    lock.lock();
+    try {
+      if (ticket.granted) {
+        running--;
+        runningPerUser.computeIfPresent(ticket.userId, (key, count) -> count > 1 ? count - 1 : null);
+      } else {
+        (ticket.priority ? priorityLane : normalLane).remove(ticket);
+      }
+      notifications = dispatchLocked();
+    } finally {
+      lock.unlock();
+    }
+    notifications.forEach(Runnable::run);
+  }
+
+  /**
+   * 在容量允许的范围内出队，并计算仍在排队的请求的新位置
+   * 推送动作在锁外执行，避免在锁内写响应
+   */
+  private List<Runnable> dispatchLocked() {
+    List<Runnable> notifications = new ArrayList<>();
+    while (running < properties.getMaxConcurrent()) {
+      Ticket next = priorityLane.poll();
+      if (next == null) {
+        next = normalLane.poll();
+      }
+      if (next == null) {
+        break;
+      }
+      next.granted = true;
+      running++;
+      runningPerUser.merge(next.userId, 1, Integer::sum);
+      long waitNanos = System.nanoTime() - next.enqueueTime;
+      (next.priority ? priorityWaitTimer : normalWaitTimer).record(waitNanos, TimeUnit.NANOSECONDS);
+      Ticket granted = next;
+      notifications.add(() -> granted.sink.emitComplete(Sinks.EmitFailureHandler.busyLooping(EMIT_TIMEOUT)));
+    }
+    // 优先通道的请求全部排在普通通道之前
+    collectPositions(priorityLane, 0, notifications);
+    collectPositions(normalLane, priorityLane.size, notifications);
+    return notifications;
+  }
+
+  private void collectPositions(Lane lane, int offset, List<Runnable> notifications) {
+    for (Map.Entry<Ticket, Integer> entry : lane.positions().entrySet()) {
+      Ticket ticket = entry.getKey();
+      int position = offset + entry.getValue();
+      if (ticket.position != position) {
+        ticket.position = position;
+        notifications.add(() -> ticket.sink.emitNext(StreamMessage.queued(position),
+            Sinks.EmitFailureHandler.busyLooping(EMIT_TIMEOUT)));
+      }
+    }
+  }
+
+  /**
+   * 一条排队通道：每个用户一个队列，按用户轮转出队；达到单用户并发上限的用户暂时跳过
+   */
+  private class Lane {
+
+    // 用户轮转顺序即插入顺序，出队后用户移到末尾
+    private final LinkedHashMap<Long, ArrayDeque<Ticket>> queues = new LinkedHashMap<>();
+
+    private int size;
+
+    void add(Ticket ticket) {
+      queues.computeIfAbsent(ticket.userId, key -> new ArrayDeque<>()).add(ticket);
+      size++;
+    }
+
+    void remove(Ticket ticket) {
+      ArrayDeque<Ticket> queue = queues.get(ticket.userId);
+      if (queue != null && queue.remove(ticket)) {
+        size--;
+        if (queue.isEmpty()) {
+          queues.remove(ticket.userId);
+        }
+      }
+    }
+
+    Ticket poll() {
+      Iterator<Map.Entry<Long, ArrayDeque<Ticket>>> iterator = queues.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<Long, ArrayDeque<Ticket>> entry = iterator.next();
+        if (runningPerUser.getOrDefault(entry.getKey(), 0) >= properties.getMaxPerUser()) {
+          continue;
+        }
+        ArrayDeque<Ticket> queue = entry.getValue();
+        Ticket ticket = queue.poll();
+        size--;
+        iterator.remove();
+        if (!queue.isEmpty()) {
+          queues.put(entry.getKey(), queue);
+        }
+        return ticket;
+      }
+      return null;
+    }
+
+    /**
+     * 按轮转顺序计算每个请求的位置（从 1 开始）：
+     * 第 k 轮依次取各用户队列的第 k 个请求
+     */
+    Map<Ticket, Integer> positions() {
+      Map<Ticket, Integer> positions = new HashMap<>();
+      List<Iterator<Ticket>> iterators = new ArrayList<>(queues.size());
+      for (ArrayDeque<Ticket> queue : queues.values()) {
+        iterators.add(queue.iterator());
+      }
+      int position = 0;
+      while (position < size) {
+        for (Iterator<Ticket> iterator : iterators) {
+          if (iterator.hasNext()) {
+            positions.put(iterator.next(), ++position);
+          }
+        }
+      }
+      return positions;
+    }
+  }
+
+  /**
+   * 排队凭证
+   */
+  private static class Ticket {
+
+    private final Long userId;
+
+    private final boolean priority;
+
+    private final long enqueueTime = System.nanoTime();
+
+    private final Sinks.Many<StreamMessage> sink = Sinks.many().unicast().onBackpressureBuffer();
+
+    private boolean granted;
+
+    private int position;
+
+    Ticket(Long userId, boolean priority) {
+      this.userId = userId;
+      this.priority = priority;
+    }
+  }
+}
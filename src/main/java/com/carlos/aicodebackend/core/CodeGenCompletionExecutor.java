@@ -0,0 +1,113 @@
+package com.carlos.aicodebackend.core;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.carlos.aicodebackend.config.CodeGenProperties;
+import com.carlos.aicodebackend.exception.BusinessException;
+import com.carlos.aicodebackend.exception.ErrorCode;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 代码生成收尾执行器
+ * 流结束后的解析、文件保存和对话历史写入都在这个有界线程池中执行，不占用推送流的线程。
+ * 队列满时直接拒绝（背压），线程池指标以 code-gen-completion 为名注册到 Micrometer。
+ * 另提供一个虚拟线程调度器，用于 AI 服务调用等会阻塞但不应占用平台线程的步骤
+ */
+@Slf4j
+@Component
+public class CodeGenCompletionExecutor implements DisposableBean {
+
+  private static final String EXECUTOR_NAME = "code-gen-completion";
+
+  private final ThreadPoolExecutor executor;
+
+  private final Scheduler scheduler;
+
+  private final Scheduler virtualThreadScheduler = Schedulers.fromExecutorService(
+      Executors.newVirtualThreadPerTaskExecutor(), "code-gen-virtual");
+
+  public CodeGenCompletionExecutor(CodeGenProperties codeGenProperties, MeterRegistry meterRegistry) {
+    this(codeGenProperties, meterRegistry, false);
+  }
+
+  /**
+   * @param virtualThreads 是否使用虚拟线程（spring.threads.virtual.enabled），
+   *                       虚拟线程模式下保留线程数和队列上限，阻塞的保存和数据库写入不占用平台线程
+   */
+  @Autowired
+  public CodeGenCompletionExecutor(CodeGenProperties codeGenProperties, MeterRegistry meterRegistry,
+      @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+    CodeGenProperties.Completion completion = codeGenProperties.getCompletion();
+    ThreadFactory threadFactory = virtualThreads
+        ? Thread.ofVirtual().name(EXECUTOR_NAME + "-", 0).factory()
+        : ThreadFactoryBuilder.create().setNamePrefix(EXECUTOR_NAME + "-").build();
+    this.executor = new ThreadPoolExecutor(completion.getThreads(), completion.getThreads(),
+        60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(completion.getQueueCapacity()),
+        threadFactory,
+        new ThreadPoolExecutor.AbortPolicy());
+    ExecutorServiceMetrics.monitor(meterRegistry, executor, EXECUTOR_NAME);
+    this.scheduler = Schedulers.fromExecutorService(executor, EXECUTOR_NAME);
+  }
+
+  /**
+   * 在收尾线程池中执行任务
+   *
+   * @param task 任务
+   * @return 任务结果（订阅时提交）
+   */
+  public <T> Mono<T> submit(Callable<T> task) {
+    return Mono.fromCallable(task)
+        .subscribeOn(scheduler)
+        .onErrorMap(RejectedExecutionException.class::isInstance, e -> {
+          log.warn("收尾任务队列已满，拒绝任务，当前排队: {}", executor.getQueue().size());
+          return new BusinessException(ErrorCode.SYSTEM_ERROR, "系统繁忙，请稍后重试");
+        });
+  }
+
+  /**
+   * 在收尾线程池中执行无返回值的任务
+   *
+   * @param task 任务
+   * @return 任务完成信号（订阅时提交）
+   */
+  public Mono<Void> run(Runnable task) {
+    return submit(() -> {
+      task.run();
+      return null;
+    }).then();
+  }
+
+  /**
+   * 虚拟线程调度器：每个任务一个虚拟线程，阻塞时不占用平台线程，适合批量并发调用
+   *
+   * @return 调度器
+   */
+  public Scheduler getVirtualThreadScheduler() {
+    return virtualThreadScheduler;
+  }
+
+  @Override
+  public void destroy() {
+    scheduler.dispose();
+    virtualThreadScheduler.dispose();
+  }
+}
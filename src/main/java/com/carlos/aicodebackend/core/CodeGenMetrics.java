@@ -0,0 +1,215 @@
+package com.carlos.aicodebackend.core;
+
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import com.carlos.aicodebackend.model.enums.CodeGenTypeEnum;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+
+/**
+ * 代码生成链路指标
+ * 生成流的首 token 延迟、总时长、片段数和输出字节数，以及解析、保存和写入对话历史的耗时，
+ * 均按生成类型（type）和结果（outcome：success / error / cancelled）打标签，并发布直方图，
+ * 可在 Prometheus 中计算分位数。
+ * 片段间隔（code.gen.inter.token）在片段到达时即写入，只按生成类型打标签，停顿中的流也能及时反映出来
+ */
+@Component
+public class CodeGenMetrics {
+
+  public static final String SUCCESS = "success";
+
+  public static final String ERROR = "error";
+
+  public static final String CANCELLED = "cancelled";
+
+  private static final Duration MIN_EXPECTED = Duration.ofNanos(100_000);
+
+  private static final Duration MAX_EXPECTED = Duration.ofMinutes(10);
+
+  private final MeterRegistry meterRegistry;
+
+  public CodeGenMetrics(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * 开始观测一次生成流，应在发起模型调用之前调用
+   *
+   * @param codeGenType 生成类型
+   * @return 生成流观测
+   */
+  public StreamObservation startStream(CodeGenTypeEnum codeGenType) {
+    return new StreamObservation(codeGenType.getValue());
+  }
+
+  /**
+   * 记录一次代码解析
+   */
+  public <T> T timeParse(CodeGenTypeEnum codeGenType, Supplier<T> parse) {
+    return time("code.gen.parse", codeGenType, parse);
+  }
+
+  /**
+   * 记录一次代码保存
+   */
+  public <T> T timeSave(CodeGenTypeEnum codeGenType, Supplier<T> save) {
+    return time("code.gen.save", codeGenType, save);
+  }
+
+  /**
+   * 记录一次对话历史写入
+   */
+  public void timePersist(CodeGenTypeEnum codeGenType, Runnable persist) {
+    time("code.gen.history.persist", codeGenType, () -> {
+      persist.run();
+      return null;
+    });
+  }
+
+  private <T> T time(String name, CodeGenTypeEnum codeGenType, Supplier<T> call) {
+    long start = System.nanoTime();
+    String outcome = ERROR;
+    try {
+      T result = call.get();
+      outcome = SUCCESS;
+      return result;
+    } finally {
+      timer(name, codeGenType.getValue(), outcome).record(Duration.ofNanos(System.nanoTime() - start));
+    }
+  }
+
+  private Timer timer(String name, String type, String outcome) {
+    return timer(name, type).tags("outcome", outcome).register(meterRegistry);
+  }
+
+  private Timer.Builder timer(String name, String type) {
+    return Timer.builder(name)
+        .tags("type", type)
+        .publishPercentileHistogram()
+        .minimumExpectedValue(MIN_EXPECTED)
+        .maximumExpectedValue(MAX_EXPECTED);
+  }
+
+  private DistributionSummary summary(String name, String baseUnit, String type, String outcome) {
+    return DistributionSummary.builder(name)
+        .baseUnit(baseUnit)
+        .tags("type", type, "outcome", outcome)
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+  }
+
+  /**
+   * 一次生成流的观测：片段到达时写入片段间隔，并记录时间戳和计数，结束时按结果写入其余指标
+   * （取消可能与片段到达并发，用锁保护）
+   */
+  public class StreamObservation {
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final String type;
+
+    private final long startNanos;
+
+    private final Timer gapTimer;
+
+    private long firstChunkNanos = -1;
+
+    private long lastChunkNanos;
+
+    private int chunkCount;
+
+    private long byteCount;
+
+    private boolean finished;
+
+    StreamObservation(String type) {
+      this.type = type;
+      this.startNanos = System.nanoTime();
+      this.gapTimer = timer("code.gen.inter.token", type).register(meterRegistry);
+    }
+
+    /**
+     * 观测一条流：元素到达时记录片段，完成、出错和取消时以对应结果结束观测
+     *
+     * @param source         流
+     * @param chunkExtractor 从元素中取出模型输出片段，不是片段时返回 null
+     * @return 带观测的流
+     */
+    public <T> Flux<T> observe(Flux<T> source, Function<T, String> chunkExtractor) {
+      return source
+          .doOnNext(element -> onChunk(chunkExtractor.apply(element)))
+          .doOnComplete(() -> finish(SUCCESS))
+          .doOnError(error -> finish(ERROR))
+          .doOnCancel(() -> finish(CANCELLED));
+    }
+
+    /**
+     * 记录一个输出片段
+     *
+     * @param chunk 片段内容
+     */
+    public void onChunk(String chunk) {
+      if (chunk == null || chunk.isEmpty()) {
+        return;
+      }
+      long now = System.nanoTime();
+      long gap = -1;
+      lock.lock();
+      try {
+        if (finished) {
+          return;
+        }
+        if (firstChunkNanos < 0) {
+          firstChunkNanos = now;
+        } else {
+          gap = now - lastChunkNanos;
+        }
+        lastChunkNanos = now;
+        chunkCount++;
+        byteCount += StreamMessageEncoder.utf8Length(chunk);
+      } finally {
+        lock.unlock();
+      }
+      if (gap >= 0) {
+        gapTimer.record(Duration.ofNanos(gap));
+      }
+    }
+
+    /**
+     * 结束观测并写入指标，重复调用时忽略
+     *
+     * @param outcome 结果
+     */
+    public void finish(String outcome) {
+      long now = System.nanoTime();
+      lock.lock();
+      try {
+        if (finished) {
+          return;
+        }
+        finished = true;
+      } finally {
+        lock.unlock();
+      }
+      timer("code.gen.stream.duration", type, outcome).record(Duration.ofNanos(now - startNanos));
+      if (firstChunkNanos >= 0) {
+        timer("code.gen.ttft", type, outcome).record(Duration.ofNanos(firstChunkNanos - startNanos));
+      }
+      summary("code.gen.stream.chunks", "chunks", type, outcome).record(chunkCount);
+      summary("code.gen.stream.bytes", "bytes", type, outcome).record(byteCount);
+      // 输出速率（字节/秒），从首个片段开始计算
+      if (chunkCount > 1 && now > firstChunkNanos) {
+        summary("code.gen.stream.throughput", "bytes_per_second", type, outcome)
+            .record(byteCount * 1e9 / (now - firstChunkNanos));
+      }
+    }
+  }
+}
@@ -0,0 +1,208 @@
+package com.carlos.aicodebackend.core;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.carlos.aicodebackend.config.CodeGenProperties;
+import com.carlos.aicodebackend.constant.AppConstant;
+import com.carlos.aicodebackend.core.handler.CodeGenTypeRegistry;
+import com.carlos.aicodebackend.model.enums.CodeGenTypeEnum;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.core.util.ZipUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+
+/**
+ * 首轮生成的输出缓存
+ * 以生成类型、系统提示词版本（内容摘要）和规范化后的提示词为键，缓存完整的 AI 输出。
+ * 内存层使用 Caffeine，磁盘层为 gzip 压缩文件；只用于没有对话记忆的首轮生成，
+ * 命中时按固定节奏回放为片段流，与真实生成走同一条解析和保存链路
+ */
+@Slf4j
+@Component
+public class CodeGenOutputCache {
+
+  private static final String METRIC_NAME = "code.gen.output.cache";
+
+  private static final String FILE_SUFFIX = ".gz";
+
+  private final CodeGenProperties.OutputCache properties;
+
+  private final CodeGenTypeRegistry codeGenTypeRegistry;
+
+  private final Path cacheDir;
+
+  private final Cache<String, String> memoryCache;
+
+  private final Map<CodeGenTypeEnum, String> promptVersions = new ConcurrentHashMap<>();
+
+  private final Counter memoryHitCounter;
+
+  private final Counter diskHitCounter;
+
+  private final Counter missCounter;
+
+  @Autowired
+  public CodeGenOutputCache(CodeGenProperties codeGenProperties, MeterRegistry meterRegistry,
+      CodeGenTypeRegistry codeGenTypeRegistry) {
+    this(codeGenProperties, meterRegistry, codeGenTypeRegistry, Path.of(AppConstant.CODE_GEN_CACHE_DIR));
+  }
+
+  CodeGenOutputCache(CodeGenProperties codeGenProperties, MeterRegistry meterRegistry,
+      CodeGenTypeRegistry codeGenTypeRegistry, Path cacheDir) {
+    this.properties = codeGenProperties.getOutputCache();
+    this.codeGenTypeRegistry = codeGenTypeRegistry;
+    this.cacheDir = cacheDir;
+    this.memoryCache = Caffeine.newBuilder()
+        .maximumSize(properties.getMaximumSize())
+        .expireAfterWrite(properties.getExpireAfterWrite())
+        .build();
+    this.memoryHitCounter = Counter.builder(METRIC_NAME).tag("result", "hit").tag("tier", "memory")
+        .register(meterRegistry);
+    this.diskHitCounter = Counter.builder(METRIC_NAME).tag("result", "hit").tag("tier", "disk")
+        .register(meterRegistry);
+    this.missCounter = Counter.builder(METRIC_NAME).tag("result", "miss").tag("tier", "none")
+        .register(meterRegistry);
+  }
+
+  /**
+   * 是否启用缓存
+   */
+  public boolean isEnabled() {
+    return properties.isEnabled();
+  }
+
+  /**
+   * 查询缓存，内存未命中时查找磁盘并回填内存
+   *
+   * @param codeGenType 生成类型
+   * @param prompt      用户提示词
+   * @return 缓存的 AI 输出，未命中时返回 null
+   */
+  public String get(CodeGenTypeEnum codeGenType, String prompt) {
+    String key = buildKey(codeGenType, prompt);
+    String output = memoryCache.getIfPresent(key);
+    if (output != null) {
+      memoryHitCounter.increment();
+      return output;
+    }
+    output = readDisk(key);
+    if (output != null) {
+      diskHitCounter.increment();
+      memoryCache.put(key, output);
+      return output;
+    }
+    missCounter.increment();
+    return null;
+  }
+
+  /**
+   * 写入缓存
+   *
+   * @param codeGenType 生成类型
+   * @param prompt      用户提示词
+   * @param output      完整的 AI 输出
+   */
+  public void put(CodeGenTypeEnum codeGenType, String prompt, String output) {
+    String key = buildKey(codeGenType, prompt);
+    if (StrUtil.isBlank(output)) {
+      return;
+    }
+    memoryCache.put(key, output);
+    writeDisk(key, output);
+  }
+
+  /**
+   * 将缓存的输出按固定节奏回放为片段流
+   *
+   * @param output 缓存的 AI 输出
+   * @return 片段流
+   */
+  public Flux<String> replay(String output) {
+    int chunkSize = Math.max(1, properties.getReplayChunkSize());
+    List<String> chunks = new ArrayList<>(output.length() / chunkSize + 1);
+    int start = 0;
+    while (start < output.length()) {
+      int end = Math.min(start + chunkSize, output.length());
+      // 不拆分代理对
+      if (end < output.length() && Character.isHighSurrogate(output.charAt(end - 1))) {
+        end++;
+      }
+      chunks.add(output.substring(start, end));
+      start = end;
+    }
+    return Flux.fromIterable(chunks).delayElements(properties.getReplayInterval());
+  }
+
+  private String buildKey(CodeGenTypeEnum codeGenType, String prompt) {
+    String promptVersion = promptVersions.computeIfAbsent(codeGenType, this::computePromptVersion);
+    String normalizedPrompt = GenerationStreamRegistry.normalizePrompt(prompt);
+    return DigestUtil.sha256Hex(codeGenType.getValue() + "\n" + promptVersion + "\n" + normalizedPrompt);
+  }
+
+  /**
+   * 系统提示词版本：提示词资源内容的摘要，修改提示词后旧缓存自然失效
+   */
+  private String computePromptVersion(CodeGenTypeEnum codeGenType) {
+    String resource = codeGenTypeRegistry.getHandler(codeGenType).getSystemPromptResource();
+    return DigestUtil.sha256Hex(ResourceUtil.readUtf8Str(resource));
+  }
+
+  private String readDisk(String key) {
+    if (!properties.isDiskEnabled()) {
+      return null;
+    }
+    Path file = cacheDir.resolve(key + FILE_SUFFIX);
+    try {
+      if (!Files.exists(file)) {
+        return null;
+      }
+      Instant expireAt = Files.getLastModifiedTime(file).toInstant().plus(properties.getExpireAfterWrite());
+      if (expireAt.isBefore(Instant.now())) {
+        Files.deleteIfExists(file);
+        return null;
+      }
+      return ZipUtil.unGzip(Files.readAllBytes(file), "UTF-8");
+    } catch (Exception e) {
+      log.warn("读取生成缓存失败: {}, {}", file, e.getMessage());
+      return null;
+    }
+  }
+
+  private void writeDisk(String key, String output) {
+    if (!properties.isDiskEnabled()) {
+      return;
+    }
+    Path file = cacheDir.resolve(key + FILE_SUFFIX);
+    Path tempFile = cacheDir.resolve(key + FILE_SUFFIX + ".tmp");
+    try {
+      Files.createDirectories(cacheDir);
+      Files.write(tempFile, ZipUtil.gzip(output, "UTF-8"));
+      try {
+        Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      log.warn("写入生成缓存失败: {}, {}", file, e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,281 @@
+package com.carlos.aicodebackend.core;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.carlos.aicodebackend.ai.model.message.StreamMessage;
+import com.carlos.aicodebackend.config.CodeGenProperties;
+import com.carlos.aicodebackend.exception.BusinessException;
+import com.carlos.aicodebackend.exception.ErrorCode;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
+
+/**
+ * 一次生成的共享输出流
+ * 上游只订阅一次，每条消息分配递增序号（事件 ID 为 生成ID:序号）并保存在环形缓冲区中，
+ * 订阅者可从任意仍在缓冲区内的序号之后开始接收（断线续传、重复请求合并）。
+ * 每个订阅者有独立的有界缓冲并在调度器上推送，慢订阅者缓冲溢出时被断开，不会拖慢上游；
+ * 所有订阅者断开超过空闲时长后取消上游（上游取消会断开模型连接，并以截断标记保存已生成的部分），
+ * 空闲时长为 0 时最后一个订阅者断开即取消
+ */
+@Slf4j
+public class GenerationStream {
+
+  @Getter
+  private final String id;
+
+  @Getter
+  private final Long appId;
+
+  @Getter
+  private final Long userId;
+
+  private final Supplier<Flux<StreamMessage>> source;
+
+  private final CodeGenProperties.Stream properties;
+
+  private final Scheduler scheduler;
+
+  private final Consumer<GenerationStream> onTerminate;
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final StreamMessage[] ring;
+
+  private final List<Sinks.Many<StreamMessage>> subscribers = new ArrayList<>();
+
+  // 下一条消息的序号，从 1 开始
+  private long nextSeq = 1;
+
+  private boolean connected;
+
+  private boolean terminated;
+
+  private Throwable error;
+
+  private volatile Disposable upstream;
+
+  private Disposable idleTask;
+
+  GenerationStream(String id, Long appId, Long userId, Supplier<Flux<StreamMessage>> source,
+      CodeGenProperties.Stream properties, Scheduler scheduler, Consumer<GenerationStream> onTerminate) {
+    this.id = id;
+    this.appId = appId;
+    this.userId = userId;
+    this.source = source;
+    this.properties = properties;
+    this.scheduler = scheduler;
+    this.onTerminate = onTerminate;
+    this.ring = new StreamMessage[properties.getRingBufferSize()];
+  }
+
+  /**
+   * 订阅生成流，首个订阅到来时连接上游
+   *
+   * @param afterSeq 从该序号之后开始接收，0 表示从头接收
+   * @return 消息流
+   */
+  public Flux<StreamMessage> subscribe(long afterSeq) {
+    return Flux.defer(() -> {
+      Sinks.Many<StreamMessage> sink = Sinks.many().unicast()
+          .onBackpressureBuffer(Queues.<StreamMessage>get(properties.getSubscriberBufferSize()).get());
+      List<StreamMessage> backlog;
+      boolean connect = false;
+      lock.lock();
+      try {
+        long oldestSeq = Math.max(1, nextSeq - ring.length);
+        if (afterSeq + 1 < oldestSeq) {
+          return Flux.error(new BusinessException(ErrorCode.OPERATION_ERROR, "续传位置已超出缓冲范围，请重新生成"));
+        }
+        backlog = new ArrayList<>((int) Math.max(0, nextSeq - afterSeq - 1));
+        for (long seq = Math.max(afterSeq + 1, oldestSeq); seq < nextSeq; seq++) {
+          backlog.add(ring[index(seq)]);
+        }
+        if (terminated) {
+          Flux<StreamMessage> replay = Flux.fromIterable(backlog);
+          return error == null ? replay : replay.concatWith(Flux.error(error));
+        }
+        subscribers.add(sink);
+        if (idleTask != null) {
+          idleTask.dispose();
+          idleTask = null;
+        }
+        if (!connected) {
+          connected = true;
+          connect = true;
+        }
+      } finally {
+        lock.unlock();
+      }
+      if (connect) {
+        connect();
+      }
+      return Flux.fromIterable(backlog)
+          .concatWith(sink.asFlux())
+          .doFinally(signal -> unsubscribe(sink))
+          .publishOn(scheduler, Queues.SMALL_BUFFER_SIZE);
+    });
+  }
+
+  /**
+   * 从缓冲区中最早的消息开始订阅（发起生成、合并的重复请求和旁观），新生成即从头接收；
+   * 输出过长、缓冲区已回绕时只能看到最近的部分，不会像按序号续传那样报错
+   *
+   * @return 消息流
+   */
+  public Flux<StreamMessage> watch() {
+    return Flux.defer(() -> {
+      long oldestSeq;
+      lock.lock();
+      try {
+        oldestSeq = Math.max(1, nextSeq - ring.length);
+      } finally {
+        lock.unlock();
+      }
+      return subscribe(oldestSeq - 1);
+    });
+  }
+
+  /**
+   * 是否已结束（完成、出错或取消）
+   */
+  public boolean isTerminated() {
+    lock.lock();
+    try {
+      return terminated;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * 当前订阅者数量
+   */
+  public int getSubscriberCount() {
+    lock.lock();
+    try {
+      return subscribers.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void connect() {
+    upstream = Flux.defer(source).subscribe(this::onNext, this::onError, this::onComplete);
+  }
+
+  private void onNext(StreamMessage message) {
+    lock.lock();
+    try {
+      if (terminated) {
+        return;
+      }
+      long seq = nextSeq++;
+      StreamMessage sequenced = message.withId(id + ":" + seq);
+      ring[index(seq)] = sequenced;
+      // 遍历副本：推送过程中订阅者可能同步取消或结束生成
+      for (Sinks.Many<StreamMessage> sink : List.copyOf(subscribers)) {
+        if (sink.tryEmitNext(sequenced) == Sinks.EmitResult.FAIL_OVERFLOW) {
+          log.warn("订阅者推送过慢，已断开，生成 ID: {}", id);
+          subscribers.remove(sink);
+          sink.tryEmitError(new BusinessException(ErrorCode.OPERATION_ERROR, "推送过慢，请重连续传"));
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void onError(Throwable throwable) {
+    terminate(throwable);
+  }
+
+  private void onComplete() {
+    terminate(null);
+  }
+
+  private void terminate(Throwable throwable) {
+    lock.lock();
+    try {
+      if (terminated) {
+        return;
+      }
+      terminated = true;
+      error = throwable;
+      for (Sinks.Many<StreamMessage> sink : List.copyOf(subscribers)) {
+        if (throwable == null) {
+          sink.tryEmitComplete();
+        } else {
+          sink.tryEmitError(throwable);
+        }
+      }
+      subscribers.clear();
+      if (idleTask != null) {
+        idleTask.dispose();
+        idleTask = null;
+      }
+    } finally {
+      lock.unlock();
+    }
+    onTerminate.accept(this);
+  }
+
+  private void unsubscribe(Sinks.Many<StreamMessage> sink) {
+    boolean cancelNow = false;
+    lock.lock();
+    try {
+      subscribers.remove(sink);
+      if (!terminated && subscribers.isEmpty() && idleTask == null) {
+        Duration idleTimeout = properties.getIdleTimeout();
+        if (idleTimeout.isZero() || idleTimeout.isNegative()) {
+          cancelNow = true;
+        } else {
+          idleTask = Schedulers.parallel()
+              .schedule(this::cancelIfIdle, idleTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+    // 不等待空闲时长，在断开的线程上立即取消上游
+    if (cancelNow) {
+      cancelIfIdle();
+    }
+  }
+
+  /**
+   * 空闲超时后仍无订阅者时取消上游
+   */
+  private void cancelIfIdle() {
+    lock.lock();
+    try {
+      if (terminated || !subscribers.isEmpty()) {
+        return;
+      }
+    } finally {
+      lock.unlock();
+    }
+    log.info("生成流无订阅者超过 {}，取消生成，生成 ID: {}", properties.getIdleTimeout(), id);
+    // 先标记结束再取消上游，取消过程中到达的消息不再推送
+    terminate(new BusinessException(ErrorCode.OPERATION_ERROR, "生成已取消"));
+    if (upstream != null) {
+      upstream.dispose();
+    }
+  }
+
+  private int index(long seq) {
+    return (int) ((seq - 1) % ring.length);
+  }
+}
@@ -0,0 +1,139 @@
+package com.carlos.aicodebackend.core;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.carlos.aicodebackend.ai.model.message.StreamMessage;
+import com.carlos.aicodebackend.config.CodeGenProperties;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 生成流注册表
+ * 同一应用、同一提示词（规范化后）的生成进行中时，重复请求复用同一个生成流（single-flight），
+ * 只调用一次模型、只写一次对话历史；生成流按生成 ID 和应用登记，结束后保留一段时间供断线续传和旁观
+ */
+@Slf4j
+@Component
+public class GenerationStreamRegistry {
+
+  private final CodeGenProperties.Stream properties;
+
+  private final Scheduler scheduler;
+
+  // 进行中的生成，按 应用 ID + 提示词摘要 索引
+  private final Map<String, GenerationStream> inFlight = new ConcurrentHashMap<>();
+
+  // 进行中和保留期内的生成，按生成 ID 索引
+  private final Map<String, GenerationStream> streams = new ConcurrentHashMap<>();
+
+  // 每个应用最近一次的生成（进行中或保留期内），供旁观使用
+  private final Map<Long, GenerationStream> latestByApp = new ConcurrentHashMap<>();
+
+  @Autowired
+  public GenerationStreamRegistry(CodeGenProperties codeGenProperties, CodeGenCompletionExecutor completionExecutor) {
+    this(codeGenProperties, completionExecutor.getVirtualThreadScheduler());
+  }
+
+  GenerationStreamRegistry(CodeGenProperties codeGenProperties, Scheduler scheduler) {
+    this.properties = codeGenProperties.getStream();
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * 获取进行中的相同生成，不存在时新建（首个订阅到来时才调用模型）
+   *
+   * @param appId      应用 ID
+   * @param userId     发起生成的用户 ID
+   * @param prompt     用户提示词
+   * @param generation 生成流的工厂
+   * @return 生成流
+   */
+  public GenerationStream getOrCreate(Long appId, Long userId, String prompt,
+      Supplier<Flux<StreamMessage>> generation) {
+    String key = buildKey(appId, prompt);
+    boolean[] created = {false};
+    GenerationStream stream = inFlight.computeIfAbsent(key, k -> {
+      created[0] = true;
+      GenerationStream newStream = new GenerationStream(IdUtil.fastSimpleUUID(), appId, userId, generation,
+          properties, scheduler, terminated -> onTerminate(k, terminated));
+      streams.put(newStream.getId(), newStream);
+      latestByApp.put(appId, newStream);
+      return newStream;
+    });
+    if (!created[0]) {
+      log.info("合并重复的生成请求，appId: {}, 生成 ID: {}", appId, stream.getId());
+    }
+    return stream;
+  }
+
+  /**
+   * 按生成 ID 获取生成流（进行中或保留期内）
+   *
+   * @param generationId 生成 ID
+   * @return 生成流，不存在时返回 null
+   */
+  public GenerationStream get(String generationId) {
+    if (StrUtil.isBlank(generationId)) {
+      return null;
+    }
+    return streams.get(generationId);
+  }
+
+  /**
+   * 获取应用最近一次的生成（进行中或保留期内）
+   *
+   * @param appId 应用 ID
+   * @return 生成流，不存在时返回 null
+   */
+  public GenerationStream getLatestByApp(Long appId) {
+    if (appId == null) {
+      return null;
+    }
+    return latestByApp.get(appId);
+  }
+
+  /**
+   * 当前进行中的生成数
+   */
+  public int getInFlightCount() {
+    return inFlight.size();
+  }
+
+  private void onTerminate(String key, GenerationStream stream) {
+    inFlight.remove(key, stream);
+    // 结束后保留一段时间，期间断线的客户端仍可续传
+    Schedulers.parallel().schedule(() -> {
+      streams.remove(stream.getId(), stream);
+      latestByApp.remove(stream.getAppId(), stream);
+    }, properties.getRetention().toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * 规范化提示词：去掉首尾空白并将连续空白合并为一个空格
+   *
+   * @param prompt 提示词
+   * @return 规范化后的提示词
+   */
+  public static String normalizePrompt(String prompt) {
+    if (prompt == null) {
+      return "";
+    }
+    return StrUtil.trim(prompt).replaceAll("\\s+", " ");
+  }
+
+  private static String buildKey(Long appId, String prompt) {
+    return appId + ":" + DigestUtil.sha256Hex(normalizePrompt(prompt));
+  }
+}
@@ -0,0 +1,131 @@
+package com.carlos.aicodebackend.core;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import com.carlos.aicodebackend.ai.ParallelMultiFileGeneratorService;
+import com.carlos.aicodebackend.ai.UpstreamAbortHandle;
+import com.carlos.aicodebackend.ai.model.message.StreamMessage;
+import com.carlos.aicodebackend.config.CodeGenProperties;
+import com.carlos.aicodebackend.core.parser.StreamingCodeParser;
+import com.carlos.aicodebackend.exception.ErrorCode;
+import com.carlos.aicodebackend.exception.ThrowUtils;
+
+import cn.hutool.core.util.StrUtil;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+
+/**
+ * 多文件并行生成器
+ * 顺序生成时模型依次输出 HTML、CSS、JS，总耗时是三者之和。并行生成先做一次简短的规划调用确定页面结构和
+ * class/id 约定（规划内容作为普通 AI 响应片段推送），再按约定同时发起三个文件的生成，三路片段合并为一个消息流，
+ * 并以文件名标记所属文件。每个文件生成完成后，其完整输出追加到共享的解析器中，
+ * 累计输出与顺序生成的格式一致，可按原有流程解析、保存并写入对话历史
+ */
+@Slf4j
+@Component
+public class ParallelMultiFileCodeGenerator {
+
+  private final ParallelMultiFileGeneratorService generatorService;
+
+  private final CodeGenCompletionExecutor completionExecutor;
+
+  private final CodeGenProperties codeGenProperties;
+
+  private final List<FileTask> fileTasks;
+
+  public ParallelMultiFileCodeGenerator(ParallelMultiFileGeneratorService generatorService,
+      CodeGenCompletionExecutor completionExecutor, CodeGenProperties codeGenProperties) {
+    this.generatorService = generatorService;
+    this.completionExecutor = completionExecutor;
+    this.codeGenProperties = codeGenProperties;
+    this.fileTasks = List.of(
+        new FileTask("index.html", generatorService::generateHtmlFileStream),
+        new FileTask("style.css", generatorService::generateCssFileStream),
+        new FileTask("script.js", generatorService::generateJsFileStream));
+  }
+
+  /**
+   * 并行生成多文件代码
+   *
+   * @param userMessage     用户提示词
+   * @param streamingParser 共享的流式解析器，规划内容和各文件的完整输出依次追加到其中
+   * @return 消息流：规划片段之后是各文件交错的片段（带文件名）
+   */
+  public Flux<StreamMessage> generate(String userMessage, StreamingCodeParser streamingParser) {
+    StringBuilder plan = new StringBuilder();
+    Flux<StreamMessage> planFlux = openStream(() -> generatorService.planMultiFileStream(userMessage))
+        .map(chunk -> {
+          plan.append(chunk);
+          streamingParser.append(chunk);
+          return StreamMessage.aiResponse(chunk);
+        });
+    Flux<StreamMessage> fileFlux = Flux.defer(() -> {
+      String planText = plan.toString();
+      ThrowUtils.throwIf(StrUtil.isBlank(planText), ErrorCode.OPERATION_ERROR, "页面结构规划为空");
+      log.info("页面结构规划完成（{} 字符），开始并行生成 {} 个文件", planText.length(), fileTasks.size());
+      // 只在合并后的（串行）流中访问
+      Map<String, ChunkAccumulator> outputs = new HashMap<>();
+      List<Flux<FileChunk>> fileStreams = fileTasks.stream()
+          .map(task -> openFileStream(task, userMessage, planText))
+          .toList();
+      return Flux.merge(fileStreams).handle((FileChunk fileChunk, SynchronousSink<StreamMessage> sink) -> {
+        ChunkAccumulator output = outputs.computeIfAbsent(fileChunk.fileName(),
+            fileName -> new ChunkAccumulator(codeGenProperties.getMaxResponseBytes()));
+        if (fileChunk.chunk() != null) {
+          output.append(fileChunk.chunk());
+          sink.next(StreamMessage.aiResponse(fileChunk.chunk(), fileChunk.fileName()));
+          return;
+        }
+        // 文件生成完成，完整输出作为一段追加到共享解析器
+        log.info("并行生成文件完成: {}, {} 字符", fileChunk.fileName(), output.length());
+        if (output.length() > 0) {
+          streamingParser.append("\n\n");
+          streamingParser.append(output);
+        }
+      });
+    });
+    return planFlux.concatWith(fileFlux);
+  }
+
+  /**
+   * 打开单个文件的生成流，末尾追加一个结束标记
+   */
+  private Flux<FileChunk> openFileStream(FileTask task, String requirement, String plan) {
+    return openStream(() -> task.generator().apply(requirement, plan))
+        .map(chunk -> new FileChunk(task.fileName(), chunk))
+        .concatWith(Mono.fromSupplier(() -> new FileChunk(task.fileName(), null)));
+  }
+
+  /**
+   * 在虚拟线程上发起模型调用（可能同步建立连接），并绑定中止句柄，取消时立即断开与模型的连接
+   */
+  private Flux<String> openStream(Supplier<Flux<String>> opener) {
+    return Flux.defer(() -> {
+      UpstreamAbortHandle abortHandle = new UpstreamAbortHandle();
+      return abortHandle.bind(opener).doOnCancel(abortHandle::abort);
+    }).subscribeOn(completionExecutor.getVirtualThreadScheduler());
+  }
+
+  /**
+   * 并行生成的文件
+   *
+   * @param fileName  文件名（同时作为片段的文件标记）
+   * @param generator 生成调用：(用户需求, 结构约定) -> 输出流
+   */
+  private record FileTask(String fileName, BiFunction<String, String, Flux<String>> generator) {
+  }
+
+  /**
+   * 带文件名的片段，chunk 为 null 表示该文件生成结束
+   */
+  private record FileChunk(String fileName, String chunk) {
+  }
+}
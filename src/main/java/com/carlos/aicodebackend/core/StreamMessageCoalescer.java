@@ -0,0 +1,247 @@
+package com.carlos.aicodebackend.core;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.reactivestreams.Subscription;
+import org.springframework.stereotype.Component;
+
+import com.carlos.aicodebackend.ai.model.message.StreamMessage;
+import com.carlos.aicodebackend.config.CodeGenProperties;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * SSE 片段合并器
+ * 模型片段通常只有几个字符，逐个推送时每个片段都要单独编码、写出和刷新。合并器把时间窗口内到达的
+ * AI 响应片段合并为一条消息（事件 ID 取最后一个片段的，续传位置不变），待推送内容达到字节上限时立即推送；
+ * 其他类型的消息或其他文件的片段到达时先推送已合并的内容。下游没有需求（客户端接收过慢）时片段继续合并，
+ * 时间窗口和字节上限逐次翻倍直到上限，下游跟上后逐步恢复
+ */
+@Component
+public class StreamMessageCoalescer {
+
+  private final CodeGenProperties.Coalesce properties;
+
+  public StreamMessageCoalescer(CodeGenProperties codeGenProperties) {
+    this.properties = codeGenProperties.getCoalesce();
+  }
+
+  /**
+   * 合并消息流中的 AI 响应片段
+   *
+   * @param source          消息流
+   * @param flushIntervalMs 客户端指定的时间窗口（毫秒），为 null 时使用默认值，为 0 时不合并
+   * @param flushSize       客户端指定的合并字节数，为 null 时使用默认值
+   * @return 合并后的消息流
+   */
+  public Flux<StreamMessage> coalesce(Flux<StreamMessage> source, Long flushIntervalMs, Integer flushSize) {
+    if (!properties.isEnabled()) {
+      return source;
+    }
+    Duration maxInterval = properties.getMaxFlushInterval();
+    Duration interval = flushIntervalMs == null
+        ? properties.getFlushInterval()
+        : Duration.ofMillis(Math.max(0, Math.min(flushIntervalMs, maxInterval.toMillis())));
+    if (interval.isZero()) {
+      return source;
+    }
+    int maxSize = properties.getMaxFlushSize();
+    int size = flushSize == null ? properties.getFlushSize() : Math.max(1, Math.min(flushSize, maxSize));
+    return Flux.create(sink -> source.subscribe(new Batch(sink, interval, size, maxInterval, maxSize)),
+        FluxSink.OverflowStrategy.BUFFER);
+  }
+
+  /**
+   * 一个消息流的合并状态
+   * 上游信号、定时器和下游请求可能来自不同线程，状态变更和推送都在锁内进行以保证顺序
+   */
+  private static class Batch extends BaseSubscriber<StreamMessage> {
+
+    private final FluxSink<StreamMessage> sink;
+
+    private final Duration baseInterval;
+
+    private final int baseSize;
+
+    private final Duration maxInterval;
+
+    private final int maxSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final StringBuilder pending = new StringBuilder();
+
+    private long pendingBytes;
+
+    private String pendingId;
+
+    private String pendingFile;
+
+    // 当前时间窗口和字节上限，背压时扩大
+    private Duration interval;
+
+    private int size;
+
+    // 已到推送时机但下游没有需求
+    private boolean due;
+
+    private Disposable flushTask;
+
+    Batch(FluxSink<StreamMessage> sink, Duration interval, int size, Duration maxInterval, int maxSize) {
+      this.sink = sink;
+      this.baseInterval = interval;
+      this.baseSize = size;
+      this.maxInterval = maxInterval.compareTo(interval) < 0 ? interval : maxInterval;
+      this.maxSize = Math.max(maxSize, size);
+      this.interval = interval;
+      this.size = size;
+      sink.onRequest(n -> onDemand());
+      sink.onDispose(() -> {
+        dispose();
+        lock.lock();
+        try {
+          cancelFlushTask();
+        } finally {
+          lock.unlock();
+        }
+      });
+    }
+
+    @Override
+    protected void hookOnSubscribe(Subscription subscription) {
+      // 上游不受下游需求限制，背压期间片段在本地合并
+      subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    protected void hookOnNext(StreamMessage message) {
+      lock.lock();
+      try {
+        if (!message.isAiResponse()) {
+          emitLocked();
+          sink.next(message);
+          return;
+        }
+        String data = message.getData();
+        if (data == null || data.isEmpty()) {
+          return;
+        }
+        // 不同文件的片段不合并
+        if (!pending.isEmpty() && !Objects.equals(pendingFile, message.getFile())) {
+          emitLocked();
+        }
+        if (pending.isEmpty()) {
+          flushTask = Schedulers.parallel().schedule(this::onTimer, interval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        pending.append(data);
+        pendingBytes += StreamMessageEncoder.utf8Length(data);
+        pendingId = message.getId();
+        pendingFile = message.getFile();
+        if (pendingBytes >= size) {
+          due = true;
+          tryFlushLocked();
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    @Override
+    protected void hookOnComplete() {
+      lock.lock();
+      try {
+        emitLocked();
+        sink.complete();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    @Override
+    protected void hookOnError(Throwable throwable) {
+      lock.lock();
+      try {
+        emitLocked();
+        sink.error(throwable);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void onTimer() {
+      lock.lock();
+      try {
+        flushTask = null;
+        due = true;
+        tryFlushLocked();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void onDemand() {
+      lock.lock();
+      try {
+        if (due) {
+          tryFlushLocked();
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * 下游有需求时推送并逐步恢复窗口；没有需求时继续合并并扩大窗口，需求到达时再推送
+     */
+    private void tryFlushLocked() {
+      if (pending.isEmpty()) {
+        due = false;
+        return;
+      }
+      if (sink.requestedFromDownstream() > 0) {
+        emitLocked();
+        interval = max(baseInterval, interval.dividedBy(2));
+        size = Math.max(baseSize, size / 2);
+      } else {
+        interval = min(maxInterval, interval.multipliedBy(2));
+        size = Math.min(maxSize, size * 2);
+      }
+    }
+
+    private void emitLocked() {
+      cancelFlushTask();
+      due = false;
+      if (pending.isEmpty()) {
+        return;
+      }
+      StreamMessage merged = StreamMessage.aiResponse(pending.toString(), pendingFile).withId(pendingId);
+      pending.setLength(0);
+      pendingBytes = 0;
+      pendingId = null;
+      pendingFile = null;
+      sink.next(merged);
+    }
+
+    private void cancelFlushTask() {
+      if (flushTask != null) {
+        flushTask.dispose();
+        flushTask = null;
+      }
+    }
+  }
+
+  private static Duration min(Duration a, Duration b) {
+    return a.compareTo(b) <= 0 ? a : b;
+  }
+
+  private static Duration max(Duration a, Duration b) {
+    return a.compareTo(b) >= 0 ? a : b;
+  }
+}
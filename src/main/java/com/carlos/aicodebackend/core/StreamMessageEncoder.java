@@ -0,0 +1,323 @@
+package com.carlos.aicodebackend.core;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import com.carlos.aicodebackend.ai.model.message.StreamMessage;
+import com.carlos.aicodebackend.ai.model.message.StreamMessageTypeEnum;
+
+/**
+ * 生成消息的 SSE 编码器
+ * 每条消息的数据都包装为 {"d":"..."}，这是逐片段执行的热点路径：先按字符计算转义后的长度，再一次写入，
+ * 不构建中间的 Map / JSONObject，也不经过反射。提供两种输出：JSON 字符串（Servlet 模式交给 Spring 写出），
+ * 以及完整的 SSE 事件直接以 UTF-8 写入（可池化的）DataBuffer
+ */
+public final class StreamMessageEncoder {
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private static final String JSON_PREFIX = "{\"d\":\"";
+
+  private static final String FILE_PREFIX = "\",\"f\":\"";
+
+  private static final String JSON_SUFFIX = "\"}";
+
+  private static final String NULL_JSON = "{\"d\":null}";
+
+  private static final String DONE_EVENT = "event:done\ndata:\n\n";
+
+  private StreamMessageEncoder() {
+  }
+
+  /**
+   * 将数据包装为 {"d":"..."} JSON
+   *
+   * @param data 消息数据
+   * @return JSON 字符串
+   */
+  public static String toJson(String data) {
+    return toJson(data, null);
+  }
+
+  /**
+   * 将数据包装为 JSON，带文件名时为 {"d":"...","f":"..."}
+   *
+   * @param data 消息数据
+   * @param file 片段所属的文件名，可为 null
+   * @return JSON 字符串
+   */
+  public static String toJson(String data, String file) {
+    if (data == null) {
+      return NULL_JSON;
+    }
+    int dataLength = escapedLength(data);
+    int fileLength = file == null ? 0 : FILE_PREFIX.length() + escapedLength(file);
+    StringBuilder json = new StringBuilder(JSON_PREFIX.length() + dataLength + fileLength + JSON_SUFFIX.length());
+    json.append(JSON_PREFIX);
+    appendEscaped(data, dataLength, json);
+    if (file != null) {
+      json.append(FILE_PREFIX);
+      appendEscaped(file, fileLength - FILE_PREFIX.length(), json);
+    }
+    return json.append(JSON_SUFFIX).toString();
+  }
+
+  /**
+   * 将消息编码为完整的 SSE 事件（id、event、data 行），按精确大小分配缓冲区后写入
+   * AI 响应片段不设置事件名，其他消息使用消息类型作为事件名，与 Servlet 模式的输出一致；
+   * 带文件名的片段在 JSON 中附加 f 字段
+   *
+   * @param message       消息
+   * @param bufferFactory 缓冲区工厂（Netty 下为池化缓冲区）
+   * @return 写好的缓冲区，由调用方负责释放
+   */
+  public static DataBuffer encode(StreamMessage message, DataBufferFactory bufferFactory) {
+    String id = message.getId();
+    String event = message.isAiResponse() ? null : message.getType();
+    String data = message.getData();
+    int size = 0;
+    if (id != null) {
+      size += 4 + utf8Length(id);
+    }
+    if (event != null) {
+      size += 7 + utf8Length(event);
+    }
+    String file = data == null ? null : message.getFile();
+    size += 7 + (data == null ? NULL_JSON.length() : JSON_PREFIX.length() + escapedUtf8Length(data)
+        + JSON_SUFFIX.length());
+    if (file != null) {
+      size += FILE_PREFIX.length() + escapedUtf8Length(file);
+    }
+    DataBuffer buffer = bufferFactory.allocateBuffer(size);
+    try {
+      if (id != null) {
+        writeAscii(buffer, "id:");
+        writeUtf8(buffer, id);
+        buffer.write((byte) '\n');
+      }
+      if (event != null) {
+        writeAscii(buffer, "event:");
+        writeUtf8(buffer, event);
+        buffer.write((byte) '\n');
+      }
+      writeAscii(buffer, "data:");
+      if (data == null) {
+        writeAscii(buffer, NULL_JSON);
+      } else {
+        writeAscii(buffer, JSON_PREFIX);
+        writeEscapedUtf8(buffer, data);
+        if (file != null) {
+          writeAscii(buffer, FILE_PREFIX);
+          writeEscapedUtf8(buffer, file);
+        }
+        writeAscii(buffer, JSON_SUFFIX);
+      }
+      writeAscii(buffer, "\n\n");
+      return buffer;
+    } catch (RuntimeException e) {
+      DataBufferUtils.release(buffer);
+      throw e;
+    }
+  }
+
+  /**
+   * 编码一条 error 事件，作为流开始前请求失败时的完整响应体（Servlet 与 Netty 两种模式共用）
+   *
+   * @param message 错误信息
+   * @return SSE 事件文本
+   */
+  public static String encodeError(String message) {
+    return "event:" + StreamMessageTypeEnum.ERROR.getValue() + "\ndata:" + toJson(message) + "\n\n";
+  }
+
+  /**
+   * 编码流结束事件
+   *
+   * @param bufferFactory 缓冲区工厂
+   * @return 写好的缓冲区，由调用方负责释放
+   */
+  public static DataBuffer encodeDone(DataBufferFactory bufferFactory) {
+    DataBuffer buffer = bufferFactory.allocateBuffer(DONE_EVENT.length());
+    writeAscii(buffer, DONE_EVENT);
+    return buffer;
+  }
+
+  /**
+   * 字符的 JSON 转义序列长度，不需要转义时返回 1
+   */
+  private static int escapeLength(char c) {
+    if (c == '"' || c == '\\' || c == '\n' || c == '\r' || c == '\t' || c == '\b' || c == '\f') {
+      return 2;
+    }
+    // 其余控制字符以及 JavaScript 中的行分隔符使用 \\uXXXX
+    if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+      return 6;
+    }
+    return 1;
+  }
+
+  private static int escapedLength(String data) {
+    int length = 0;
+    for (int i = 0; i < data.length(); i++) {
+      length += escapeLength(data.charAt(i));
+    }
+    return length;
+  }
+
+  /**
+   * 追加转义后的内容，没有需要转义的字符时整体追加
+   */
+  private static void appendEscaped(String data, int escapedLength, StringBuilder json) {
+    if (escapedLength == data.length()) {
+      json.append(data);
+      return;
+    }
+    for (int i = 0; i < data.length(); i++) {
+      char c = data.charAt(i);
+      switch (escapeLength(c)) {
+        case 1 -> json.append(c);
+        case 2 -> json.append('\\').append(shortEscape(c));
+        default -> json.append("\\u").append(HEX[(c >> 12) & 0xF]).append(HEX[(c >> 8) & 0xF])
+            .append(HEX[(c >> 4) & 0xF]).append(HEX[c & 0xF]);
+      }
+    }
+  }
+
+  private static char shortEscape(char c) {
+    return switch (c) {
+      case '\n' -> 'n';
+      case '\r' -> 'r';
+      case '\t' -> 't';
+      case '\b' -> 'b';
+      case '\f' -> 'f';
+      default -> c;
+    };
+  }
+
+  /**
+   * 转义后的 UTF-8 字节数：转义序列都是 ASCII，其余字符按 UTF-8 计算
+   */
+  private static int escapedUtf8Length(String data) {
+    int length = 0;
+    for (int i = 0; i < data.length(); i++) {
+      char c = data.charAt(i);
+      if (c < 0x80) {
+        length += escapeLength(c);
+      } else if (c == '\u2028' || c == '\u2029') {
+        length += 6;
+      } else {
+        length += utf8CharLength(data, i);
+        if (Character.isHighSurrogate(c) && i + 1 < data.length() && Character.isLowSurrogate(data.charAt(i + 1))) {
+          i++;
+        }
+      }
+    }
+    return length;
+  }
+
+  private static void writeEscapedUtf8(DataBuffer buffer, String data) {
+    for (int i = 0; i < data.length(); i++) {
+      char c = data.charAt(i);
+      if (c < 0x80) {
+        switch (escapeLength(c)) {
+          case 1 -> buffer.write((byte) c);
+          case 2 -> buffer.write((byte) '\\').write((byte) shortEscape(c));
+          default -> writeUnicodeEscape(buffer, c);
+        }
+      } else if (c == '\u2028' || c == '\u2029') {
+        writeUnicodeEscape(buffer, c);
+      } else {
+        i = writeUtf8Char(buffer, data, i);
+      }
+    }
+  }
+
+  private static void writeUnicodeEscape(DataBuffer buffer, char c) {
+    buffer.write((byte) '\\').write((byte) 'u')
+        .write((byte) HEX[(c >> 12) & 0xF]).write((byte) HEX[(c >> 8) & 0xF])
+        .write((byte) HEX[(c >> 4) & 0xF]).write((byte) HEX[c & 0xF]);
+  }
+
+  /**
+   * 计算 UTF-8 编码后的字节数（与实际写出的字节一致：代理对计为 4，孤立代理按 '?' 计为 1）。
+   * 累加器的字节预算、片段合并和指标都使用这里的计算
+   *
+   * @param value 字符串
+   * @return 字节数
+   */
+  static int utf8Length(String value) {
+    int length = 0;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        length++;
+      } else {
+        length += utf8CharLength(value, i);
+        if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+          i++;
+        }
+      }
+    }
+    return length;
+  }
+
+  /**
+   * 第 index 个字符（非 ASCII）的 UTF-8 字节数，合法的代理对计为 4，孤立代理按 '?' 计为 1
+   */
+  private static int utf8CharLength(String value, int index) {
+    char c = value.charAt(index);
+    if (c < 0x800) {
+      return 2;
+    }
+    if (Character.isHighSurrogate(c)) {
+      return index + 1 < value.length() && Character.isLowSurrogate(value.charAt(index + 1)) ? 4 : 1;
+    }
+    return Character.isLowSurrogate(c) ? 1 : 3;
+  }
+
+  private static void writeUtf8(DataBuffer buffer, String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        buffer.write((byte) c);
+      } else {
+        i = writeUtf8Char(buffer, value, i);
+      }
+    }
+  }
+
+  /**
+   * 写入第 index 个字符（非 ASCII）的 UTF-8 编码
+   *
+   * @return 最后消费的字符下标（代理对会多消费一个字符）
+   */
+  private static int writeUtf8Char(DataBuffer buffer, String value, int index) {
+    char c = value.charAt(index);
+    if (c < 0x800) {
+      buffer.write((byte) (0xC0 | (c >> 6))).write((byte) (0x80 | (c & 0x3F)));
+      return index;
+    }
+    if (Character.isSurrogate(c)) {
+      if (Character.isHighSurrogate(c) && index + 1 < value.length()
+          && Character.isLowSurrogate(value.charAt(index + 1))) {
+        int codePoint = Character.toCodePoint(c, value.charAt(index + 1));
+        buffer.write((byte) (0xF0 | (codePoint >> 18))).write((byte) (0x80 | ((codePoint >> 12) & 0x3F)))
+            .write((byte) (0x80 | ((codePoint >> 6) & 0x3F))).write((byte) (0x80 | (codePoint & 0x3F)));
+        return index + 1;
+      }
+      // 孤立代理与 String#getBytes 一致替换为 '?'
+      buffer.write((byte) '?');
+      return index;
+    }
+    buffer.write((byte) (0xE0 | (c >> 12))).write((byte) (0x80 | ((c >> 6) & 0x3F)))
+        .write((byte) (0x80 | (c & 0x3F)));
+    return index;
+  }
+
+  private static void writeAscii(DataBuffer buffer, String value) {
+    for (int i = 0; i < value.length(); i++) {
+      buffer.write((byte) value.charAt(i));
+    }
+  }
+}
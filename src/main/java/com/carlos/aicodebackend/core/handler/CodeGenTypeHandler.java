@@ -0,0 +1,55 @@
+package com.carlos.aicodebackend.core.handler;
+
+import com.carlos.aicodebackend.ai.AiCodeGeneratorService;
+import com.carlos.aicodebackend.core.parser.CodeParser;
+import com.carlos.aicodebackend.core.saver.CodeFileSaverTemplate;
+import com.carlos.aicodebackend.model.enums.CodeGenTypeEnum;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * 代码生成类型处理器
+ * 每种生成类型提供模型调用方式、解析器、保存器和系统提示词资源，注册为 Spring Bean 后
+ * 由 {@link CodeGenTypeRegistry} 按类型收集，新增生成类型无需修改外观类
+ *
+ * @param <T> 解析结果类型，解析器与保存器共用
+ */
+public interface CodeGenTypeHandler<T> {
+
+  /**
+   * 获取处理的生成类型
+   *
+   * @return 代码生成类型
+   */
+  CodeGenTypeEnum getCodeGenType();
+
+  /**
+   * 获取系统提示词资源路径（用于计算提示词版本）
+   *
+   * @return classpath 下的资源路径
+   */
+  String getSystemPromptResource();
+
+  /**
+   * 调用 AI 服务，获取代码流
+   *
+   * @param aiCodeGeneratorService AI 服务实例
+   * @param userMessage            用户提示词
+   * @return 代码流
+   */
+  Flux<String> openCodeStream(AiCodeGeneratorService aiCodeGeneratorService, String userMessage);
+
+  /**
+   * 获取解析器
+   *
+   * @return 代码解析器
+   */
+  CodeParser<T> getParser();
+
+  /**
+   * 获取保存器
+   *
+   * @return 代码保存器
+   */
+  CodeFileSaverTemplate<T> getSaver();
+}
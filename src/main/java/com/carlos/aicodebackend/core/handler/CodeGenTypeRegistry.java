@@ -0,0 +1,53 @@
+package com.carlos.aicodebackend.core.handler;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+import com.carlos.aicodebackend.exception.BusinessException;
+import com.carlos.aicodebackend.exception.ErrorCode;
+import com.carlos.aicodebackend.model.enums.CodeGenTypeEnum;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 代码生成类型注册表
+ * 启动时收集所有 {@link CodeGenTypeHandler} Bean，按生成类型存入 EnumMap，查找时直接按枚举序号取值
+ */
+@Slf4j
+@Component
+public class CodeGenTypeRegistry {
+
+  private final Map<CodeGenTypeEnum, CodeGenTypeHandler<?>> handlers = new EnumMap<>(CodeGenTypeEnum.class);
+
+  public CodeGenTypeRegistry(List<CodeGenTypeHandler<?>> handlers) {
+    for (CodeGenTypeHandler<?> handler : handlers) {
+      CodeGenTypeHandler<?> existing = this.handlers.putIfAbsent(handler.getCodeGenType(), handler);
+      if (existing != null) {
+        throw new BusinessException(ErrorCode.SYSTEM_ERROR, "生成类型重复注册: " + handler.getCodeGenType()
+            + "（" + existing.getClass().getSimpleName() + "、" + handler.getClass().getSimpleName() + "）");
+      }
+    }
+    for (CodeGenTypeEnum codeGenType : CodeGenTypeEnum.values()) {
+      if (!this.handlers.containsKey(codeGenType)) {
+        log.warn("生成类型没有对应的处理器: {}", codeGenType.getValue());
+      }
+    }
+  }
+
+  /**
+   * 获取生成类型对应的处理器
+   *
+   * @param codeGenType 代码生成类型
+   * @return 处理器
+   */
+  public CodeGenTypeHandler<?> getHandler(CodeGenTypeEnum codeGenType) {
+    CodeGenTypeHandler<?> handler = codeGenType == null ? null : handlers.get(codeGenType);
+    if (handler == null) {
+      throw new BusinessException(ErrorCode.SYSTEM_ERROR, "不支持的代码生成类型: " + codeGenType);
+    }
+    return handler;
+  }
+}
@@ -0,0 +1,49 @@
+package com.carlos.aicodebackend.core.handler;
+
+import org.springframework.stereotype.Component;
+
+import com.carlos.aicodebackend.ai.AiCodeGeneratorService;
+import com.carlos.aicodebackend.ai.model.HtmlCodeResult;
+import com.carlos.aicodebackend.core.parser.CodeParser;
+import com.carlos.aicodebackend.core.parser.HtmlCodeParser;
+import com.carlos.aicodebackend.core.saver.CodeFileSaverTemplate;
+import com.carlos.aicodebackend.core.saver.HtmlCodeFileSaverTemplate;
+import com.carlos.aicodebackend.model.enums.CodeGenTypeEnum;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * 原生 HTML 模式处理器
+ */
+@Component
+public class HtmlCodeGenTypeHandler implements CodeGenTypeHandler<HtmlCodeResult> {
+
+  private final HtmlCodeParser parser = new HtmlCodeParser();
+
+  private final HtmlCodeFileSaverTemplate saver = new HtmlCodeFileSaverTemplate();
+
+  @Override
+  public CodeGenTypeEnum getCodeGenType() {
+    return CodeGenTypeEnum.HTML;
+  }
+
+  @Override
+  public String getSystemPromptResource() {
+    return "prompt/codegen-html-system-prompt.md";
+  }
+
+  @Override
+  public Flux<String> openCodeStream(AiCodeGeneratorService aiCodeGeneratorService, String userMessage) {
+    return aiCodeGeneratorService.generateHtmlCodeStream(userMessage);
+  }
+
+  @Override
+  public CodeParser<HtmlCodeResult> getParser() {
+    return parser;
+  }
+
+  @Override
+  public CodeFileSaverTemplate<HtmlCodeResult> getSaver() {
+    return saver;
+  }
+}
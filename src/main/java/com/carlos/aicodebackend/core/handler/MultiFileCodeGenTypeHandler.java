@@ -0,0 +1,49 @@
+package com.carlos.aicodebackend.core.handler;
+
+import org.springframework.stereotype.Component;
+
+import com.carlos.aicodebackend.ai.AiCodeGeneratorService;
+import com.carlos.aicodebackend.ai.model.MultiFileCodeResult;
+import com.carlos.aicodebackend.core.parser.CodeParser;
+import com.carlos.aicodebackend.core.parser.MultiFileCodeParser;
+import com.carlos.aicodebackend.core.saver.CodeFileSaverTemplate;
+import com.carlos.aicodebackend.core.saver.MultiFileCodeFileSaverTemplate;
+import com.carlos.aicodebackend.model.enums.CodeGenTypeEnum;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * 原生多文件模式处理器
+ */
+@Component
+public class MultiFileCodeGenTypeHandler implements CodeGenTypeHandler<MultiFileCodeResult> {
+
+  private final MultiFileCodeParser parser = new MultiFileCodeParser();
+
+  private final MultiFileCodeFileSaverTemplate saver = new MultiFileCodeFileSaverTemplate();
+
+  @Override
+  public CodeGenTypeEnum getCodeGenType() {
+    return CodeGenTypeEnum.MULTI_FILE;
+  }
+
+  @Override
+  public String getSystemPromptResource() {
+    return "prompt/codegen-multi-file-system-prompt.md";
+  }
+
+  @Override
+  public Flux<String> openCodeStream(AiCodeGeneratorService aiCodeGeneratorService, String userMessage) {
+    return aiCodeGeneratorService.generateMultiFileCodeStream(userMessage);
+  }
+
+  @Override
+  public CodeParser<MultiFileCodeResult> getParser() {
+    return parser;
+  }
+
+  @Override
+  public CodeFileSaverTemplate<MultiFileCodeResult> getSaver() {
+    return saver;
+  }
+}
@@ -0,0 +1,59 @@
+package com.carlos.aicodebackend.core.handler;
+
+import org.springframework.stereotype.Component;
+
+import com.carlos.aicodebackend.ai.AiCodeGeneratorService;
+import com.carlos.aicodebackend.ai.model.ProjectCodeResult;
+import com.carlos.aicodebackend.config.CodeGenProperties;
+import com.carlos.aicodebackend.core.parser.CodeParser;
+import com.carlos.aicodebackend.core.parser.FileTreeLimits;
+import com.carlos.aicodebackend.core.parser.ProjectCodeParser;
+import com.carlos.aicodebackend.core.saver.CodeFileSaverTemplate;
+import com.carlos.aicodebackend.core.saver.ProjectCodeFileSaverTemplate;
+import com.carlos.aicodebackend.model.enums.CodeGenTypeEnum;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * 原生项目模式处理器，解析器和保存器共用配置的文件树限制
+ */
+@Component
+public class ProjectCodeGenTypeHandler implements CodeGenTypeHandler<ProjectCodeResult> {
+
+  private final ProjectCodeParser parser;
+
+  private final ProjectCodeFileSaverTemplate saver;
+
+  public ProjectCodeGenTypeHandler(CodeGenProperties codeGenProperties) {
+    CodeGenProperties.Project project = codeGenProperties.getProject();
+    FileTreeLimits limits = new FileTreeLimits(project.getMaxFiles(), project.getMaxFileBytes(),
+        project.getMaxTotalBytes());
+    this.parser = new ProjectCodeParser(limits);
+    this.saver = new ProjectCodeFileSaverTemplate(limits);
+  }
+
+  @Override
+  public CodeGenTypeEnum getCodeGenType() {
+    return CodeGenTypeEnum.PROJECT;
+  }
+
+  @Override
+  public String getSystemPromptResource() {
+    return "prompt/codegen-project-system-prompt.md";
+  }
+
+  @Override
+  public Flux<String> openCodeStream(AiCodeGeneratorService aiCodeGeneratorService, String userMessage) {
+    return aiCodeGeneratorService.generateProjectCodeStream(userMessage);
+  }
+
+  @Override
+  public CodeParser<ProjectCodeResult> getParser() {
+    return parser;
+  }
+
+  @Override
+  public CodeFileSaverTemplate<ProjectCodeResult> getSaver() {
+    return saver;
+  }
+}
@@ -0,0 +1,38 @@
+package com.carlos.aicodebackend.core.parser;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 已闭合的围栏代码块
+ * 记录代码块的语言和在原始输出中的位置（已去除首尾空白）
+ */
+@Getter
+@AllArgsConstructor
+public class CodeBlock {
+
+  /**
+   * 规范化后的语言标识（如 html、css、js）
+   */
+  private final String language;
+
+  /**
+   * 围栏开头的完整信息行（去除首尾空白）
+   */
+  private final String info;
+
+  /**
+   * 代码内容在原始输出中的起始位置（包含）
+   */
+  private final int start;
+
+  /**
+   * 代码内容在原始输出中的结束位置（不包含）
+   */
+  private final int end;
+
+  /**
+   * 代码内容
+   */
+  private final String content;
+}
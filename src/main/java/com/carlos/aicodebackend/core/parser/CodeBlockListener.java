@@ -0,0 +1,41 @@
+package com.carlos.aicodebackend.core.parser;
+
+/**
+ * 流式代码块监听器
+ * 由 {@link StreamingCodeParser} 在代码块开始、内容增长、闭合和丢弃时回调
+ */
+public interface CodeBlockListener {
+
+  /**
+   * 代码块开始
+   *
+   * @param language 规范化后的语言标识
+   * @param info     围栏开头的完整信息行
+   */
+  default void onBlockStart(String language, String info) {
+  }
+
+  /**
+   * 代码块新增内容（各次回调拼接后即为去除首尾空白的代码内容）
+   *
+   * @param language 规范化后的语言标识
+   * @param delta    新增内容
+   */
+  default void onBlockContent(String language, CharSequence delta) {
+  }
+
+  /**
+   * 代码块闭合
+   *
+   * @param block 已闭合的代码块
+   */
+  void onBlockComplete(CodeBlock block);
+
+  /**
+   * 未闭合的代码块被丢弃（流结束或中断时）
+   *
+   * @param language 规范化后的语言标识
+   */
+  default void onBlockDiscard(String language) {
+  }
+}
@@ -9,4 +9,12 @@ public interface CodeParser<T> {
    * @return 解析后的结果对象
    */
   T parseCode(String codeContent);
+
+  /**
+   * 从流式解析器中组装结果（代码块已在流式过程中解析完成）
+   *
+   * @param streamingParser 已结束的流式解析器
+   * @return 解析后的结果对象
+   */
+  T parseCode(StreamingCodeParser streamingParser);
 }
\ No newline at end of file
@@ -0,0 +1,199 @@
+package com.carlos.aicodebackend.core.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 围栏代码块扫描器
+ * 对整段输出做一次线性扫描，找出全部已闭合的 ``` 代码块，只记录语言、信息行和内容位置（已去除首尾空白），
+ * 由调用方在最后按需截取字符串，没有正则回溯。识别规则与 {@link StreamingCodeParser} 一致：
+ * ``` 之后到行尾为信息行，信息行的首个单词为语言标识，之后的第一个 ``` 为结束标记，未闭合的代码块忽略
+ */
+public final class FenceScanner {
+
+  private static final String FENCE = "```";
+
+  private FenceScanner() {
+  }
+
+  /**
+   * 扫描全部已闭合的代码块
+   *
+   * @param text 原始输出
+   * @return 按出现顺序排列的代码块位置
+   */
+  public static List<Fence> scan(CharSequence text) {
+    List<Fence> fences = new ArrayList<>();
+    int from = 0;
+    Fence fence;
+    while ((fence = next(text, from)) != null) {
+      fences.add(fence);
+      from = fence.closeEnd();
+    }
+    return fences;
+  }
+
+  /**
+   * 查找指定语言的第一个已闭合代码块，找到后即停止扫描
+   *
+   * @param text     原始输出
+   * @param language 规范化后的语言标识
+   * @return 代码块位置，不存在时返回 null
+   */
+  public static Fence findFirst(CharSequence text, String language) {
+    int from = 0;
+    Fence fence;
+    while ((fence = next(text, from)) != null) {
+      if (fence.language().equals(language)) {
+        return fence;
+      }
+      from = fence.closeEnd();
+    }
+    return null;
+  }
+
+  /**
+   * 规范化语言标识：js / javascript / mjs 统一为 js，html / htm 统一为 html，其余转为小写
+   *
+   * @param text  包含语言标识的内容
+   * @param start 语言标识起始位置（包含）
+   * @param end   语言标识结束位置（不包含）
+   * @return 规范化后的语言标识
+   */
+  static String normalizeLanguage(CharSequence text, int start, int end) {
+    // 常见语言直接比较，不创建字符串
+    if (matches(text, start, end, "html") || matches(text, start, end, "htm")) {
+      return "html";
+    }
+    if (matches(text, start, end, "css")) {
+      return "css";
+    }
+    if (matches(text, start, end, "js") || matches(text, start, end, "javascript")
+        || matches(text, start, end, "mjs")) {
+      return "js";
+    }
+    return text.subSequence(start, end).toString().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * 从 from 开始查找下一个已闭合的代码块
+   */
+  private static Fence next(CharSequence text, int from) {
+    int open = indexOfFence(text, from);
+    if (open < 0) {
+      return null;
+    }
+    int infoStart = open + FENCE.length();
+    int lineEnd = indexOf(text, '\n', infoStart);
+    if (lineEnd < 0) {
+      return null;
+    }
+    int close = indexOfFence(text, lineEnd + 1);
+    if (close < 0) {
+      return null;
+    }
+    int languageStart = infoStart;
+    while (languageStart < lineEnd && text.charAt(languageStart) <= ' ') {
+      languageStart++;
+    }
+    int languageEnd = languageStart;
+    while (languageEnd < lineEnd && text.charAt(languageEnd) > ' ') {
+      languageEnd++;
+    }
+    int infoEnd = lineEnd;
+    while (infoEnd > languageStart && text.charAt(infoEnd - 1) <= ' ') {
+      infoEnd--;
+    }
+    // 与 String#trim 一致去除内容首尾空白
+    int contentStart = lineEnd + 1;
+    int contentEnd = close;
+    while (contentStart < contentEnd && text.charAt(contentStart) <= ' ') {
+      contentStart++;
+    }
+    while (contentEnd > contentStart && text.charAt(contentEnd - 1) <= ' ') {
+      contentEnd--;
+    }
+    return new Fence(normalizeLanguage(text, languageStart, languageEnd), languageStart, infoEnd, contentStart,
+        contentEnd, close + FENCE.length());
+  }
+
+  private static boolean matches(CharSequence text, int start, int end, String expected) {
+    if (end - start != expected.length()) {
+      return false;
+    }
+    for (int i = 0; i < expected.length(); i++) {
+      // 语言标识只比较 ASCII 字母，按位或 0x20 即为小写
+      if ((text.charAt(start + i) | 0x20) != expected.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int indexOfFence(CharSequence text, int from) {
+    if (text instanceof String string) {
+      return string.indexOf(FENCE, from);
+    }
+    int last = text.length() - FENCE.length();
+    for (int i = from; i <= last; i++) {
+      if (text.charAt(i) == '`' && text.charAt(i + 1) == '`' && text.charAt(i + 2) == '`') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static int indexOf(CharSequence text, char c, int from) {
+    if (text instanceof String string) {
+      return string.indexOf(c, from);
+    }
+    for (int i = from; i < text.length(); i++) {
+      if (text.charAt(i) == c) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * 已闭合代码块的位置
+   *
+   * @param language     规范化后的语言标识
+   * @param infoStart    信息行起始位置（包含，已去除首部空白）
+   * @param infoEnd      信息行结束位置（不包含，已去除尾部空白）
+   * @param contentStart 内容起始位置（包含，已去除首部空白）
+   * @param contentEnd   内容结束位置（不包含，已去除尾部空白）
+   * @param closeEnd     结束标记之后的位置
+   */
+  public record Fence(String language, int infoStart, int infoEnd, int contentStart, int contentEnd,
+      int closeEnd) {
+
+    /**
+     * 是否没有内容（只有空白）
+     */
+    public boolean isEmpty() {
+      return contentStart == contentEnd;
+    }
+
+    /**
+     * 截取信息行（与 {@link CodeBlock#getInfo()} 一致）
+     *
+     * @param text 扫描时使用的原始输出
+     * @return 信息行
+     */
+    public String info(CharSequence text) {
+      return text.subSequence(infoStart, infoEnd).toString();
+    }
+
+    /**
+     * 截取代码内容
+     *
+     * @param text 扫描时使用的原始输出
+     * @return 代码内容
+     */
+    public String content(CharSequence text) {
+      return text.subSequence(contentStart, contentEnd).toString();
+    }
+  }
+}
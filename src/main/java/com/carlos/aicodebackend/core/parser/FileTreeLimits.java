@@ -0,0 +1,17 @@
+package com.carlos.aicodebackend.core.parser;
+
+/**
+ * 文件树的大小限制，解析时由 {@link VirtualFileTree} 校验，流式保存时由保存器校验
+ *
+ * @param maxFiles      文件数上限
+ * @param maxFileBytes  单个文件的字节数上限（UTF-8）
+ * @param maxTotalBytes 全部文件的字节数上限（UTF-8）
+ */
+public record FileTreeLimits(int maxFiles, long maxFileBytes, long maxTotalBytes) {
+
+  /**
+   * 不限制
+   */
+  public static final FileTreeLimits UNLIMITED = new FileTreeLimits(Integer.MAX_VALUE, Long.MAX_VALUE,
+      Long.MAX_VALUE);
+}
@@ -1,22 +1,16 @@
 package com.carlos.aicodebackend.core.parser;
 
-import java.util.regex.Pattern;
-import java.util.regex.Matcher;
-
 import com.carlos.aicodebackend.ai.model.HtmlCodeResult;
 
 public class HtmlCodeParser implements CodeParser<HtmlCodeResult> {
 
-  private static final Pattern HTML_CODE_PATTERN = Pattern.compile("```html\\s*\\n([\\s\\S]*?)```",
-      Pattern.CASE_INSENSITIVE);
-
   @Override
   public HtmlCodeResult parseCode(String codeContent) {
     HtmlCodeResult result = new HtmlCodeResult();
-    // 提取 HTML 代码
-    String htmlCode = extractHtmlCode(codeContent);
-    if (htmlCode != null && !htmlCode.trim().isEmpty()) {
-      result.setHtmlCode(htmlCode.trim());
+    // 提取 HTML 代码（扫描到第一个 html 代码块即停止）
+    FenceScanner.Fence htmlFence = FenceScanner.findFirst(codeContent, "html");
+    if (htmlFence != null && !htmlFence.isEmpty()) {
+      result.setHtmlCode(htmlFence.content(codeContent));
     } else {
       // 如果没有找到代码块，将整个内容作为HTML
       result.setHtmlCode(codeContent.trim());
@@ -24,17 +18,17 @@ public class HtmlCodeParser implements CodeParser<HtmlCodeResult> {
     return result;
   }
 
-  /**
-   * 提取HTML代码内容
-   *
-   * @param content 原始内容
-   * @return HTML代码
-   */
-  private String extractHtmlCode(String content) {
-    Matcher matcher = HTML_CODE_PATTERN.matcher(content);
-    if (matcher.find()) {
-      return matcher.group(1);
+  @Override
+  public HtmlCodeResult parseCode(StreamingCodeParser streamingParser) {
+    HtmlCodeResult result = new HtmlCodeResult();
+    CodeBlock htmlBlock = streamingParser.getFirstBlock("html");
+    if (htmlBlock != null && !htmlBlock.getContent().isEmpty()) {
+      result.setHtmlCode(htmlBlock.getContent());
+    } else {
+      // 如果没有找到代码块，将整个内容作为HTML
+      result.setHtmlCode(streamingParser.getSource().toString().trim());
     }
-    return null;
+    return result;
   }
+
 }
\ No newline at end of file
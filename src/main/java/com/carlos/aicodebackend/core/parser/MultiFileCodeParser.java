@@ -1,53 +1,66 @@
 package com.carlos.aicodebackend.core.parser;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 import com.carlos.aicodebackend.ai.model.MultiFileCodeResult;
 
 public class MultiFileCodeParser implements CodeParser<MultiFileCodeResult> {
 
-  private static final Pattern HTML_CODE_PATTERN = Pattern.compile("```html\\s*\\n([\\s\\S]*?)```",
-      Pattern.CASE_INSENSITIVE);
-  private static final Pattern CSS_CODE_PATTERN = Pattern.compile("```css\\s*\\n([\\s\\S]*?)```",
-      Pattern.CASE_INSENSITIVE);
-  private static final Pattern JS_CODE_PATTERN = Pattern.compile("```(?:js|javascript)\\s*\\n([\\s\\S]*?)```",
-      Pattern.CASE_INSENSITIVE);
-
   @Override
   public MultiFileCodeResult parseCode(String codeContent) {
     MultiFileCodeResult result = new MultiFileCodeResult();
-    // 提取各类代码
-    String htmlCode = extractCodeByPattern(codeContent, HTML_CODE_PATTERN);
-    String cssCode = extractCodeByPattern(codeContent, CSS_CODE_PATTERN);
-    String jsCode = extractCodeByPattern(codeContent, JS_CODE_PATTERN);
-    // 设置HTML代码
-    if (htmlCode != null && !htmlCode.trim().isEmpty()) {
-      result.setHtmlCode(htmlCode.trim());
-    }
-    // 设置CSS代码
-    if (cssCode != null && !cssCode.trim().isEmpty()) {
-      result.setCssCode(cssCode.trim());
-    }
-    // 设置JS代码
-    if (jsCode != null && !jsCode.trim().isEmpty()) {
-      result.setJsCode(jsCode.trim());
+    // 一次扫描找出全部代码块，各语言取第一个，最后才截取字符串
+    FenceScanner.Fence htmlFence = null;
+    FenceScanner.Fence cssFence = null;
+    FenceScanner.Fence jsFence = null;
+    for (FenceScanner.Fence fence : FenceScanner.scan(codeContent)) {
+      switch (fence.language()) {
+        case "html" -> htmlFence = htmlFence == null ? fence : htmlFence;
+        case "css" -> cssFence = cssFence == null ? fence : cssFence;
+        case "js" -> jsFence = jsFence == null ? fence : jsFence;
+        default -> {
+        }
+      }
     }
+    result.setHtmlCode(getFenceContent(codeContent, htmlFence));
+    result.setCssCode(getFenceContent(codeContent, cssFence));
+    result.setJsCode(getFenceContent(codeContent, jsFence));
     return result;
   }
 
+  @Override
+  public MultiFileCodeResult parseCode(StreamingCodeParser streamingParser) {
+    MultiFileCodeResult result = new MultiFileCodeResult();
+    result.setHtmlCode(getBlockContent(streamingParser, "html"));
+    result.setCssCode(getBlockContent(streamingParser, "css"));
+    result.setJsCode(getBlockContent(streamingParser, "js"));
+    return result;
+  }
+
+  /**
+   * 获取指定语言第一个非空代码块的内容
+   *
+   * @param streamingParser 流式解析器
+   * @param language        语言标识
+   * @return 代码内容，不存在时返回 null
+   */
+  private String getBlockContent(StreamingCodeParser streamingParser, String language) {
+    CodeBlock block = streamingParser.getFirstBlock(language);
+    if (block == null || block.getContent().isEmpty()) {
+      return null;
+    }
+    return block.getContent();
+  }
+
   /**
-   * 根据正则模式提取代码
+   * 截取代码块内容
    *
-   * @param content 原始内容
-   * @param pattern 正则模式
-   * @return 提取的代码
+   * @param codeContent 原始内容
+   * @param fence       代码块位置，可为 null
+   * @return 代码内容，代码块不存在或为空时返回 null
    */
-  private String extractCodeByPattern(String content, Pattern pattern) {
-    Matcher matcher = pattern.matcher(content);
-    if (matcher.find()) {
-      return matcher.group(1);
+  private String getFenceContent(String codeContent, FenceScanner.Fence fence) {
+    if (fence == null || fence.isEmpty()) {
+      return null;
     }
-    return null;
+    return fence.content(codeContent);
   }
 }
\ No newline at end of file
@@ -0,0 +1,105 @@
+package com.carlos.aicodebackend.core.parser;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import com.carlos.aicodebackend.ai.model.ProjectCodeResult;
+
+import cn.hutool.core.util.StrUtil;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 项目代码解析器
+ * 解析带路径标注的代码块（如 ```js path=src/app.js），构建虚拟文件树；没有路径标注的代码块视为说明忽略，
+ * 同一路径只取第一个代码块；路径不合法（越出项目目录、含不支持的字符等）的代码块跳过并记录日志。
+ * 以上规则均与流式保存一致，流式保存已写入的文件与解析结果相同
+ */
+@Slf4j
+public class ProjectCodeParser implements CodeParser<ProjectCodeResult> {
+
+  private static final String PATH_ATTRIBUTE = "path=";
+
+  private final FileTreeLimits limits;
+
+  public ProjectCodeParser(FileTreeLimits limits) {
+    this.limits = limits;
+  }
+
+  /**
+   * 从信息行中提取路径标注，路径可用单引号或双引号包裹
+   *
+   * @param info 围栏开头的信息行
+   * @return 标注的路径（未规范化），没有标注时返回 null
+   */
+  public static String getAnnotatedPath(String info) {
+    int index = info.indexOf(PATH_ATTRIBUTE);
+    // 只匹配独立的属性，不匹配 xpath= 之类
+    while (index > 0 && !Character.isWhitespace(info.charAt(index - 1))) {
+      index = info.indexOf(PATH_ATTRIBUTE, index + 1);
+    }
+    if (index < 0) {
+      return null;
+    }
+    int start = index + PATH_ATTRIBUTE.length();
+    if (start < info.length() && (info.charAt(start) == '"' || info.charAt(start) == '\'')) {
+      int end = info.indexOf(info.charAt(start), start + 1);
+      return end < 0 ? null : info.substring(start + 1, end);
+    }
+    int end = start;
+    while (end < info.length() && !Character.isWhitespace(info.charAt(end))) {
+      end++;
+    }
+    return end > start ? info.substring(start, end) : null;
+  }
+
+  @Override
+  public ProjectCodeResult parseCode(String codeContent) {
+    FileTreeBuilder builder = new FileTreeBuilder();
+    for (FenceScanner.Fence fence : FenceScanner.scan(codeContent)) {
+      String path = getAnnotatedPath(fence.info(codeContent));
+      if (path != null) {
+        builder.add(path, fence.content(codeContent));
+      }
+    }
+    return builder.build();
+  }
+
+  @Override
+  public ProjectCodeResult parseCode(StreamingCodeParser streamingParser) {
+    FileTreeBuilder builder = new FileTreeBuilder();
+    for (CodeBlock block : streamingParser.getCompletedBlocks()) {
+      String path = getAnnotatedPath(block.getInfo());
+      if (path != null) {
+        builder.add(path, block.getContent());
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * 按出现顺序添加代码块，同一路径只取第一个（内容为空或只有空白时也占用该路径，与保存器一致不生成文件）
+   */
+  private class FileTreeBuilder {
+
+    private final VirtualFileTree fileTree = new VirtualFileTree(limits);
+
+    private final Set<String> seenPaths = new HashSet<>();
+
+    void add(String path, String content) {
+      String normalized = VirtualFileTree.normalizePath(path);
+      if (normalized == null) {
+        log.warn("跳过路径不合法的代码块: {}", path);
+        return;
+      }
+      if (seenPaths.add(normalized) && StrUtil.isNotBlank(content)) {
+        fileTree.addFile(normalized, content);
+      }
+    }
+
+    ProjectCodeResult build() {
+      ProjectCodeResult result = new ProjectCodeResult();
+      result.setFileTree(fileTree);
+      return result;
+    }
+  }
+}
@@ -0,0 +1,239 @@
+package com.carlos.aicodebackend.core.parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.carlos.aicodebackend.core.ChunkAccumulator;
+import com.carlos.aicodebackend.exception.BusinessException;
+import com.carlos.aicodebackend.exception.ErrorCode;
+
+/**
+ * 流式代码解析器
+ * 基于状态机在流式输出过程中增量扫描内容，识别 ```html / ```css / ```js 围栏，
+ * 每个代码块闭合时立即产出完整的文件内容，流结束后无需再对完整响应做正则匹配。
+ * 原始输出保存在（可与其他环节共享的）{@link ChunkAccumulator} 中，解析器只记录位置
+ */
+public class StreamingCodeParser {
+
+  private static final String FENCE = "```";
+
+  /**
+   * 解析状态
+   */
+  private enum State {
+    /**
+     * 围栏外的普通文本
+     */
+    TEXT,
+    /**
+     * 围栏开头的信息行（语言标识）
+     */
+    INFO,
+    /**
+     * 围栏内的代码内容
+     */
+    CODE
+  }
+
+  private final ChunkAccumulator source;
+
+  private final List<CodeBlock> completedBlocks = new ArrayList<>();
+
+  private final CodeBlockListener listener;
+
+  private State state = State.TEXT;
+
+  // 下一个待扫描的位置
+  private int cursor;
+
+  // 当前代码块信息行的起始位置
+  private int infoStart;
+
+  private String currentInfo;
+
+  private String currentLanguage;
+
+  // 当前代码块首个非空白字符位置，-1 表示尚未出现
+  private int contentStart = -1;
+
+  // 当前代码块最后一个非空白字符之后的位置
+  private int contentEnd;
+
+  // 当前代码块已通知监听器的内容结束位置
+  private int notifiedEnd;
+
+  private boolean finished;
+
+  public StreamingCodeParser() {
+    this(new ChunkAccumulator(), null);
+  }
+
+  public StreamingCodeParser(CodeBlockListener listener) {
+    this(new ChunkAccumulator(), listener);
+  }
+
+  /**
+   * @param source   输出累加器，解析器负责向其追加片段
+   * @param listener 代码块监听器，可为空
+   */
+  public StreamingCodeParser(ChunkAccumulator source, CodeBlockListener listener) {
+    this.source = source;
+    this.listener = listener;
+  }
+
+  /**
+   * 追加一段流式输出并推进解析
+   *
+   * @param chunk 输出片段
+   */
+  public void append(CharSequence chunk) {
+    if (finished) {
+      throw new BusinessException(ErrorCode.SYSTEM_ERROR, "解析器已结束，无法继续追加内容");
+    }
+    source.append(chunk);
+    scan();
+  }
+
+  /**
+   * 结束解析，未闭合的代码块将被丢弃
+   */
+  public void finish() {
+    if (finished) {
+      return;
+    }
+    finished = true;
+    if (state == State.CODE && listener != null) {
+      listener.onBlockDiscard(currentLanguage);
+    }
+    state = State.TEXT;
+  }
+
+  /**
+   * 获取指定语言的第一个已闭合代码块
+   *
+   * @param language 规范化后的语言标识
+   * @return 代码块，不存在时返回 null
+   */
+  public CodeBlock getFirstBlock(String language) {
+    for (CodeBlock block : completedBlocks) {
+      if (block.getLanguage().equals(language)) {
+        return block;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * 获取全部已闭合的代码块
+   */
+  public List<CodeBlock> getCompletedBlocks() {
+    return Collections.unmodifiableList(completedBlocks);
+  }
+
+  /**
+   * 获取已消费的原始输出
+   */
+  public ChunkAccumulator getSource() {
+    return source;
+  }
+
+  /**
+   * 规范化语言标识（别名规则见 {@link FenceScanner#normalizeLanguage}）
+   *
+   * @param language 原始语言标识
+   * @return 规范化后的语言标识
+   */
+  public static String normalizeLanguage(String language) {
+    return FenceScanner.normalizeLanguage(language, 0, language.length());
+  }
+
+  /**
+   * 从上次停下的位置继续扫描，遇到不完整的围栏时等待后续内容
+   */
+  private void scan() {
+    int length = source.length();
+    while (cursor < length) {
+      switch (state) {
+        case TEXT -> {
+          int fence = source.indexOf(FENCE, cursor);
+          if (fence < 0) {
+            // 末尾可能是半个围栏，保留最后两个字符等待下次扫描
+            cursor = Math.max(cursor, length - 2);
+            return;
+          }
+          infoStart = fence + FENCE.length();
+          cursor = infoStart;
+          state = State.INFO;
+        }
+        case INFO -> {
+          int lineEnd = source.indexOf("\n", cursor);
+          if (lineEnd < 0) {
+            cursor = length;
+            return;
+          }
+          openBlock(source.substring(infoStart, lineEnd).trim());
+          cursor = lineEnd + 1;
+          state = State.CODE;
+        }
+        case CODE -> {
+          int fence = source.indexOf(FENCE, cursor);
+          int scanEnd = fence < 0 ? Math.max(cursor, length - 2) : fence;
+          trackContent(cursor, scanEnd);
+          if (fence < 0) {
+            cursor = scanEnd;
+            return;
+          }
+          closeBlock();
+          cursor = fence + FENCE.length();
+          state = State.TEXT;
+        }
+      }
+    }
+  }
+
+  private void openBlock(String info) {
+    int split = 0;
+    while (split < info.length() && !Character.isWhitespace(info.charAt(split))) {
+      split++;
+    }
+    currentInfo = info;
+    currentLanguage = normalizeLanguage(info.substring(0, split));
+    contentStart = -1;
+    contentEnd = 0;
+    notifiedEnd = 0;
+    if (listener != null) {
+      listener.onBlockStart(currentLanguage, currentInfo);
+    }
+  }
+
+  /**
+   * 记录代码内容的有效范围（等价于对代码块内容做 trim）
+   */
+  private void trackContent(int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (source.charAt(i) > ' ') {
+        if (contentStart < 0) {
+          contentStart = i;
+          notifiedEnd = i;
+        }
+        contentEnd = i + 1;
+      }
+    }
+    // 末尾空白暂不通知，等后续出现非空白字符时再一并推送
+    if (listener != null && contentEnd > notifiedEnd) {
+      listener.onBlockContent(currentLanguage, source.subSequence(notifiedEnd, contentEnd));
+      notifiedEnd = contentEnd;
+    }
+  }
+
+  private void closeBlock() {
+    int start = contentStart < 0 ? cursor : contentStart;
+    int end = contentStart < 0 ? cursor : contentEnd;
+    CodeBlock block = new CodeBlock(currentLanguage, currentInfo, start, end, source.substring(start, end));
+    completedBlocks.add(block);
+    if (listener != null) {
+      listener.onBlockComplete(block);
+    }
+  }
+}
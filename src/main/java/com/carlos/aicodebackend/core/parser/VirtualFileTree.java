@@ -0,0 +1,214 @@
+package com.carlos.aicodebackend.core.parser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+import com.carlos.aicodebackend.exception.BusinessException;
+import com.carlos.aicodebackend.exception.ErrorCode;
+
+/**
+ * 内存中的虚拟文件树
+ * 以相对路径组织目录和文件，添加文件时校验路径（不允许绝对路径、..、隐藏文件和文件与目录同名）
+ * 以及文件数和大小限制，保存时按路径顺序遍历写入
+ */
+public class VirtualFileTree {
+
+  /**
+   * 路径最大长度
+   */
+  private static final int MAX_PATH_LENGTH = 200;
+
+  /**
+   * 目录最大层数
+   */
+  private static final int MAX_DEPTH = 8;
+
+  private final FileTreeLimits limits;
+
+  private final Directory root = new Directory();
+
+  private int fileCount;
+
+  private long totalBytes;
+
+  public VirtualFileTree(FileTreeLimits limits) {
+    this.limits = limits;
+  }
+
+  /**
+   * 规范化文件路径：去除开头的 ./，分隔符统一为 /
+   *
+   * @param path 原始路径
+   * @return 规范化后的相对路径，路径不合法时返回 null
+   */
+  public static String normalizePath(String path) {
+    if (path == null) {
+      return null;
+    }
+    String normalized = path.trim().replace('\\', '/');
+    while (normalized.startsWith("./")) {
+      normalized = normalized.substring(2);
+    }
+    if (normalized.isEmpty() || normalized.length() > MAX_PATH_LENGTH || normalized.startsWith("/")) {
+      return null;
+    }
+    String[] segments = normalized.split("/", -1);
+    if (segments.length > MAX_DEPTH) {
+      return null;
+    }
+    for (String segment : segments) {
+      if (!isValidSegment(segment)) {
+        return null;
+      }
+    }
+    return normalized;
+  }
+
+  /**
+   * 添加文件，同一路径只保留第一次添加的内容
+   *
+   * @param path    文件路径
+   * @param content 文件内容
+   * @return 是否添加成功，路径已存在时返回 false
+   */
+  public boolean addFile(String path, String content) {
+    String normalized = normalizePath(path);
+    if (normalized == null) {
+      throw new BusinessException(ErrorCode.SYSTEM_ERROR, "文件路径不合法: " + path);
+    }
+    String[] segments = normalized.split("/");
+    Directory directory = root;
+    for (int i = 0; i < segments.length - 1; i++) {
+      Object child = directory.children.computeIfAbsent(segments[i], name -> new Directory());
+      if (!(child instanceof Directory childDirectory)) {
+        throw new BusinessException(ErrorCode.SYSTEM_ERROR, "文件路径与已有文件冲突: " + normalized);
+      }
+      directory = childDirectory;
+    }
+    String fileName = segments[segments.length - 1];
+    Object existing = directory.children.get(fileName);
+    if (existing instanceof Directory) {
+      throw new BusinessException(ErrorCode.SYSTEM_ERROR, "文件路径与已有目录冲突: " + normalized);
+    }
+    if (existing != null) {
+      return false;
+    }
+    long bytes = content.getBytes(StandardCharsets.UTF_8).length;
+    if (fileCount + 1 > limits.maxFiles()) {
+      throw new BusinessException(ErrorCode.SYSTEM_ERROR, "文件数超过上限 " + limits.maxFiles());
+    }
+    if (bytes > limits.maxFileBytes()) {
+      throw new BusinessException(ErrorCode.SYSTEM_ERROR,
+          "文件 " + normalized + " 超过大小上限 " + limits.maxFileBytes() + " 字节");
+    }
+    if (totalBytes + bytes > limits.maxTotalBytes()) {
+      throw new BusinessException(ErrorCode.SYSTEM_ERROR, "文件总大小超过上限 " + limits.maxTotalBytes() + " 字节");
+    }
+    directory.children.put(fileName, content);
+    fileCount++;
+    totalBytes += bytes;
+    return true;
+  }
+
+  /**
+   * 是否包含文件
+   *
+   * @param path 文件路径
+   */
+  public boolean containsFile(String path) {
+    return getFile(path) != null;
+  }
+
+  /**
+   * 获取文件内容
+   *
+   * @param path 文件路径
+   * @return 文件内容，不存在时返回 null
+   */
+  public String getFile(String path) {
+    String normalized = normalizePath(path);
+    if (normalized == null) {
+      return null;
+    }
+    Object node = root;
+    for (String segment : normalized.split("/")) {
+      if (!(node instanceof Directory directory)) {
+        return null;
+      }
+      node = directory.children.get(segment);
+    }
+    return node instanceof String content ? content : null;
+  }
+
+  /**
+   * 按路径顺序遍历全部文件
+   *
+   * @param consumer 接收文件路径和内容
+   */
+  public void forEachFile(BiConsumer<String, String> consumer) {
+    walk(root, "", consumer);
+  }
+
+  /**
+   * 获取全部文件（按路径排序）
+   *
+   * @return 文件路径到内容的只读映射
+   */
+  public Map<String, String> getFiles() {
+    Map<String, String> files = new LinkedHashMap<>();
+    forEachFile(files::put);
+    return Collections.unmodifiableMap(files);
+  }
+
+  public int getFileCount() {
+    return fileCount;
+  }
+
+  public long getTotalBytes() {
+    return totalBytes;
+  }
+
+  public boolean isEmpty() {
+    return fileCount == 0;
+  }
+
+  private static void walk(Directory directory, String prefix, BiConsumer<String, String> consumer) {
+    directory.children.forEach((name, node) -> {
+      if (node instanceof Directory childDirectory) {
+        walk(childDirectory, prefix + name + "/", consumer);
+      } else {
+        consumer.accept(prefix + name, (String) node);
+      }
+    });
+  }
+
+  /**
+   * 路径片段只允许字母、数字、点、下划线和中划线，不能以点开头（排除 .、.. 和隐藏文件）
+   */
+  private static boolean isValidSegment(String segment) {
+    if (segment.isEmpty() || segment.charAt(0) == '.') {
+      return false;
+    }
+    for (int i = 0; i < segment.length(); i++) {
+      char c = segment.charAt(i);
+      boolean valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+          || c == '.' || c == '_' || c == '-';
+      if (!valid) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * 目录节点：子节点为目录或文件内容，按名称排序
+   */
+  private static class Directory {
+
+    private final Map<String, Object> children = new TreeMap<>();
+  }
+}
@@ -1,47 +0,0 @@
-package com.carlos.aicodebackend.core.saver;
-
-import java.io.File;
-
-import com.carlos.aicodebackend.ai.model.HtmlCodeResult;
-import com.carlos.aicodebackend.ai.model.MultiFileCodeResult;
-import com.carlos.aicodebackend.exception.BusinessException;
-import com.carlos.aicodebackend.exception.ErrorCode;
-import com.carlos.aicodebackend.model.enums.CodeGenTypeEnum;
-
-public class CodeFileSaverExecutor {
-
-  private static final HtmlCodeFileSaverTemplate htmlCodeFileSaver = new HtmlCodeFileSaverTemplate();
-
-  private static final MultiFileCodeFileSaverTemplate multiFileCodeFileSaver = new MultiFileCodeFileSaverTemplate();
-
-  /**
-   * 执行代码保存
-   *
-   * @param codeResult  代码结果对象
-   * @param codeGenType 代码生成类型
-   * @return 保存的目录
-   */
-  public static File executeSaver(Object codeResult, CodeGenTypeEnum codeGenType) {
-    return switch (codeGenType) {
-      case HTML -> htmlCodeFileSaver.saveCode((HtmlCodeResult) codeResult);
-      case MULTI_FILE -> multiFileCodeFileSaver.saveCode((MultiFileCodeResult) codeResult);
-      default -> throw new BusinessException(ErrorCode.SYSTEM_ERROR, "不支持的代码生成类型: " + codeGenType);
-    };
-  }
-
-  /**
-   * 执行代码保存（使用 appId）
-   *
-   * @param codeResult  代码结果对象
-   * @param codeGenType 代码生成类型
-   * @param appId       应用 ID
-   * @return 保存的目录
-   */
-  public static File executeSaver(Object codeResult, CodeGenTypeEnum codeGenType, Long appId) {
-    return switch (codeGenType) {
-      case HTML -> htmlCodeFileSaver.saveCode((HtmlCodeResult) codeResult, appId);
-      case MULTI_FILE -> multiFileCodeFileSaver.saveCode((MultiFileCodeResult) codeResult, appId);
-      default -> throw new BusinessException(ErrorCode.SYSTEM_ERROR, "不支持的代码生成类型: " + codeGenType);
-    };
-  }
-}
\ No newline at end of file
@@ -1,8 +1,12 @@
 package com.carlos.aicodebackend.core.saver;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+import com.carlos.aicodebackend.core.parser.FileTreeLimits;
 import com.carlos.aicodebackend.exception.BusinessException;
 import com.carlos.aicodebackend.exception.ErrorCode;
 import com.carlos.aicodebackend.model.enums.CodeGenTypeEnum;
@@ -11,6 +15,7 @@ import com.carlos.aicodebackend.constant.AppConstant;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
 
 public abstract class CodeFileSaverTemplate<T> {
 
@@ -21,17 +26,18 @@ public abstract class CodeFileSaverTemplate<T> {
    * 模板方法：保存代码的标准流程
    *
    * @param result 代码结果对象
-   * @return 保存的目录
+   * @return 保存的目录和文件摘要
    */
-  public final File saveCode(T result) {
+  public final SavedFiles saveCode(T result) {
     // 1. 验证输入
     validateInput(result);
     // 2. 构建唯一目录
     String baseDirPath = buildUniqueDir();
-    // 3. 保存文件（具体实现由子类提供）
-    saveFiles(result, baseDirPath);
-    // 4. 返回目录文件对象
-    return new File(baseDirPath);
+    // 3. 保存文件（文件列表由子类提供）
+    Map<String, String> digests = writeFiles(result, baseDirPath);
+    afterSave(result, baseDirPath);
+    // 4. 返回目录和写入时计算的摘要
+    return new SavedFiles(new File(baseDirPath), digests);
   }
 
   /**
@@ -39,17 +45,60 @@ public abstract class CodeFileSaverTemplate<T> {
    *
    * @param result 代码结果对象
    * @param appId  应用 ID
-   * @return 保存的目录
+   * @return 保存的目录和文件摘要
    */
-  public final File saveCode(T result, Long appId) {
+  public final SavedFiles saveCode(T result, Long appId) {
     // 1. 验证输入
     validateInput(result);
     // 2. 构建基于 appId 的目录
     String baseDirPath = buildUniqueDir(appId);
-    // 3. 保存文件（具体实现由子类提供）
-    saveFiles(result, baseDirPath);
-    // 4. 返回目录文件对象
-    return new File(baseDirPath);
+    // 3. 保存文件（文件列表由子类提供）
+    Map<String, String> digests = writeFiles(result, baseDirPath);
+    afterSave(result, baseDirPath);
+    // 4. 返回目录和写入时计算的摘要
+    return new SavedFiles(new File(baseDirPath), digests);
+  }
+
+  /**
+   * 开启流式保存：代码块开始时即写入基于 appId 的目录
+   *
+   * @param appId 应用 ID
+   * @return 流式保存器（作为解析器的代码块监听器使用）
+   */
+  public final StreamingCodeFileSaver openStreamingSaver(Long appId) {
+    String baseDirPath = buildUniqueDir(appId);
+    return new StreamingCodeFileSaver(baseDirPath, this::getFileName, getSaveLimits());
+  }
+
+  /**
+   * 流式保存收尾：校验结果，通过后将暂存的文件移入保存目录；流式过程中没有成功落盘时整体补写。
+   * 校验失败时丢弃暂存的文件，保存目录不受影响
+   *
+   * @param result         代码结果对象
+   * @param streamingSaver 流式保存器
+   * @return 保存的目录和文件摘要
+   */
+  public final SavedFiles finishStreamingSave(T result, StreamingCodeFileSaver streamingSaver) {
+    try {
+      validateInput(result);
+    } catch (RuntimeException e) {
+      streamingSaver.close();
+      throw e;
+    }
+    Map<String, String> digests;
+    if (streamingSaver.hasWrittenFiles()) {
+      try {
+        streamingSaver.publish();
+      } catch (IOException e) {
+        throw new BusinessException(ErrorCode.SYSTEM_ERROR, "保存文件失败: " + e.getMessage());
+      }
+      digests = streamingSaver.getDigests();
+    } else {
+      streamingSaver.close();
+      digests = writeFiles(result, streamingSaver.getBaseDirPath());
+    }
+    afterSave(result, streamingSaver.getBaseDirPath());
+    return new SavedFiles(new File(streamingSaver.getBaseDirPath()), digests);
   }
 
   /**
@@ -93,18 +142,43 @@ public abstract class CodeFileSaverTemplate<T> {
     return dirPath;
   }
 
+  /**
+   * 写入子类提供的全部文件
+   *
+   * @param result      代码结果对象
+   * @param baseDirPath 基础目录路径
+   * @return 写入的文件路径到 SHA-256 的映射
+   */
+  private Map<String, String> writeFiles(T result, String baseDirPath) {
+    Map<String, String> digests = new LinkedHashMap<>();
+    getFiles(result).forEach((filename, content) -> {
+      String digest = writeToFile(baseDirPath, filename, content);
+      if (digest != null) {
+        digests.put(filename, digest);
+      }
+    });
+    return digests;
+  }
+
   /**
    * 写入单个文件的工具方法
    *
    * @param dirPath  目录路径
    * @param filename 文件名
    * @param content  文件内容
+   * @return 写入内容的 SHA-256，内容为空不写入时返回 null
    */
-  protected final void writeToFile(String dirPath, String filename, String content) {
-    if (StrUtil.isNotBlank(content)) {
-      String filePath = dirPath + File.separator + filename;
-      FileUtil.writeString(content, filePath, StandardCharsets.UTF_8);
+  private static String writeToFile(String dirPath, String filename, String content) {
+    if (StrUtil.isBlank(content)) {
+      return null;
     }
+    String filePath = dirPath + File.separator + filename;
+    byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+    // 已有文件可能是内容存储中共享对象的硬链接，先删除再写入，不能原地覆盖
+    FileUtil.del(filePath);
+    FileUtil.writeBytes(bytes, filePath);
+    // 摘要按写入的同一份字节计算，提交到内容存储时不必再读取文件
+    return DigestUtil.sha256Hex(bytes);
   }
 
   /**
@@ -115,10 +189,49 @@ public abstract class CodeFileSaverTemplate<T> {
   protected abstract CodeGenTypeEnum getCodeType();
 
   /**
-   * 保存文件的具体实现（由子类实现）
+   * 获取代码块语言对应的文件名（流式保存使用，可由子类覆盖）
+   *
+   * @param language 规范化后的语言标识
+   * @return 文件名，返回 null 表示不保存该语言的代码块
+   */
+  protected String getFileName(String language) {
+    return null;
+  }
+
+  /**
+   * 获取代码块对应的文件名（流式保存使用，需要按信息行决定文件名时由子类覆盖）
+   *
+   * @param language 规范化后的语言标识
+   * @param info     围栏开头的完整信息行
+   * @return 文件名（相对保存目录的路径），返回 null 表示不保存该代码块
+   */
+  protected String getFileName(String language, String info) {
+    return getFileName(language);
+  }
+
+  /**
+   * 获取流式保存的文件数和大小限制（可由子类覆盖）
+   *
+   * @return 限制，默认不限制
+   */
+  protected FileTreeLimits getSaveLimits() {
+    return FileTreeLimits.UNLIMITED;
+  }
+
+  /**
+   * 保存完成后的处理（可由子类覆盖）
    *
    * @param result      代码结果对象
    * @param baseDirPath 基础目录路径
    */
-  protected abstract void saveFiles(T result, String baseDirPath);
+  protected void afterSave(T result, String baseDirPath) {
+  }
+
+  /**
+   * 获取要保存的文件（由子类实现）
+   *
+   * @param result 代码结果对象
+   * @return 文件名（相对保存目录的路径）到内容的映射，内容为空的文件不保存
+   */
+  protected abstract Map<String, String> getFiles(T result);
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.carlos.aicodebackend.core.saver;
 
+import java.util.Map;
+
 import cn.hutool.core.util.StrUtil;
 import com.carlos.aicodebackend.ai.model.HtmlCodeResult;
 import com.carlos.aicodebackend.exception.BusinessException;
@@ -14,9 +16,14 @@ public class HtmlCodeFileSaverTemplate extends CodeFileSaverTemplate<HtmlCodeRes
   }
 
   @Override
-  protected void saveFiles(HtmlCodeResult result, String baseDirPath) {
+  protected Map<String, String> getFiles(HtmlCodeResult result) {
     // 保存 HTML 文件
-    writeToFile(baseDirPath, "index.html", result.getHtmlCode());
+    return Map.of("index.html", result.getHtmlCode());
+  }
+
+  @Override
+  protected String getFileName(String language) {
+    return "html".equals(language) ? "index.html" : null;
   }
 
   @Override
@@ -1,5 +1,8 @@
 package com.carlos.aicodebackend.core.saver;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import com.carlos.aicodebackend.ai.model.MultiFileCodeResult;
 import com.carlos.aicodebackend.exception.BusinessException;
 import com.carlos.aicodebackend.exception.ErrorCode;
@@ -15,13 +18,26 @@ public class MultiFileCodeFileSaverTemplate extends CodeFileSaverTemplate<MultiF
   }
 
   @Override
-  protected void saveFiles(MultiFileCodeResult result, String baseDirPath) {
+  protected Map<String, String> getFiles(MultiFileCodeResult result) {
+    // CSS 和 JS 可能为空，不能使用 Map.of
+    Map<String, String> files = new LinkedHashMap<>();
     // 保存 HTML 文件
-    writeToFile(baseDirPath, "index.html", result.getHtmlCode());
+    files.put("index.html", result.getHtmlCode());
     // 保存 CSS 文件
-    writeToFile(baseDirPath, "style.css", result.getCssCode());
+    files.put("style.css", result.getCssCode());
     // 保存 JavaScript 文件
-    writeToFile(baseDirPath, "script.js", result.getJsCode());
+    files.put("script.js", result.getJsCode());
+    return files;
+  }
+
+  @Override
+  protected String getFileName(String language) {
+    return switch (language) {
+      case "html" -> "index.html";
+      case "css" -> "style.css";
+      case "js" -> "script.js";
+      default -> null;
+    };
   }
 
   @Override
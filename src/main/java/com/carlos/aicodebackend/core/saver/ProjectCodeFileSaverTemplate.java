@@ -0,0 +1,98 @@
+package com.carlos.aicodebackend.core.saver;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import com.carlos.aicodebackend.ai.model.ProjectCodeResult;
+import com.carlos.aicodebackend.core.parser.FileTreeLimits;
+import com.carlos.aicodebackend.core.parser.ProjectCodeParser;
+import com.carlos.aicodebackend.core.parser.VirtualFileTree;
+import com.carlos.aicodebackend.exception.BusinessException;
+import com.carlos.aicodebackend.exception.ErrorCode;
+import com.carlos.aicodebackend.model.enums.CodeGenTypeEnum;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class ProjectCodeFileSaverTemplate extends CodeFileSaverTemplate<ProjectCodeResult> {
+
+  /**
+   * 入口文件，部署后通过目录地址访问
+   */
+  private static final String ENTRY_FILE = "index.html";
+
+  private final FileTreeLimits limits;
+
+  public ProjectCodeFileSaverTemplate(FileTreeLimits limits) {
+    this.limits = limits;
+  }
+
+  @Override
+  protected CodeGenTypeEnum getCodeType() {
+    return CodeGenTypeEnum.PROJECT;
+  }
+
+  @Override
+  protected Map<String, String> getFiles(ProjectCodeResult result) {
+    // 按文件树逐个写入，子目录自动创建
+    return result.getFileTree().getFiles();
+  }
+
+  @Override
+  protected String getFileName(String language, String info) {
+    return VirtualFileTree.normalizePath(ProjectCodeParser.getAnnotatedPath(info));
+  }
+
+  @Override
+  protected FileTreeLimits getSaveLimits() {
+    return limits;
+  }
+
+  @Override
+  protected void validateInput(ProjectCodeResult result) {
+    super.validateInput(result);
+    VirtualFileTree fileTree = result.getFileTree();
+    if (fileTree == null || fileTree.isEmpty()) {
+      throw new BusinessException(ErrorCode.SYSTEM_ERROR, "项目文件不能为空");
+    }
+    // 根目录必须有入口文件
+    if (!fileTree.containsFile(ENTRY_FILE)) {
+      throw new BusinessException(ErrorCode.SYSTEM_ERROR, "项目缺少入口文件 " + ENTRY_FILE);
+    }
+  }
+
+  /**
+   * 同一应用重新生成时目录会复用，删除不在本次文件树中的旧文件和空目录（保留清单等以点开头的文件）
+   */
+  @Override
+  protected void afterSave(ProjectCodeResult result, String baseDirPath) {
+    Path baseDir = Path.of(baseDirPath);
+    VirtualFileTree fileTree = result.getFileTree();
+    try (Stream<Path> paths = Files.walk(baseDir)) {
+      List<Path> candidates = paths
+          .filter(path -> !path.equals(baseDir))
+          .sorted(Comparator.reverseOrder())
+          .toList();
+      for (Path path : candidates) {
+        String relativePath = baseDir.relativize(path).toString().replace(File.separatorChar, '/');
+        if (Files.isDirectory(path)) {
+          try (Stream<Path> children = Files.list(path)) {
+            if (children.findAny().isEmpty()) {
+              Files.delete(path);
+            }
+          }
+        } else if (!path.getFileName().toString().startsWith(".") && !fileTree.containsFile(relativePath)) {
+          Files.delete(path);
+        }
+      }
+    } catch (IOException e) {
+      log.warn("清理旧文件失败: {}, {}", baseDirPath, e.getMessage());
+    }
+  }
+}
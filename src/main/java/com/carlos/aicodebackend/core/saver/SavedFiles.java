@@ -0,0 +1,13 @@
+package com.carlos.aicodebackend.core.saver;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ * 一次保存的结果
+ *
+ * @param dir     保存的目录
+ * @param digests 本次写入的文件在写入时计算的 SHA-256（相对路径到摘要），目录中的其他文件不在其中
+ */
+public record SavedFiles(File dir, Map<String, String> digests) {
+}
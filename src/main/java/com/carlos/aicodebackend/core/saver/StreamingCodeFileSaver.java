@@ -0,0 +1,352 @@
+package com.carlos.aicodebackend.core.saver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+import com.carlos.aicodebackend.core.parser.CodeBlock;
+import com.carlos.aicodebackend.core.parser.CodeBlockListener;
+import com.carlos.aicodebackend.core.parser.FileTreeLimits;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IORuntimeException;
+import cn.hutool.core.util.HexUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 流式代码文件保存器
+ * 代码块开始时打开临时文件，内容到达时经缓冲区写入文件通道，代码块闭合时原子替换为暂存目录中的文件。
+ * 暂存目录与保存目录同级（.目录名.随机串），收尾校验通过后由 {@link #publish()} 移入保存目录；
+ * 校验失败、出错或取消时整体丢弃，保存目录保持上一次生成的内容。
+ * 写入的同时计算 SHA-256，提交到内容存储时不必再读取文件。
+ * 每个文件只保存第一个代码块，与解析结果保持一致；文件可位于子目录中，超出文件数或大小限制视为写入失败。
+ * 写入失败时不中断流，由收尾阶段整体补写。
+ * 代码块回调在模型推送线程上执行，{@link #close()} 可能由取消或空闲超时在其他线程调用，各方法通过同一把锁串行执行，
+ * 关闭后到达的代码块直接忽略
+ */
+@Slf4j
+public class StreamingCodeFileSaver implements CodeBlockListener {
+
+  private static final int BUFFER_SIZE = 8 * 1024;
+
+  private static final String PART_SUFFIX = ".part";
+
+  private final String baseDirPath;
+
+  private final Path stagingDir;
+
+  private final BiFunction<String, String, String> fileNameResolver;
+
+  private final FileTreeLimits limits;
+
+  private final Set<String> handledFiles = new HashSet<>();
+
+  private final Set<String> writtenFiles = new HashSet<>();
+
+  // 已写入文件的 SHA-256
+  private final Map<String, String> digests = new LinkedHashMap<>();
+
+  private long writtenBytes;
+
+  private PendingFile current;
+
+  private boolean failed;
+
+  private boolean closed;
+
+  /**
+   * @param baseDirPath      保存目录
+   * @param fileNameResolver 代码块语言标识和信息行到文件名（相对路径）的映射，返回 null 表示不保存该代码块
+   */
+  StreamingCodeFileSaver(String baseDirPath, BiFunction<String, String, String> fileNameResolver) {
+    this(baseDirPath, fileNameResolver, FileTreeLimits.UNLIMITED);
+  }
+
+  /**
+   * @param baseDirPath      保存目录
+   * @param fileNameResolver 代码块语言标识和信息行到文件名（相对路径）的映射，返回 null 表示不保存该代码块
+   * @param limits           文件数和大小限制
+   */
+  StreamingCodeFileSaver(String baseDirPath, BiFunction<String, String, String> fileNameResolver,
+      FileTreeLimits limits) {
+    this.baseDirPath = baseDirPath;
+    Path baseDir = Path.of(baseDirPath).toAbsolutePath();
+    this.stagingDir = baseDir.resolveSibling("." + baseDir.getFileName() + "." + IdUtil.fastSimpleUUID());
+    this.fileNameResolver = fileNameResolver;
+    this.limits = limits;
+  }
+
+  @Override
+  public synchronized void onBlockStart(String language, String info) {
+    if (failed || closed) {
+      return;
+    }
+    String fileName = fileNameResolver.apply(language, info);
+    if (fileName == null || !handledFiles.add(fileName)) {
+      return;
+    }
+    try {
+      if (handledFiles.size() > limits.maxFiles()) {
+        throw new IOException("文件数超过上限 " + limits.maxFiles());
+      }
+      current = new PendingFile(language, fileName);
+    } catch (IOException e) {
+      fail("打开文件失败: " + fileName, e);
+    }
+  }
+
+  @Override
+  public synchronized void onBlockContent(String language, CharSequence delta) {
+    if (closed || current == null || !current.language.equals(language)) {
+      return;
+    }
+    try {
+      current.write(delta, false);
+    } catch (IOException e) {
+      fail("写入文件失败: " + current.fileName, e);
+    }
+  }
+
+  @Override
+  public synchronized void onBlockComplete(CodeBlock block) {
+    if (closed || current == null || !current.language.equals(block.getLanguage())) {
+      return;
+    }
+    PendingFile pendingFile = current;
+    current = null;
+    try {
+      if (pendingFile.commit()) {
+        writtenFiles.add(pendingFile.fileName);
+        digests.put(pendingFile.fileName, HexUtil.encodeHexStr(pendingFile.digest.digest()));
+      }
+    } catch (IOException e) {
+      pendingFile.discard();
+      fail("保存文件失败: " + pendingFile.fileName, e);
+    }
+  }
+
+  @Override
+  public synchronized void onBlockDiscard(String language) {
+    if (current != null && current.language.equals(language)) {
+      current.discard();
+      current = null;
+    }
+  }
+
+  /**
+   * 丢弃尚未完成的文件和暂存的文件，并停止接收代码块（校验失败、出错或取消时调用，可重复调用）
+   */
+  public synchronized void close() {
+    closed = true;
+    if (current != null) {
+      current.discard();
+      current = null;
+    }
+    deleteStagingDir();
+  }
+
+  /**
+   * 将暂存的文件移入保存目录（收尾校验通过后调用），之后不再接收代码块
+   *
+   * @throws IOException 移动文件失败，暂存目录仍会被删除
+   */
+  synchronized void publish() throws IOException {
+    closed = true;
+    if (current != null) {
+      current.discard();
+      current = null;
+    }
+    try {
+      for (String fileName : writtenFiles) {
+        Path target = Path.of(baseDirPath, fileName);
+        Files.createDirectories(target.getParent());
+        moveReplacing(stagingDir.resolve(fileName), target);
+      }
+    } finally {
+      deleteStagingDir();
+    }
+  }
+
+  /**
+   * 是否已通过流式方式完整写入文件
+   */
+  public synchronized boolean hasWrittenFiles() {
+    return !failed && !writtenFiles.isEmpty();
+  }
+
+  /**
+   * 流式写入过程中是否出现失败
+   */
+  public synchronized boolean isFailed() {
+    return failed;
+  }
+
+  /**
+   * 已写入文件的 SHA-256（写入时计算）
+   *
+   * @return 文件名（相对保存目录的路径）到摘要的只读映射
+   */
+  public synchronized Map<String, String> getDigests() {
+    return Collections.unmodifiableMap(new LinkedHashMap<>(digests));
+  }
+
+  public String getBaseDirPath() {
+    return baseDirPath;
+  }
+
+  private void fail(String message, IOException e) {
+    log.error("流式保存代码{}，将在生成完成后整体保存: {}", message, e.getMessage());
+    failed = true;
+    close();
+  }
+
+  private void deleteStagingDir() {
+    try {
+      FileUtil.del(stagingDir);
+    } catch (IORuntimeException e) {
+      log.warn("清理暂存目录失败: {}, {}", stagingDir, e.getMessage());
+    }
+  }
+
+  private static void moveReplacing(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private static MessageDigest newSha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // 所有 JDK 都必须支持 SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * 正在写入的文件：先写入暂存目录中的临时文件，完成后原子替换
+   */
+  private class PendingFile {
+
+    private final String language;
+
+    private final String fileName;
+
+    private final Path partPath;
+
+    private final FileChannel channel;
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private final MessageDigest digest = newSha256();
+
+    // 上次编码剩余的半个代理对
+    private CharBuffer leftover;
+
+    // 是否只收到空白内容
+    private boolean blank = true;
+
+    PendingFile(String language, String fileName) throws IOException {
+      this.language = language;
+      this.fileName = fileName;
+      this.partPath = stagingDir.resolve(fileName + PART_SUFFIX);
+      Files.createDirectories(partPath.getParent());
+      this.channel = FileChannel.open(partPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+          StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    void write(CharSequence delta, boolean endOfInput) throws IOException {
+      CharBuffer input = CharBuffer.wrap(delta);
+      if (leftover != null) {
+        input = CharBuffer.wrap(leftover.toString() + delta);
+        leftover = null;
+      }
+      if (blank && StrUtil.isNotBlank(delta)) {
+        blank = false;
+      }
+      while (true) {
+        CoderResult result = encoder.encode(input, buffer, endOfInput);
+        if (result.isOverflow()) {
+          drain();
+          continue;
+        }
+        if (result.isError()) {
+          result.throwException();
+        }
+        break;
+      }
+      if (input.hasRemaining()) {
+        leftover = CharBuffer.wrap(input.toString());
+      }
+    }
+
+    /**
+     * 刷新剩余内容并原子替换为暂存目录中的目标文件
+     *
+     * @return 是否写入了非空内容
+     */
+    boolean commit() throws IOException {
+      write("", true);
+      while (encoder.flush(buffer).isOverflow()) {
+        drain();
+      }
+      drain();
+      channel.close();
+      if (blank) {
+        // 与整体保存和解析结果保持一致：空白内容不生成文件
+        Files.deleteIfExists(partPath);
+        return false;
+      }
+      moveReplacing(partPath, stagingDir.resolve(fileName));
+      return true;
+    }
+
+    void discard() {
+      try {
+        channel.close();
+        Files.deleteIfExists(partPath);
+      } catch (IOException e) {
+        log.warn("清理临时文件失败: {}, {}", partPath, e.getMessage());
+      }
+    }
+
+    private void drain() throws IOException {
+      buffer.flip();
+      writtenBytes += buffer.remaining();
+      digest.update(buffer.duplicate());
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      buffer.clear();
+      if (channel.position() > limits.maxFileBytes()) {
+        throw new IOException("文件超过大小上限 " + limits.maxFileBytes() + " 字节");
+      }
+      if (writtenBytes > limits.maxTotalBytes()) {
+        throw new IOException("文件总大小超过上限 " + limits.maxTotalBytes() + " 字节");
+      }
+    }
+  }
+}
@@ -0,0 +1,481 @@
+package com.carlos.aicodebackend.core.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.carlos.aicodebackend.constant.AppConstant;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IORuntimeException;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 内容寻址的生成文件存储
+ * 文件按内容的 SHA-256 存放在两级分片目录中（objects/ab/cd/abcd...），应用的生成目录和部署目录只保存
+ * 指向这些对象的硬链接。生成目录中有记录路径到摘要映射的清单文件（.manifest.json）；部署目录对外提供访问，
+ * 清单保存在存储目录的 deploys/目录名.json 中，不随部署内容公开。相同内容在所有应用间只占一份磁盘空间，
+ * 保存器在写入时计算摘要，提交和部署都只是元数据操作。
+ * 引用计数即对象文件的硬链接数：目录中的文件被替换或删除后，链接数回到 1 的对象即不再被引用，随即删除。
+ * 文件系统不支持硬链接时退化为复制，结果与原来一致。
+ * 目录中的文件只能整体替换（写入临时文件后重命名，或先删除再写入），不能原地修改，否则会改动共享的对象。
+ * 删除应用时通过 {@link #deleteTree(Path)} 删除目录并释放对象，异常退出等情况下遗留的对象由定期的全量清理回收
+ */
+@Slf4j
+@Component
+public class BlobStore {
+
+  /**
+   * 清单文件名（以点开头，不会与生成的文件冲突）
+   */
+  public static final String MANIFEST_FILE = ".manifest.json";
+
+  private static final String OBJECTS_DIR = "objects";
+
+  private static final String DEPLOYS_DIR = "deploys";
+
+  private static final String PART_SUFFIX = ".part";
+
+  private final Path objectsDir;
+
+  private final Path deploysDir;
+
+  @Autowired
+  public BlobStore() {
+    this(Path.of(AppConstant.CODE_BLOB_ROOT_DIR));
+  }
+
+  BlobStore(Path rootDir) {
+    this.objectsDir = rootDir.resolve(OBJECTS_DIR);
+    this.deploysDir = rootDir.resolve(DEPLOYS_DIR);
+  }
+
+  /**
+   * 将目录中的文件提交到存储，文件摘要均需读取文件计算（见 {@link #commit(Path, Map)}）
+   *
+   * @param dir 生成目录或部署目录
+   * @return 路径到 SHA-256 的清单，提交失败时返回 null
+   */
+  public Map<String, String> commit(Path dir) {
+    return commit(dir, Collections.emptyMap());
+  }
+
+  /**
+   * 将目录中的文件提交到存储：按内容摘要替换为对象的硬链接，并写入清单。
+   * 保存器写入时已计算摘要的文件和已经是对应对象硬链接的文件不再读取内容，只有其余文件需要读取计算；
+   * 被替换掉的旧对象在没有其他引用时删除
+   *
+   * @param dir         生成目录或部署目录
+   * @param knownHashes 写入时计算的摘要（相对路径到 SHA-256），必须与文件当前内容一致
+   * @return 路径到 SHA-256 的清单，提交失败时返回 null（目录中的文件保持完整，不影响使用）
+   */
+  public Map<String, String> commit(Path dir, Map<String, String> knownHashes) {
+    try {
+      Map<String, String> previous = readManifest(dir);
+      Map<String, String> manifest = new TreeMap<>();
+      for (Path file : listFiles(dir)) {
+        String path = relativePath(dir, file);
+        String hash = knownHashes.get(path);
+        if (hash == null) {
+          hash = previous.get(path);
+          if (hash != null && isLinked(file, hash)) {
+            manifest.put(path, hash);
+            continue;
+          }
+          hash = DigestUtil.sha256Hex(file.toFile());
+        }
+        if (!isLinked(file, hash)) {
+          link(file, hash);
+        }
+        manifest.put(path, hash);
+      }
+      writeManifest(dir, manifest);
+      release(removedHashes(previous, manifest));
+      return manifest;
+    } catch (IOException e) {
+      log.warn("提交生成文件到内容存储失败: {}, {}", dir, e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * 按源目录的清单在目标目录中创建硬链接（用于部署），目标目录整体替换，原有内容不再保留。
+   * 新内容先在同级的版本目录（.目录名.随机串）中建好，目标路径是指向版本目录的符号链接，
+   * 发布时原子地替换该链接，任何时刻目标路径都指向一份完整的内容；不支持符号链接时退化为目录互换，失败时还原。
+   * 目标目录的清单写在存储目录中（见 {@link #deployManifestFile(Path)}），不放进对外提供的目录。
+   * 源目录无法提交时直接链接或复制源文件
+   *
+   * @param sourceDir 源目录
+   * @param targetDir 目标目录
+   * @throws IOException 创建链接或替换目录失败
+   */
+  public void linkTree(Path sourceDir, Path targetDir) throws IOException {
+    Map<String, String> manifest = commit(sourceDir);
+    Path manifestFile = deployManifestFile(targetDir);
+    Map<String, String> previous = readDeployManifest(targetDir);
+    Path versionDir = targetDir.toAbsolutePath()
+        .resolveSibling("." + targetDir.getFileName() + "." + IdUtil.fastSimpleUUID());
+    boolean published = false;
+    try {
+      Files.createDirectories(versionDir);
+      for (Path file : listFiles(sourceDir)) {
+        String path = relativePath(sourceDir, file);
+        Path target = versionDir.resolve(path);
+        Files.createDirectories(target.getParent());
+        String hash = manifest == null ? null : manifest.get(path);
+        // 对象可能刚被并发删除，此时源文件仍是同一份内容
+        Path blob = hash == null ? null : blobPath(hash);
+        createLinkOrCopy(blob != null && Files.exists(blob) ? blob : file, target);
+      }
+      publish(versionDir, targetDir.toAbsolutePath());
+      published = true;
+    } finally {
+      if (!published) {
+        FileUtil.del(versionDir);
+      }
+    }
+    if (manifest != null) {
+      writeManifestFile(manifestFile, manifest);
+    } else {
+      Files.deleteIfExists(manifestFile);
+    }
+    release(removedHashes(previous, manifest == null ? Collections.emptyMap() : manifest));
+  }
+
+  /**
+   * 获取对象的引用数（存储之外的硬链接数）
+   *
+   * @param hash SHA-256
+   * @return 引用数，对象不存在时为 0，无法获取链接数时为 -1
+   */
+  public int getReferenceCount(String hash) {
+    Path blob = blobPath(hash);
+    try {
+      return linkCount(blob) - 1;
+    } catch (NoSuchFileException e) {
+      return 0;
+    } catch (IOException | UnsupportedOperationException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * 对象是否存在
+   *
+   * @param hash SHA-256
+   */
+  public boolean contains(String hash) {
+    return Files.exists(blobPath(hash));
+  }
+
+  /**
+   * 删除生成目录或部署目录（部署目录是符号链接时连同它指向的版本目录），并释放不再被引用的对象
+   *
+   * @param dir 目录，不存在时忽略
+   */
+  public void deleteTree(Path dir) {
+    if (!Files.exists(dir, LinkOption.NOFOLLOW_LINKS)) {
+      return;
+    }
+    Map<String, String> manifest = new HashMap<>(readManifest(dir));
+    manifest.putAll(readManifestFile(deployManifestFile(dir)));
+    try {
+      Files.deleteIfExists(deployManifestFile(dir));
+      if (Files.isSymbolicLink(dir)) {
+        Path versionDir = dir.toAbsolutePath().resolveSibling(Files.readSymbolicLink(dir));
+        Files.delete(dir);
+        FileUtil.del(versionDir);
+      } else {
+        FileUtil.del(dir);
+      }
+    } catch (IOException | IORuntimeException e) {
+      log.warn("删除目录失败: {}, {}", dir, e.getMessage());
+      return;
+    }
+    release(manifest.values());
+  }
+
+  /**
+   * 定期全量清理，间隔见 code-gen.blob-gc-interval
+   */
+  @Scheduled(initialDelayString = "${code-gen.blob-gc-interval:6h}",
+      fixedDelayString = "${code-gen.blob-gc-interval:6h}")
+  public void scheduledCollectGarbage() {
+    int deleted = collectGarbage();
+    if (deleted > 0) {
+      log.info("内容存储清理了 {} 个没有引用的对象", deleted);
+    }
+  }
+
+  /**
+   * 全量清理没有引用的对象（引用在异常退出时可能没有及时释放）
+   *
+   * @return 删除的对象数
+   */
+  public int collectGarbage() {
+    if (!Files.isDirectory(objectsDir)) {
+      return 0;
+    }
+    List<String> hashes = new ArrayList<>();
+    try (Stream<Path> blobs = Files.walk(objectsDir)) {
+      blobs.filter(Files::isRegularFile).forEach(blob -> hashes.add(blob.getFileName().toString()));
+    } catch (IOException e) {
+      log.warn("遍历内容存储失败: {}", e.getMessage());
+    }
+    return release(hashes);
+  }
+
+  /**
+   * 删除不再被引用的对象
+   *
+   * @return 删除的对象数
+   */
+  private int release(Collection<String> hashes) {
+    int deleted = 0;
+    for (String hash : hashes) {
+      if (getReferenceCount(hash) == 0) {
+        try {
+          if (Files.deleteIfExists(blobPath(hash))) {
+            deleted++;
+          }
+        } catch (IOException e) {
+          log.warn("删除内容对象失败: {}, {}", hash, e.getMessage());
+        }
+      }
+    }
+    return deleted;
+  }
+
+  /**
+   * 将文件替换为对象的硬链接，对象不存在时由该文件创建（零复制）
+   */
+  private void link(Path file, String hash) throws IOException {
+    Path blob = blobPath(hash);
+    Files.createDirectories(blob.getParent());
+    // 与并发的提交或清理竞争时重试
+    for (int attempt = 0; attempt < 3; attempt++) {
+      if (!Files.exists(blob)) {
+        try {
+          Files.createLink(blob, file);
+          makeReadOnly(blob);
+          return;
+        } catch (FileAlreadyExistsException e) {
+          // 其他应用刚提交了相同内容
+        } catch (UnsupportedOperationException e) {
+          return;
+        }
+      }
+      Path tempLink = file.resolveSibling("." + file.getFileName() + "." + IdUtil.fastSimpleUUID());
+      try {
+        Files.createLink(tempLink, blob);
+        moveReplacing(tempLink, file);
+        return;
+      } catch (NoSuchFileException e) {
+        // 对象刚被清理，重新由该文件创建
+      } catch (UnsupportedOperationException e) {
+        return;
+      } finally {
+        Files.deleteIfExists(tempLink);
+      }
+    }
+  }
+
+  private boolean isLinked(Path file, String hash) {
+    try {
+      return Files.isSameFile(file, blobPath(hash));
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private static void createLinkOrCopy(Path source, Path target) throws IOException {
+    try {
+      Files.createLink(target, source);
+    } catch (FileAlreadyExistsException e) {
+      throw e;
+    } catch (UnsupportedOperationException | IOException e) {
+      Files.copy(source, target);
+    }
+  }
+
+  /**
+   * 发布版本目录：目标路径不存在或已是符号链接时，原子地把它替换为指向新版本的符号链接，再删除旧版本；
+   * 否则（此前按目录部署，或不支持符号链接）互换目录
+   */
+  private static void publish(Path versionDir, Path targetDir) throws IOException {
+    if (!Files.exists(targetDir, LinkOption.NOFOLLOW_LINKS) || Files.isSymbolicLink(targetDir)) {
+      Path oldVersionDir = Files.isSymbolicLink(targetDir)
+          ? targetDir.resolveSibling(Files.readSymbolicLink(targetDir)) : null;
+      Path tempLink = versionDir.resolveSibling(versionDir.getFileName() + ".link");
+      try {
+        // 相对链接，整个部署目录移动后仍然有效
+        Files.createSymbolicLink(tempLink, versionDir.getFileName());
+        moveReplacing(tempLink, targetDir);
+      } catch (UnsupportedOperationException | IOException e) {
+        Files.deleteIfExists(tempLink);
+        if (Files.isSymbolicLink(targetDir)) {
+          throw e;
+        }
+        log.warn("无法通过符号链接发布，改为替换目录: {}, {}", targetDir, e.getMessage());
+        replaceDir(versionDir, targetDir);
+        return;
+      }
+      if (oldVersionDir != null && !oldVersionDir.equals(versionDir)) {
+        FileUtil.del(oldVersionDir);
+      }
+      return;
+    }
+    replaceDir(versionDir, targetDir);
+  }
+
+  /**
+   * 用新目录替换目标目录：先把旧目录移开，再把新目录移入，移入失败时把旧目录移回，最后删除旧目录
+   */
+  private static void replaceDir(Path newDir, Path targetDir) throws IOException {
+    Path oldDir = null;
+    if (Files.exists(targetDir, LinkOption.NOFOLLOW_LINKS)) {
+      oldDir = newDir.resolveSibling(newDir.getFileName() + ".old");
+      Files.move(targetDir, oldDir);
+    }
+    try {
+      Files.move(newDir, targetDir);
+    } catch (IOException e) {
+      if (oldDir != null) {
+        Files.move(oldDir, targetDir);
+      }
+      throw e;
+    }
+    if (oldDir != null) {
+      FileUtil.del(oldDir);
+    }
+  }
+
+  private static List<Path> listFiles(Path dir) throws IOException {
+    try (Stream<Path> files = Files.walk(dir)) {
+      return files.filter(Files::isRegularFile)
+          .filter(file -> {
+            String name = file.getFileName().toString();
+            // 跳过清单、临时文件和流式保存未完成的文件
+            return !name.startsWith(".") && !name.endsWith(PART_SUFFIX);
+          })
+          .toList();
+    }
+  }
+
+  /**
+   * 部署目录的清单文件：存储目录下的 deploys/目录名.json
+   */
+  private Path deployManifestFile(Path targetDir) {
+    return deploysDir.resolve(targetDir.getFileName() + ".json");
+  }
+
+  /**
+   * 读取部署目录的清单，兼容清单仍在部署目录中的旧部署
+   */
+  private Map<String, String> readDeployManifest(Path targetDir) {
+    Path manifestFile = deployManifestFile(targetDir);
+    return Files.exists(manifestFile) ? readManifestFile(manifestFile) : readManifest(targetDir);
+  }
+
+  private static Map<String, String> readManifest(Path dir) {
+    return readManifestFile(dir.resolve(MANIFEST_FILE));
+  }
+
+  private static Map<String, String> readManifestFile(Path manifestFile) {
+    if (!Files.exists(manifestFile)) {
+      return Collections.emptyMap();
+    }
+    try {
+      JSONObject files = JSONUtil.parseObj(Files.readString(manifestFile, StandardCharsets.UTF_8))
+          .getJSONObject("files");
+      Map<String, String> manifest = new TreeMap<>();
+      if (files != null) {
+        files.forEach((path, hash) -> manifest.put(path, String.valueOf(hash)));
+      }
+      return manifest;
+    } catch (Exception e) {
+      log.warn("读取清单失败: {}, {}", manifestFile, e.getMessage());
+      return Collections.emptyMap();
+    }
+  }
+
+  private static void writeManifest(Path dir, Map<String, String> manifest) throws IOException {
+    writeManifestFile(dir.resolve(MANIFEST_FILE), manifest);
+  }
+
+  private static void writeManifestFile(Path manifestFile, Map<String, String> manifest) throws IOException {
+    Path tempFile = manifestFile.resolveSibling(manifestFile.getFileName() + ".tmp");
+    Files.createDirectories(manifestFile.getParent());
+    String json = JSONUtil.createObj().set("algorithm", "SHA-256").set("files", manifest).toStringPretty();
+    Files.writeString(tempFile, json, StandardCharsets.UTF_8);
+    moveReplacing(tempFile, manifestFile);
+  }
+
+  private static Set<String> removedHashes(Map<String, String> previous, Map<String, String> current) {
+    Set<String> removed = new HashSet<>(previous.values());
+    removed.removeAll(current.values());
+    return removed;
+  }
+
+  private static void moveReplacing(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * 对象设为只读，防止通过任一硬链接原地修改共享内容
+   */
+  private static void makeReadOnly(Path blob) {
+    PosixFileAttributeView view = Files.getFileAttributeView(blob, PosixFileAttributeView.class);
+    if (view == null) {
+      return;
+    }
+    try {
+      view.setPermissions(PosixFilePermissions.fromString("r--r--r--"));
+    } catch (IOException e) {
+      log.warn("设置内容对象只读失败: {}, {}", blob, e.getMessage());
+    }
+  }
+
+  private static int linkCount(Path path) throws IOException {
+    return ((Number) Files.getAttribute(path, "unix:nlink")).intValue();
+  }
+
+  private static String relativePath(Path dir, Path file) {
+    return dir.relativize(file).toString().replace(File.separatorChar, '/');
+  }
+
+  private Path blobPath(String hash) {
+    return objectsDir.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+  }
+}
@@ -29,4 +29,15 @@ public enum ErrorCode {
         this.message = message;
     }
 
+    /**
+     * 错误码对应的 HTTP 状态码：取错误码的前三位（如 40000 为 400），不是错误状态码时为 500
+     *
+     * @param code 错误码
+     * @return HTTP 状态码
+     */
+    public static int toHttpStatus(int code) {
+        int status = code / 100;
+        return status >= 400 && status < 600 ? status : 500;
+    }
+
 }
\ No newline at end of file
@@ -2,8 +2,13 @@ package com.carlos.aicodebackend.exception;
 
 import com.carlos.aicodebackend.common.BaseResponse;
 import com.carlos.aicodebackend.common.ResultUtils;
+import com.carlos.aicodebackend.core.StreamMessageEncoder;
 import io.swagger.v3.oas.annotations.Hidden;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
@@ -13,14 +18,42 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 public class GlobalExceptionHandler {
 
     @ExceptionHandler(BusinessException.class)
-    public BaseResponse<?> businessExceptionHandler(BusinessException e) {
+    public Object businessExceptionHandler(BusinessException e, HttpServletRequest request) {
         log.error("BusinessException", e);
+        if (isEventStream(request)) {
+            return eventStreamError(e.getCode(), e.getMessage());
+        }
         return ResultUtils.error(e.getCode(), e.getMessage());
     }
 
     @ExceptionHandler(RuntimeException.class)
-    public BaseResponse<?> runtimeExceptionHandler(RuntimeException e) {
+    public Object runtimeExceptionHandler(RuntimeException e, HttpServletRequest request) {
         log.error("RuntimeException", e);
+        if (isEventStream(request)) {
+            return eventStreamError(ErrorCode.SYSTEM_ERROR.getCode(), "系统错误");
+        }
         return ResultUtils.error(ErrorCode.SYSTEM_ERROR, "系统错误");
     }
+
+    /**
+     * 是否为 SSE 请求（流式接口无法写出 JSON 格式的 {@link BaseResponse}）
+     */
+    private static boolean isEventStream(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE);
+    }
+
+    /**
+     * SSE 请求的错误响应：HTTP 状态码见 {@link ErrorCode#toHttpStatus(int)}，响应体为一条 error 事件
+     * （与 Netty 流式服务一致）
+     *
+     * @param code    错误码
+     * @param message 错误信息
+     * @return 错误响应
+     */
+    private static ResponseEntity<String> eventStreamError(int code, String message) {
+        return ResponseEntity.status(ErrorCode.toHttpStatus(code))
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .body(StreamMessageEncoder.encodeError(message));
+    }
 }
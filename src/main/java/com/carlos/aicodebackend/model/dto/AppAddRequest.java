@@ -17,5 +17,10 @@ public class AppAddRequest implements Serializable {
      */
     private String initPrompt;
 
+    /**
+     * 代码生成类型（html / multi_file / project），不传时为多文件模式
+     */
+    private String codeGenType;
+
     private static final long serialVersionUID = 1L;
 }
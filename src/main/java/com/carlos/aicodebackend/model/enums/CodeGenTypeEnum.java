@@ -7,7 +7,8 @@ import lombok.Getter;
 public enum CodeGenTypeEnum {
 
   HTML("原生 HTML 模式", "html"),
-  MULTI_FILE("原生多文件模式", "multi_file");
+  MULTI_FILE("原生多文件模式", "multi_file"),
+  PROJECT("原生项目模式", "project");
 
   private final String text;
   private final String value;
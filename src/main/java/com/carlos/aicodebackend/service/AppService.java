@@ -2,6 +2,7 @@ package com.carlos.aicodebackend.service;
 
 import com.mybatisflex.core.query.QueryWrapper;
 import com.mybatisflex.core.service.IService;
+import com.carlos.aicodebackend.ai.model.message.StreamMessage;
 import com.carlos.aicodebackend.model.dto.AppAdminQueryRequest;
 import com.carlos.aicodebackend.model.dto.AppQueryRequest;
 import com.carlos.aicodebackend.model.entity.App;
@@ -64,9 +65,28 @@ public interface AppService extends IService<App> {
      * @param appId    应用 ID
      * @param message  用户消息
      * @param loginUser 登录用户
-     * @return 生成结果流
+     * @return 生成结果流（AI 响应片段及保存结果消息）
      */
-    Flux<String> chatToGenCode(Long appId, String message, User loginUser);
+    Flux<StreamMessage> chatToGenCode(Long appId, String message, User loginUser);
+
+    /**
+     * 断线重连后续传生成结果
+     *
+     * @param appId       应用 ID
+     * @param lastEventId 客户端最后收到的事件 ID（生成 ID:序号）
+     * @param loginUser   登录用户
+     * @return 该事件之后的生成结果流
+     */
+    Flux<StreamMessage> resumeGenCode(Long appId, String lastEventId, User loginUser);
+
+    /**
+     * 旁观应用正在进行的生成（不会发起新的生成）
+     *
+     * @param appId     应用 ID
+     * @param loginUser 登录用户
+     * @return 生成结果流，从缓冲区中最早的消息开始
+     */
+    Flux<StreamMessage> watchGenCode(Long appId, User loginUser);
 
     /**
      * 部署应用
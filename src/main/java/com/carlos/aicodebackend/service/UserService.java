@@ -60,6 +60,14 @@ public interface UserService extends IService<User> {
    */
   User getLoginUser(HttpServletRequest request);
 
+  /**
+   * 根据 session 中保存的登录态获取当前登录用户（非 Servlet 请求使用）
+   *
+   * @param sessionUser session 中的登录态，可为 null
+   * @return 当前登录用户
+   */
+  User getLoginUser(User sessionUser);
+
   /**
    * 用户注销
    *
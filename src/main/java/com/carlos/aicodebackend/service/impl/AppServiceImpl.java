@@ -8,6 +8,7 @@ import com.mybatisflex.spring.service.impl.ServiceImpl;
 import com.carlos.aicodebackend.model.dto.AppAdminQueryRequest;
 import com.carlos.aicodebackend.model.dto.AppQueryRequest;
 import com.carlos.aicodebackend.model.entity.App;
+import com.carlos.aicodebackend.model.entity.ChatHistory;
 import com.carlos.aicodebackend.model.entity.User;
 import com.carlos.aicodebackend.mapper.AppMapper;
 import com.carlos.aicodebackend.model.vo.AppVO;
@@ -16,6 +17,14 @@ import com.carlos.aicodebackend.service.AppService;
 import com.carlos.aicodebackend.service.ChatHistoryService;
 import com.carlos.aicodebackend.service.UserService;
 import com.carlos.aicodebackend.core.AiCodeGeneratorFacade;
+import com.carlos.aicodebackend.core.ChunkAccumulator;
+import com.carlos.aicodebackend.core.CodeGenAdmissionController;
+import com.carlos.aicodebackend.core.CodeGenCompletionExecutor;
+import com.carlos.aicodebackend.core.CodeGenMetrics;
+import com.carlos.aicodebackend.core.GenerationStream;
+import com.carlos.aicodebackend.core.GenerationStreamRegistry;
+import com.carlos.aicodebackend.core.store.BlobStore;
+import com.carlos.aicodebackend.ai.model.message.StreamMessage;
 import com.carlos.aicodebackend.model.enums.CodeGenTypeEnum;
 import com.carlos.aicodebackend.model.enums.ChatHistoryMessageTypeEnum;
 import com.carlos.aicodebackend.exception.ThrowUtils;
@@ -23,17 +32,20 @@ import com.carlos.aicodebackend.exception.ErrorCode;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import lombok.extern.slf4j.Slf4j;
 
 import com.carlos.aicodebackend.constant.AppConstant;
-import cn.hutool.core.io.FileUtil;
+import com.carlos.aicodebackend.constant.UserConstant;
 import cn.hutool.core.util.RandomUtil;
 import java.io.File;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 /**
@@ -54,6 +66,21 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
     @Autowired
     private ChatHistoryService chatHistoryService;
 
+    @Autowired
+    private CodeGenCompletionExecutor completionExecutor;
+
+    @Autowired
+    private GenerationStreamRegistry generationStreamRegistry;
+
+    @Autowired
+    private CodeGenAdmissionController admissionController;
+
+    @Autowired
+    private CodeGenMetrics codeGenMetrics;
+
+    @Autowired
+    private BlobStore blobStore;
+
     @Override
     public AppVO getAppVO(App app) {
         if (app == null) {
@@ -194,7 +221,7 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
     }
 
     @Override
-    public Flux<String> chatToGenCode(Long appId, String message, User loginUser) {
+    public Flux<StreamMessage> chatToGenCode(Long appId, String message, User loginUser) {
         // 1. 参数校验
         ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用 ID 不能为空");
         ThrowUtils.throwIf(StrUtil.isBlank(message), ErrorCode.PARAMS_ERROR, "用户消息不能为空");
@@ -215,32 +242,138 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
             throw new com.carlos.aicodebackend.exception.BusinessException(ErrorCode.SYSTEM_ERROR, "不支持的代码生成类型");
         }
 
-        // 5. 通过校验后，添加用户消息到对话历史
+        // 5. 精选应用和管理员走准入控制的优先通道
+        boolean priority = AppConstant.GOOD_APP_PRIORITY.equals(app.getPriority())
+                || UserConstant.ADMIN_ROLE.equals(loginUser.getUserRole());
+
+        // 6. 同一应用、同一提示词的重复请求（双击、客户端重试）合并到正在进行的生成上，
+        // 从缓冲区中最早的消息开始接收（输出过长、缓冲区已回绕时只能收到最近的部分）
+        return Flux.defer(() -> generationStreamRegistry.getOrCreate(appId, loginUser.getId(), message,
+                        () -> doChatToGenCode(appId, message, codeGenTypeEnum, loginUser, priority))
+                .watch());
+    }
+
+    @Override
+    public Flux<StreamMessage> resumeGenCode(Long appId, String lastEventId, User loginUser) {
+        // 1. 解析事件 ID（生成 ID:序号）
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用 ID 不能为空");
+        int separatorIndex = StrUtil.lastIndexOf(lastEventId, ":", lastEventId.length(), false);
+        ThrowUtils.throwIf(separatorIndex <= 0, ErrorCode.PARAMS_ERROR, "事件 ID 格式错误");
+        String generationId = lastEventId.substring(0, separatorIndex);
+        long lastSeq;
+        try {
+            lastSeq = Long.parseLong(lastEventId.substring(separatorIndex + 1));
+        } catch (NumberFormatException e) {
+            throw new com.carlos.aicodebackend.exception.BusinessException(ErrorCode.PARAMS_ERROR, "事件 ID 格式错误");
+        }
+
+        // 2. 查找生成流，仅发起生成的用户和管理员可以续传
+        GenerationStream stream = generationStreamRegistry.get(generationId);
+        ThrowUtils.throwIf(stream == null, ErrorCode.NOT_FOUND_ERROR, "生成记录不存在或已过期");
+        ThrowUtils.throwIf(!stream.getAppId().equals(appId), ErrorCode.PARAMS_ERROR, "事件 ID 与应用不匹配");
+        if (!stream.getUserId().equals(loginUser.getId()) && !UserConstant.ADMIN_ROLE.equals(loginUser.getUserRole())) {
+            throw new com.carlos.aicodebackend.exception.BusinessException(ErrorCode.NO_AUTH_ERROR, "无权限访问该生成");
+        }
+
+        // 3. 从缓冲区中该事件之后的位置继续推送，不重新调用模型
+        return stream.subscribe(lastSeq);
+    }
+
+    @Override
+    public Flux<StreamMessage> watchGenCode(Long appId, User loginUser) {
+        // 1. 参数校验
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用 ID 不能为空");
+
+        // 2. 查询应用信息，仅本人或管理员可以旁观
+        App app = this.getById(appId);
+        ThrowUtils.throwIf(app == null, ErrorCode.NOT_FOUND_ERROR, "应用不存在");
+        if (!app.getUserId().equals(loginUser.getId()) && !UserConstant.ADMIN_ROLE.equals(loginUser.getUserRole())) {
+            throw new com.carlos.aicodebackend.exception.BusinessException(ErrorCode.NO_AUTH_ERROR, "无权限访问该应用");
+        }
+
+        // 3. 挂到该应用最近一次的生成上，与发起者共享同一个上游
+        GenerationStream stream = generationStreamRegistry.getLatestByApp(appId);
+        ThrowUtils.throwIf(stream == null, ErrorCode.NOT_FOUND_ERROR, "该应用当前没有进行中的生成");
+        return stream.watch();
+    }
+
+    /**
+     * 执行一次生成：记录用户消息，流式生成代码，完成后记录 AI 响应
+     *
+     * @param appId           应用 ID
+     * @param message         用户消息
+     * @param codeGenTypeEnum 生成类型
+     * @param loginUser       登录用户
+     * @param priority        是否走准入控制的优先通道
+     * @return 生成流
+     */
+    private Flux<StreamMessage> doChatToGenCode(Long appId, String message, CodeGenTypeEnum codeGenTypeEnum,
+            User loginUser, boolean priority) {
+        // 1. 添加用户消息到对话历史，此前没有任何对话时为首轮生成
+        boolean firstTurn = chatHistoryService.count(QueryWrapper.create()
+                .eq(ChatHistory::getAppId, appId)) == 0;
         chatHistoryService.addChatMessage(appId, message, ChatHistoryMessageTypeEnum.USER.getValue(), loginUser.getId());
 
-        // 6. 调用 AI 生成代码（流式）
-        Flux<String> contentFlux = aiCodeGeneratorFacade.generateAndSaveCodeStream(message, codeGenTypeEnum, appId);
-        
-        // 7. 收集AI响应内容并在完成后记录到对话历史
-        StringBuilder aiResponseBuilder = new StringBuilder();
-        return contentFlux
-                .map(chunk -> {
-                    // 收集AI响应内容
-                    aiResponseBuilder.append(chunk);
-                    return chunk;
-                })
-                .doOnComplete(() -> {
-                    // 流式响应完成后，添加AI消息到对话历史
-                    String aiResponse = aiResponseBuilder.toString();
-                    if (StrUtil.isNotBlank(aiResponse)) {
-                        chatHistoryService.addChatMessage(appId, aiResponse, ChatHistoryMessageTypeEnum.AI.getValue(), loginUser.getId());
+        // 2. 获得准入许可后调用 AI 生成代码（流式），排队期间推送排队位置；
+        // AI 响应由解析、保存和对话历史共享同一个累加器
+        ChunkAccumulator aiResponseAccumulator = aiCodeGeneratorFacade.newAccumulator();
+        Flux<StreamMessage> contentFlux = admissionController.admit(loginUser.getId(), priority,
+                () -> aiCodeGeneratorFacade.generateAndSaveCodeStream(message, codeGenTypeEnum, appId,
+                        aiResponseAccumulator, firstTurn));
+
+        // 3. 完成后在收尾线程池中将累加器中的AI响应记录到对话历史，失败时向客户端返回错误消息；
+        // 完成和取消只会有一方写入
+        AtomicBoolean historyWritten = new AtomicBoolean(false);
+        Mono<StreamMessage> persistMono = completionExecutor.run(() -> {
+                    if (historyWritten.compareAndSet(false, true) && StrUtil.isNotBlank(aiResponseAccumulator)) {
+                        codeGenMetrics.timePersist(codeGenTypeEnum, () -> chatHistoryService.addChatMessage(appId,
+                                aiResponseAccumulator.toString(), ChatHistoryMessageTypeEnum.AI.getValue(),
+                                loginUser.getId()));
                     }
                 })
-                .doOnError(error -> {
+                .then(Mono.<StreamMessage>empty())
+                .onErrorResume(e -> {
+                    log.error("保存对话历史失败: {}", e.getMessage());
+                    return Mono.just(StreamMessage.error("保存对话历史失败: " + e.getMessage()));
+                });
+        return contentFlux
+                .concatWith(persistMono)
+                .onErrorResume(error -> {
                     // 如果AI回复失败，也要记录错误消息
                     String errorMessage = "AI回复失败: " + error.getMessage();
-                    chatHistoryService.addChatMessage(appId, errorMessage, ChatHistoryMessageTypeEnum.AI.getValue(), loginUser.getId());
-                });
+                    return completionExecutor.run(() -> chatHistoryService.addChatMessage(appId, errorMessage,
+                                    ChatHistoryMessageTypeEnum.AI.getValue(), loginUser.getId()))
+                            .onErrorResume(e -> {
+                                log.error("保存对话历史失败: {}", e.getMessage());
+                                return Mono.empty();
+                            })
+                            .then(Mono.error(error));
+                })
+                .doOnCancel(() -> persistTruncatedResponse(appId, codeGenTypeEnum, aiResponseAccumulator,
+                        historyWritten, loginUser));
+    }
+
+    /**
+     * 生成被取消时，将已接收的部分 AI 响应加上截断标记记录到对话历史（排队中取消时没有内容，不记录）。
+     * 取消回调所在线程与仍可能在追加的模型线程并发，只能读取累加器的快照
+     *
+     * @param appId           应用 ID
+     * @param codeGenTypeEnum 生成类型
+     * @param accumulator     输出累加器
+     * @param historyWritten  是否已写入对话历史
+     * @param loginUser       登录用户
+     */
+    private void persistTruncatedResponse(Long appId, CodeGenTypeEnum codeGenTypeEnum, ChunkAccumulator accumulator,
+            AtomicBoolean historyWritten, User loginUser) {
+        String partialResponse = accumulator.snapshot();
+        if (StrUtil.isBlank(partialResponse) || !historyWritten.compareAndSet(false, true)) {
+            return;
+        }
+        String truncatedResponse = partialResponse + AppConstant.TRUNCATED_RESPONSE_MARK;
+        completionExecutor.run(() -> codeGenMetrics.timePersist(codeGenTypeEnum,
+                        () -> chatHistoryService.addChatMessage(appId, truncatedResponse,
+                                ChatHistoryMessageTypeEnum.AI.getValue(), loginUser.getId())))
+                .subscribe(null, e -> log.error("保存中断的对话历史失败: {}", e.getMessage()));
     }
 
     @Override
@@ -276,10 +409,10 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
             throw new com.carlos.aicodebackend.exception.BusinessException(ErrorCode.SYSTEM_ERROR, "应用代码不存在，请先生成代码");
         }
 
-        // 7. 复制文件到部署目录
+        // 7. 以硬链接把文件发布到部署目录（整体替换旧的部署内容）
         String deployDirPath = AppConstant.CODE_DEPLOY_ROOT_DIR + File.separator + deployKey;
         try {
-            FileUtil.copyContent(sourceDir, new File(deployDirPath), true);
+            blobStore.linkTree(sourceDir.toPath(), Path.of(deployDirPath));
         } catch (Exception e) {
             throw new com.carlos.aicodebackend.exception.BusinessException(ErrorCode.SYSTEM_ERROR, "部署失败：" + e.getMessage());
         }
@@ -297,7 +430,7 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
     }
 
     /**
-     * 删除应用时关联删除对话历史
+     * 删除应用时关联删除对话历史、生成目录和部署目录
      *
      * @param id 应用ID
      * @return 是否成功
@@ -323,6 +456,23 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
         }
         
         // 删除应用
-        return super.removeById(id);
+        App app = this.getById(appId);
+        boolean removed = super.removeById(id);
+        if (removed && app != null) {
+            deleteAppFiles(app);
+        }
+        return removed;
+    }
+
+    /**
+     * 删除应用的生成目录和部署目录，内容存储中不再被引用的对象随之释放
+     *
+     * @param app 应用
+     */
+    private void deleteAppFiles(App app) {
+        blobStore.deleteTree(Path.of(AppConstant.CODE_OUTPUT_ROOT_DIR, app.getCodeGenType() + "_" + app.getId()));
+        if (StrUtil.isNotBlank(app.getDeployKey())) {
+            blobStore.deleteTree(Path.of(AppConstant.CODE_DEPLOY_ROOT_DIR, app.getDeployKey()));
+        }
     }
 }
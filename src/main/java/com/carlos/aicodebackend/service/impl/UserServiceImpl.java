@@ -121,7 +121,12 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
   public User getLoginUser(HttpServletRequest request) {
     // 先判断是否已登录
     Object userObj = request.getSession().getAttribute(UserConstant.USER_LOGIN_STATE);
-    User currentUser = (User) userObj;
+    return getLoginUser((User) userObj);
+  }
+
+  @Override
+  public User getLoginUser(User sessionUser) {
+    User currentUser = sessionUser;
     if (currentUser == null || currentUser.getId() == null) {
       throw new BusinessException(ErrorCode.NOT_LOGIN_ERROR);
     }
@@ -0,0 +1,224 @@
+package com.carlos.aicodebackend.ai;
+
+import com.carlos.aicodebackend.config.CodeGenProperties;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 对冲请求流式模型测试类
+ */
+class HedgingStreamingChatModelTest {
+
+  private final ChatRequest request = ChatRequest.builder().messages(UserMessage.from("做一个页面")).build();
+
+  private CodeGenProperties.Hedge properties;
+
+  private SimpleMeterRegistry meterRegistry;
+
+  private FakeStreamingChatModel fakeModel;
+
+  @BeforeEach
+  void setUp() {
+    properties = new CodeGenProperties.Hedge();
+    properties.setEnabled(true);
+    properties.setInitialThreshold(Duration.ofMillis(100));
+    properties.setMinThreshold(Duration.ofMillis(1));
+    properties.setBudgetRatio(1.0);
+    meterRegistry = new SimpleMeterRegistry();
+    fakeModel = new FakeStreamingChatModel();
+  }
+
+  @AfterEach
+  void tearDown() {
+    fakeModel.shutdown();
+  }
+
+  @Test
+  void testHedgeWinsWhenPrimarySlow() throws Exception {
+    fakeModel.firstTokenLatencies.add(Duration.ofSeconds(5));
+    fakeModel.firstTokenLatencies.add(Duration.ofMillis(10));
+    properties.setMinSamples(1);
+    HedgingStreamingChatModel model = new HedgingStreamingChatModel(fakeModel, properties, meterRegistry);
+    UpstreamAbortHandle parentHandle = new UpstreamAbortHandle();
+    long start = System.nanoTime();
+    String response = chat(model, parentHandle).get(3, TimeUnit.SECONDS);
+    assertEquals("<html></html>", response);
+    assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 3000);
+    assertEquals(2, fakeModel.calls.get());
+    // 落后的主请求被中止
+    assertTrue(fakeModel.aborted.get(0).get());
+    assertEquals(1.0, meterRegistry.counter("llm.hedge", "outcome", "won").count());
+    // 样本为调用方等待的时间（阈值 + 对冲请求的延迟），而不是对冲请求自身的 10 毫秒
+    assertTrue(model.currentThreshold().toMillis() >= 100, model.currentThreshold().toString());
+  }
+
+  @Test
+  void testPrimaryWinsWithoutHedge() throws Exception {
+    fakeModel.firstTokenLatencies.add(Duration.ofMillis(10));
+    HedgingStreamingChatModel model = new HedgingStreamingChatModel(fakeModel, properties, meterRegistry);
+    assertEquals("<html></html>", chat(model, null).get(3, TimeUnit.SECONDS));
+    Thread.sleep(200);
+    assertEquals(1, fakeModel.calls.get());
+  }
+
+  @Test
+  void testPrimaryWinsAfterHedge() throws Exception {
+    fakeModel.firstTokenLatencies.add(Duration.ofMillis(200));
+    fakeModel.firstTokenLatencies.add(Duration.ofSeconds(5));
+    HedgingStreamingChatModel model = new HedgingStreamingChatModel(fakeModel, properties, meterRegistry);
+    assertEquals("<html></html>", chat(model, null).get(3, TimeUnit.SECONDS));
+    assertEquals(2, fakeModel.calls.get());
+    assertTrue(fakeModel.aborted.get(1).get());
+    assertEquals(1.0, meterRegistry.counter("llm.hedge", "outcome", "lost").count());
+  }
+
+  @Test
+  void testBudgetExhausted() throws Exception {
+    properties.setBudgetRatio(0.05);
+    fakeModel.firstTokenLatencies.add(Duration.ofMillis(300));
+    HedgingStreamingChatModel model = new HedgingStreamingChatModel(fakeModel, properties, meterRegistry);
+    assertEquals("<html></html>", chat(model, null).get(3, TimeUnit.SECONDS));
+    assertEquals(1, fakeModel.calls.get());
+    assertEquals(1.0, meterRegistry.counter("llm.hedge", "outcome", "throttled").count());
+  }
+
+  @Test
+  void testThresholdFromPercentile() throws Exception {
+    properties.setInitialThreshold(Duration.ofSeconds(10));
+    properties.setMinSamples(5);
+    HedgingStreamingChatModel model = new HedgingStreamingChatModel(fakeModel, properties, meterRegistry);
+    assertEquals(Duration.ofSeconds(10), model.currentThreshold());
+    for (int i = 0; i < 5; i++) {
+      fakeModel.firstTokenLatencies.add(Duration.ofMillis(20));
+      chat(model, null).get(3, TimeUnit.SECONDS);
+    }
+    Duration threshold = model.currentThreshold();
+    assertTrue(threshold.toMillis() >= 20 && threshold.toMillis() < 1000, threshold.toString());
+  }
+
+  @Test
+  void testBothFail() {
+    fakeModel.firstTokenLatencies.add(Duration.ofMillis(300));
+    fakeModel.firstTokenLatencies.add(Duration.ofMillis(300));
+    fakeModel.failing = true;
+    HedgingStreamingChatModel model = new HedgingStreamingChatModel(fakeModel, properties, meterRegistry);
+    ExecutionException e = assertThrows(ExecutionException.class, () -> chat(model, null).get(3, TimeUnit.SECONDS));
+    assertInstanceOf(IOException.class, e.getCause());
+    assertEquals(1.0, meterRegistry.counter("llm.hedge", "outcome", "failed").count());
+  }
+
+  @Test
+  void testParentAbortCancelsBoth() throws Exception {
+    fakeModel.firstTokenLatencies.add(Duration.ofSeconds(5));
+    fakeModel.firstTokenLatencies.add(Duration.ofSeconds(5));
+    HedgingStreamingChatModel model = new HedgingStreamingChatModel(fakeModel, properties, meterRegistry);
+    UpstreamAbortHandle parentHandle = new UpstreamAbortHandle();
+    chat(model, parentHandle);
+    Thread.sleep(300);
+    assertEquals(2, fakeModel.calls.get());
+    parentHandle.abort();
+    assertTrue(fakeModel.aborted.get(0).get());
+    assertTrue(fakeModel.aborted.get(1).get());
+  }
+
+  private CompletableFuture<String> chat(StreamingChatModel model, UpstreamAbortHandle parentHandle) {
+    CompletableFuture<String> result = new CompletableFuture<>();
+    StringBuilder tokens = new StringBuilder();
+    StreamingChatResponseHandler handler = new StreamingChatResponseHandler() {
+      @Override
+      public void onPartialResponse(String partialResponse) {
+        tokens.append(partialResponse);
+      }
+
+      @Override
+      public void onCompleteResponse(ChatResponse completeResponse) {
+        result.complete(tokens.toString());
+      }
+
+      @Override
+      public void onError(Throwable error) {
+        result.completeExceptionally(error);
+      }
+    };
+    if (parentHandle == null) {
+      model.chat(request, handler);
+    } else {
+      parentHandle.bind(() -> {
+        model.chat(request, handler);
+        return null;
+      });
+    }
+    return result;
+  }
+
+  /**
+   * 本地模拟的流式模型：按调用顺序注入首 token 延迟，中止时以 IOException 结束（与关闭响应流一致）
+   */
+  private static class FakeStreamingChatModel implements StreamingChatModel {
+
+    private final ConcurrentLinkedQueue<Duration> firstTokenLatencies = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final List<AtomicBoolean> aborted = new CopyOnWriteArrayList<>();
+
+    private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(4);
+
+    private volatile boolean failing;
+
+    @Override
+    public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+      calls.incrementAndGet();
+      AtomicBoolean abortFlag = new AtomicBoolean();
+      aborted.add(abortFlag);
+      UpstreamAbortHandle abortHandle = UpstreamAbortHandle.current();
+      if (abortHandle != null) {
+        abortHandle.register(() -> {
+          if (abortFlag.compareAndSet(false, true)) {
+            executor.execute(() -> handler.onError(new IOException("stream closed")));
+          }
+        });
+      }
+      Duration latency = firstTokenLatencies.poll();
+      executor.schedule(() -> {
+        if (abortFlag.get()) {
+          return;
+        }
+        if (failing) {
+          handler.onError(new IOException("upstream 502"));
+          return;
+        }
+        handler.onPartialResponse("<html>");
+        handler.onPartialResponse("</html>");
+        handler.onCompleteResponse(ChatResponse.builder().aiMessage(AiMessage.from("<html></html>")).build());
+      }, latency == null ? 0 : latency.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    void shutdown() {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,179 @@
+package com.carlos.aicodebackend.ai;
+
+import cn.hutool.core.io.resource.ResourceUtil;
+import com.carlos.aicodebackend.ai.model.HtmlCodeResult;
+import com.carlos.aicodebackend.ai.model.MultiFileCodeResult;
+import com.carlos.aicodebackend.config.CodeGenProperties;
+import com.carlos.aicodebackend.core.parser.HtmlCodeParser;
+import com.carlos.aicodebackend.core.parser.FileTreeLimits;
+import com.carlos.aicodebackend.core.parser.MultiFileCodeParser;
+import com.carlos.aicodebackend.core.parser.ProjectCodeParser;
+import com.carlos.aicodebackend.core.parser.VirtualFileTree;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.exception.InternalServerException;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.output.FinishReason;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 模拟流式模型测试类
+ */
+class SimulatedStreamingChatModelTest {
+
+  private CodeGenProperties.Simulated properties;
+
+  @BeforeEach
+  void setUp() {
+    properties = new CodeGenProperties.Simulated();
+    properties.setFirstTokenLatency(Duration.ZERO);
+    properties.setTokensPerSecond(100_000);
+    properties.setSyntheticSize(2000);
+  }
+
+  @Test
+  void testDetectKindFromPrompts() {
+    assertEquals(SimulatedResponses.Kind.HTML, kindOf("prompt/codegen-html-system-prompt.md"));
+    assertEquals(SimulatedResponses.Kind.MULTI_FILE, kindOf("prompt/codegen-multi-file-system-prompt.md"));
+    assertEquals(SimulatedResponses.Kind.PROJECT, kindOf("prompt/codegen-project-system-prompt.md"));
+    assertEquals(SimulatedResponses.Kind.PLAN, kindOf("prompt/codegen-multi-file-plan-system-prompt.md"));
+    assertEquals(SimulatedResponses.Kind.HTML_FILE, kindOf("prompt/codegen-multi-file-html-system-prompt.md"));
+    assertEquals(SimulatedResponses.Kind.CSS_FILE, kindOf("prompt/codegen-multi-file-css-system-prompt.md"));
+    assertEquals(SimulatedResponses.Kind.JS_FILE, kindOf("prompt/codegen-multi-file-js-system-prompt.md"));
+  }
+
+  @Test
+  void testStreamParsableResponse() throws Exception {
+    Recorder html = chat(newModel(), "prompt/codegen-html-system-prompt.md");
+    ChatResponse htmlResponse = html.done.get(5, TimeUnit.SECONDS);
+    assertEquals(FinishReason.STOP, htmlResponse.finishReason());
+    assertEquals(htmlResponse.aiMessage().text(), html.partials.toString());
+    HtmlCodeResult htmlResult = new HtmlCodeParser().parseCode(html.partials.toString());
+    assertTrue(htmlResult.getHtmlCode().contains("<h1>做一个页面</h1>"));
+
+    Recorder multiFile = chat(newModel(), "prompt/codegen-multi-file-system-prompt.md");
+    multiFile.done.get(5, TimeUnit.SECONDS);
+    MultiFileCodeResult multiFileResult = new MultiFileCodeParser().parseCode(multiFile.partials.toString());
+    assertTrue(multiFileResult.getHtmlCode().contains("style.css"));
+    assertTrue(multiFileResult.getCssCode().contains(".card"));
+    assertTrue(multiFileResult.getJsCode().contains("classList.toggle"));
+
+    Recorder project = chat(newModel(), "prompt/codegen-project-system-prompt.md");
+    project.done.get(5, TimeUnit.SECONDS);
+    VirtualFileTree fileTree = new ProjectCodeParser(FileTreeLimits.UNLIMITED)
+        .parseCode(project.partials.toString()).getFileTree();
+    assertEquals(List.of("about.html", "css/style.css", "data/sections.json", "index.html", "js/app.js"),
+        List.copyOf(fileTree.getFiles().keySet()));
+    assertTrue(fileTree.getFile("index.html").contains("css/style.css"));
+  }
+
+  @Test
+  void testInjectedError() {
+    properties.setErrorRate(1);
+    Recorder recorder = chat(newModel(), "prompt/codegen-html-system-prompt.md");
+    Exception e = assertThrows(Exception.class, () -> recorder.done.get(5, TimeUnit.SECONDS));
+    assertInstanceOf(InternalServerException.class, e.getCause());
+  }
+
+  @Test
+  void testInjectedTruncation() throws Exception {
+    properties.setTruncationRate(1);
+    Recorder recorder = chat(newModel(), "prompt/codegen-html-system-prompt.md");
+    ChatResponse response = recorder.done.get(5, TimeUnit.SECONDS);
+    assertEquals(FinishReason.LENGTH, response.finishReason());
+    assertEquals(response.aiMessage().text(), recorder.partials.toString());
+    assertFalse(recorder.partials.toString().endsWith("```"));
+  }
+
+  @Test
+  void testSeededFaultsIndependentOfInterleaving() throws Exception {
+    properties.setTruncationRate(0.5);
+    properties.setTokensPerSecond(2000);
+    SimulatedStreamingChatModel sequential = newModel();
+    List<Integer> expected = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      expected.add(chat(sequential, "prompt/codegen-html-system-prompt.md").done.get(5, TimeUnit.SECONDS)
+          .tokenUsage().outputTokenCount());
+    }
+
+    // 同样的种子下并发推送，第 N 个请求的截断位置与顺序执行时一致
+    SimulatedStreamingChatModel concurrent = newModel();
+    List<Recorder> recorders = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      recorders.add(chat(concurrent, "prompt/codegen-html-system-prompt.md"));
+    }
+    List<Integer> actual = new ArrayList<>();
+    for (Recorder recorder : recorders) {
+      actual.add(recorder.done.get(5, TimeUnit.SECONDS).tokenUsage().outputTokenCount());
+    }
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  void testAbortStopsPlayback() throws Exception {
+    properties.setTokensPerSecond(50);
+    SimulatedStreamingChatModel model = newModel();
+    UpstreamAbortHandle abortHandle = new UpstreamAbortHandle();
+    Recorder recorder = abortHandle.bind(() -> chat(model, "prompt/codegen-html-system-prompt.md"));
+    Thread.sleep(100);
+    abortHandle.abort();
+    int length = recorder.length();
+    Thread.sleep(200);
+    assertEquals(length, recorder.length());
+    assertFalse(recorder.done.isDone());
+  }
+
+  private SimulatedStreamingChatModel newModel() {
+    properties.setSeed(42);
+    return new SimulatedStreamingChatModel(new SimulatedResponses(null, properties.getSyntheticSize()), properties);
+  }
+
+  private static SimulatedResponses.Kind kindOf(String promptResource) {
+    return SimulatedResponses.detectKind(ResourceUtil.readUtf8Str(promptResource));
+  }
+
+  private static Recorder chat(SimulatedStreamingChatModel model, String promptResource) {
+    Recorder recorder = new Recorder();
+    model.chat(ChatRequest.builder()
+        .messages(SystemMessage.from(ResourceUtil.readUtf8Str(promptResource)), UserMessage.from("做一个页面"))
+        .build(), recorder);
+    return recorder;
+  }
+
+  private static class Recorder implements StreamingChatResponseHandler {
+
+    private final StringBuffer partials = new StringBuffer();
+
+    private final CompletableFuture<ChatResponse> done = new CompletableFuture<>();
+
+    int length() {
+      return partials.length();
+    }
+
+    @Override
+    public void onPartialResponse(String partialResponse) {
+      partials.append(partialResponse);
+    }
+
+    @Override
+    public void onCompleteResponse(ChatResponse completeResponse) {
+      done.complete(completeResponse);
+    }
+
+    @Override
+    public void onError(Throwable error) {
+      done.completeExceptionally(error);
+    }
+  }
+}
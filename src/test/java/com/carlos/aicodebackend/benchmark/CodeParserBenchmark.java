@@ -0,0 +1,87 @@
+package com.carlos.aicodebackend.benchmark;
+
+import com.carlos.aicodebackend.ai.model.HtmlCodeResult;
+import com.carlos.aicodebackend.ai.model.MultiFileCodeResult;
+import com.carlos.aicodebackend.core.parser.CodeBlock;
+import com.carlos.aicodebackend.core.parser.HtmlCodeParser;
+import com.carlos.aicodebackend.core.parser.MultiFileCodeParser;
+import com.carlos.aicodebackend.core.parser.StreamingCodeParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 代码解析基准测试：HtmlCodeParser、MultiFileCodeParser（整段扫描）与流式解析器对比
+ * 运行 main 方法即可。Throughput 为吞吐量；SampleTime 给出耗时分布，p1.00 即最坏情况；
+ * gc.alloc.rate.norm 为每次解析分配的字节数。语料说明见 {@link CodeParserCorpus}
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodeParserBenchmark {
+
+  /**
+   * 流式解析时每个片段的字符数（模拟模型逐 token 输出）
+   */
+  private static final int CHUNK_SIZE = 16;
+
+  @Param({"small", "tokens8k", "chars64k", "missingFence", "unterminated", "manyFences", "unclosedOpenings"})
+  private String corpus;
+
+  private String content;
+
+  private final HtmlCodeParser htmlCodeParser = new HtmlCodeParser();
+
+  private final MultiFileCodeParser multiFileCodeParser = new MultiFileCodeParser();
+
+  @Setup
+  public void setUp() {
+    content = CodeParserCorpus.build(corpus);
+  }
+
+  @Benchmark
+  public HtmlCodeResult htmlCodeParser() {
+    return htmlCodeParser.parseCode(content);
+  }
+
+  @Benchmark
+  public MultiFileCodeResult multiFileCodeParser() {
+    return multiFileCodeParser.parseCode(content);
+  }
+
+  @Benchmark
+  public CodeBlock streamingCodeParser() {
+    StreamingCodeParser parser = new StreamingCodeParser();
+    for (int i = 0; i < content.length(); i += CHUNK_SIZE) {
+      parser.append(content.subSequence(i, Math.min(content.length(), i + CHUNK_SIZE)));
+    }
+    parser.finish();
+    return parser.getFirstBlock("html");
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options options = new OptionsBuilder()
+        .include(CodeParserBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,120 @@
+package com.carlos.aicodebackend.benchmark;
+
+/**
+ * 代码解析基准测试的语料：按模型真实输出的结构（说明文字 + html/css/js 代码块）生成不同规模的内容，
+ * 以及缺少代码块、代码块未闭合、代码块很多等异常输出
+ */
+final class CodeParserCorpus {
+
+  /**
+   * 8k token 约合的字符数（按每个 token 4 个字符估算）
+   */
+  private static final int TOKENS_8K_CHARS = 8 * 1024 * 4;
+
+  private static final int CHARS_64K = 64 * 1024;
+
+  private CodeParserCorpus() {
+  }
+
+  /**
+   * 生成语料
+   *
+   * @param kind 语料类型：
+   *             small（约 1.5k 字符的正常输出）、tokens8k（约 8k token）、chars64k（约 64k 字符）、
+   *             missingFence（没有代码块的 64k 字符说明文字）、unterminated（最后一个代码块被截断未闭合）、
+   *             manyFences（数百个其他语言的小代码块，html/css/js 在最后）、
+   *             unclosedOpenings（每隔约 200 字符出现一个 ```html 开头却从不闭合，
+   *             正则会把下一个开头中的 ``` 当作结束标记）
+   * @return 语料内容
+   */
+  static String build(String kind) {
+    return switch (kind) {
+      case "small" -> multiFile(1_500);
+      case "tokens8k" -> multiFile(TOKENS_8K_CHARS);
+      case "chars64k" -> multiFile(CHARS_64K);
+      case "missingFence" -> prose(CHARS_64K);
+      case "unterminated" -> {
+        String output = multiFile(CHARS_64K);
+        // 模型输出在 js 代码块中途被截断
+        yield output.substring(0, output.lastIndexOf("```"));
+      }
+      case "manyFences" -> manyFences(CHARS_64K);
+      case "unclosedOpenings" -> unclosedOpenings(CHARS_64K);
+      default -> throw new IllegalArgumentException("未知的语料类型: " + kind);
+    };
+  }
+
+  private static String multiFile(int size) {
+    StringBuilder output = new StringBuilder(size + 1024);
+    output.append("好的，下面是根据你的需求生成的个人博客首页，分为 HTML、CSS、JavaScript 三个文件。\n\n");
+    output.append("```html\n").append(html(size * 6 / 10)).append("```\n\n");
+    output.append("```css\n").append(css(size / 4)).append("```\n\n");
+    output.append("```javascript\n").append(js(size * 15 / 100)).append("```\n\n");
+    output.append("以上代码无需任何外部依赖，直接在浏览器中打开 index.html 即可预览。");
+    return output.toString();
+  }
+
+  private static String html(int size) {
+    StringBuilder html = new StringBuilder(size + 512)
+        .append("<!DOCTYPE html>\n<html lang=\"zh-CN\">\n<head>\n  <meta charset=\"UTF-8\">\n")
+        .append("  <title>个人博客</title>\n  <link rel=\"stylesheet\" href=\"style.css\">\n</head>\n<body>\n");
+    for (int i = 1; html.length() < size; i++) {
+      html.append("  <article class=\"post\" id=\"post-").append(i).append("\">\n")
+          .append("    <h2 class=\"post-title\">第 ").append(i).append(" 篇文章：记录生活与技术</h2>\n")
+          .append("    <p class=\"post-summary\">这是文章摘要，介绍了 `code` 片段和 \"引号\" 的用法。</p>\n")
+          .append("    <a href=\"#post-").append(i).append("\" class=\"read-more\">阅读全文</a>\n")
+          .append("  </article>\n");
+    }
+    return html.append("  <script src=\"script.js\"></script>\n</body>\n</html>\n").toString();
+  }
+
+  private static String css(int size) {
+    StringBuilder css = new StringBuilder(size + 256)
+        .append(":root { --primary: #3b82f6; --text: #1f2937; }\n")
+        .append("body { margin: 0; font-family: system-ui, sans-serif; color: var(--text); }\n");
+    for (int i = 1; css.length() < size; i++) {
+      css.append("#post-").append(i).append(" .post-title { font-size: ").append(18 + i % 6)
+          .append("px; }\n#post-").append(i).append(":hover { background: hsl(").append(i * 37 % 360)
+          .append(", 70%, 96%); }\n");
+    }
+    return css.toString();
+  }
+
+  private static String js(int size) {
+    StringBuilder js = new StringBuilder(size + 256).append("(function () {\n  'use strict';\n");
+    for (int i = 1; js.length() < size; i++) {
+      js.append("  document.querySelector('#post-").append(i).append(" .read-more')")
+          .append(".addEventListener('click', function (e) {\n")
+          .append("    e.preventDefault();\n    console.log(`open post ").append(i).append("`);\n  });\n");
+    }
+    return js.append("})();\n").toString();
+  }
+
+  private static String prose(int size) {
+    StringBuilder prose = new StringBuilder(size + 256);
+    while (prose.length() < size) {
+      prose.append("抱歉，我需要先确认一下需求：博客首页需要展示哪些栏目？是否需要深色模式、评论区和标签云？")
+          .append("另外请说明目标用户和偏好的配色风格，我会据此给出页面结构和样式方案。\n");
+    }
+    return prose.toString();
+  }
+
+  private static String manyFences(int size) {
+    StringBuilder output = new StringBuilder(size + 4096);
+    String[] languages = {"python", "bash", "json", "text", "sql"};
+    for (int i = 0; output.length() < size * 3 / 4; i++) {
+      output.append("示例 ").append(i).append("：\n```").append(languages[i % languages.length]).append('\n')
+          .append("echo \"step ").append(i).append("\"\n```\n\n");
+    }
+    return output.append(multiFile(size / 4)).toString();
+  }
+
+  private static String unclosedOpenings(int size) {
+    StringBuilder output = new StringBuilder(size + 256);
+    while (output.length() < size) {
+      output.append("```html\n<div class=\"card\">被截断的片段，没有结束标记</div>\n")
+          .append("<p>模型重复输出了未闭合的代码块开头。</p>\n");
+    }
+    return output.toString();
+  }
+}
@@ -0,0 +1,98 @@
+package com.carlos.aicodebackend.benchmark;
+
+import cn.hutool.json.JSONUtil;
+import com.carlos.aicodebackend.ai.model.message.StreamMessage;
+import com.carlos.aicodebackend.core.StreamMessageEncoder;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SSE 消息编码基准测试：Hutool JSONUtil 包装与 StreamMessageEncoder 对比
+ * 运行 main 方法即可，结果中的 gc.alloc.rate.norm 为每次编码分配的字节数
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamMessageEncoderBenchmark {
+
+  /**
+   * 片段类型：ascii 为典型的短 token，cjk 为中文说明文字，code 为带引号和换行的代码
+   */
+  @Param({"ascii", "cjk", "code"})
+  private String chunkKind;
+
+  private String chunk;
+
+  private StreamMessage message;
+
+  private final DataBufferFactory pooledBufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+
+  private final DataBufferFactory heapBufferFactory = DefaultDataBufferFactory.sharedInstance;
+
+  @Setup
+  public void setUp() {
+    chunk = switch (chunkKind) {
+      case "ascii" -> "<div";
+      case "cjk" -> "任务管理页面";
+      default -> "  <a href=\"/tasks\">\n    任务\t列表\n";
+    };
+    message = StreamMessage.aiResponse(chunk).withId("8f14e45fceea167a5a36dedd4bea2543:1024");
+  }
+
+  @Benchmark
+  public String hutoolJson() {
+    return JSONUtil.toJsonStr(Map.of("d", chunk));
+  }
+
+  @Benchmark
+  public String encoderJson() {
+    return StreamMessageEncoder.toJson(chunk);
+  }
+
+  @Benchmark
+  public int encoderPooledBuffer() {
+    DataBuffer buffer = StreamMessageEncoder.encode(message, pooledBufferFactory);
+    int size = buffer.readableByteCount();
+    DataBufferUtils.release(buffer);
+    return size;
+  }
+
+  @Benchmark
+  public int encoderHeapBuffer() {
+    return StreamMessageEncoder.encode(message, heapBufferFactory).readableByteCount();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options options = new OptionsBuilder()
+        .include(StreamMessageEncoderBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .build();
+    new Runner(options).run();
+  }
+}
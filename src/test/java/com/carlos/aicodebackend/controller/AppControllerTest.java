@@ -1,9 +1,11 @@
 package com.carlos.aicodebackend.controller;
 
+import com.carlos.aicodebackend.ai.model.message.StreamMessage;
 import com.carlos.aicodebackend.model.entity.App;
 import com.carlos.aicodebackend.model.entity.User;
 import com.carlos.aicodebackend.model.enums.CodeGenTypeEnum;
 import com.carlos.aicodebackend.service.AppService;
+import com.carlos.aicodebackend.service.ChatHistoryService;
 import com.carlos.aicodebackend.service.UserService;
 import jakarta.servlet.http.HttpServletRequest;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,6 +15,7 @@ import com.carlos.aicodebackend.config.TestConfig;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.MediaType;
 import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.test.context.ActiveProfiles;
@@ -23,6 +26,7 @@ import reactor.test.StepVerifier;
 
 import java.time.LocalDateTime;
 
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.when;
 
@@ -52,6 +56,16 @@ class AppControllerTest {
   @MockitoBean
   private UserService userService;
 
+  @MockitoBean
+  private ChatHistoryService chatHistoryService;
+
+  /**
+   * 按字符串解码事件数据，得到接口实际写出的 {"d":"..."} JSON
+   */
+  private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_TYPE =
+      new ParameterizedTypeReference<>() {
+      };
+
   private User testUser;
   private App testApp;
 
@@ -85,7 +99,7 @@ class AppControllerTest {
     when(appService.getById(1L)).thenReturn(testApp);
 
     // 模拟流式生成代码
-    Flux<String> mockCodeStream = Flux.just(
+    Flux<StreamMessage> mockCodeStream = Flux.just(
         "```html\n",
         "<!DOCTYPE html>\n",
         "<html>\n",
@@ -96,7 +110,8 @@ class AppControllerTest {
         "    <h1>任务管理</h1>\n",
         "</body>\n",
         "</html>\n",
-        "```\n");
+        "```\n")
+        .map(StreamMessage::aiResponse);
 
     when(appService.chatToGenCode(eq(1L), eq("添加一个任务统计功能"), eq(testUser)))
         .thenReturn(mockCodeStream);
@@ -113,16 +128,11 @@ class AppControllerTest {
         .exchange()
         .expectStatus().isOk()
         .expectHeader().contentType(MediaType.TEXT_EVENT_STREAM)
-        .returnResult(ServerSentEvent.class)
+        .returnResult(SSE_TYPE)
         .getResponseBody()
         .as(StepVerifier::create)
-        .expectNextMatches(event -> {
-          // 验证数据格式
-          Object dataObj = event.data();
-          String data = dataObj != null ? dataObj.toString() : null;
-          return data != null && data.contains("\"d\"");
-        })
-        .expectNextCount(8) // 验证接收到剩余8个数据块（总共9个，第一个已验证）
+        .expectNextMatches(event -> "{\"d\":\"```html\\n\"}".equals(event.data()))
+        .expectNextCount(10) // 验证接收到剩余10个数据块（总共11个，第一个已验证）
         .expectNextMatches(event -> {
           // 验证结束事件
           return "done".equals(event.event());
@@ -146,7 +156,9 @@ class AppControllerTest {
             .build())
         .accept(MediaType.TEXT_EVENT_STREAM)
         .exchange()
-        .expectStatus().isBadRequest();
+        .expectStatus().isBadRequest()
+        .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+        .expectBody(String.class).isEqualTo("event:error\ndata:{\"d\":\"应用ID无效\"}\n\n");
   }
 
   @Test
@@ -164,7 +176,9 @@ class AppControllerTest {
             .build())
         .accept(MediaType.TEXT_EVENT_STREAM)
         .exchange()
-        .expectStatus().isBadRequest();
+        .expectStatus().isBadRequest()
+        .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+        .expectBody(String.class).value(body -> assertTrue(body.startsWith("event:error\n")));
   }
 
   @Test
@@ -179,7 +193,7 @@ class AppControllerTest {
         .thenReturn(Flux.error(new com.carlos.aicodebackend.exception.BusinessException(
             com.carlos.aicodebackend.exception.ErrorCode.NOT_FOUND_ERROR, "应用不存在")));
 
-    // 测试应用不存在的情况
+    // 测试应用不存在的情况：HTTP 状态码取错误码的前三位
     webTestClient
         .get()
         .uri(uriBuilder -> uriBuilder
@@ -189,7 +203,7 @@ class AppControllerTest {
             .build())
         .accept(MediaType.TEXT_EVENT_STREAM)
         .exchange()
-        .expectStatus().is5xxServerError();
+        .expectStatus().isNotFound();
   }
 
   @Test
@@ -222,7 +236,7 @@ class AppControllerTest {
             .build())
         .accept(MediaType.TEXT_EVENT_STREAM)
         .exchange()
-        .expectStatus().is5xxServerError();
+        .expectStatus().isUnauthorized();
   }
 
   @Test
@@ -234,8 +248,8 @@ class AppControllerTest {
     when(appService.getById(1L)).thenReturn(testApp);
 
     // 模拟大量数据的流式生成
-    Flux<String> largeCodeStream = Flux.range(1, 100)
-        .map(i -> "代码块 " + i + "\n");
+    Flux<StreamMessage> largeCodeStream = Flux.range(1, 100)
+        .map(i -> StreamMessage.aiResponse("代码块 " + i + "\n"));
 
     when(appService.chatToGenCode(eq(1L), eq("生成大量代码"), eq(testUser)))
         .thenReturn(largeCodeStream);
@@ -252,7 +266,7 @@ class AppControllerTest {
         .exchange()
         .expectStatus().isOk()
         .expectHeader().contentType(MediaType.TEXT_EVENT_STREAM)
-        .returnResult(ServerSentEvent.class)
+        .returnResult(SSE_TYPE)
         .getResponseBody()
         .as(StepVerifier::create)
         .expectNextCount(100) // 验证接收到100个数据块
@@ -270,7 +284,8 @@ class AppControllerTest {
     when(appService.getById(1L)).thenReturn(testApp);
 
     // 模拟流式生成代码
-    Flux<String> mockCodeStream = Flux.just("测试内容1", "测试内容2", "测试内容3");
+    Flux<StreamMessage> mockCodeStream = Flux.just("测试内容1", "测试内容2", "测试内容3")
+        .map(StreamMessage::aiResponse);
 
     when(appService.chatToGenCode(eq(1L), eq("测试消息"), eq(testUser)))
         .thenReturn(mockCodeStream);
@@ -287,14 +302,13 @@ class AppControllerTest {
         .exchange()
         .expectStatus().isOk()
         .expectHeader().contentType(MediaType.TEXT_EVENT_STREAM)
-        .returnResult(ServerSentEvent.class)
+        .returnResult(SSE_TYPE)
         .getResponseBody()
         .take(3)
         .as(StepVerifier::create)
         .expectNextMatches(event -> {
           // 验证每个事件都包含JSON格式的数据
-          Object dataObj = event.data();
-          String data = dataObj != null ? dataObj.toString() : null;
+          String data = event.data();
           return data != null &&
               data.startsWith("{") &&
               data.contains("\"d\"") &&
@@ -0,0 +1,108 @@
+package com.carlos.aicodebackend.controller;
+
+import cn.hutool.core.codec.Base64;
+import com.carlos.aicodebackend.ai.model.message.StreamMessage;
+import com.carlos.aicodebackend.config.CodeGenProperties;
+import com.carlos.aicodebackend.constant.UserConstant;
+import com.carlos.aicodebackend.core.StreamMessageCoalescer;
+import com.carlos.aicodebackend.model.entity.User;
+import com.carlos.aicodebackend.service.AppService;
+import com.carlos.aicodebackend.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.session.MapSession;
+import org.springframework.session.Session;
+import org.springframework.session.SessionRepository;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Netty 流式服务测试类
+ */
+class NettyStreamingServerTest {
+
+  private final AppService appService = mock(AppService.class);
+
+  private final UserService userService = mock(UserService.class);
+
+  @SuppressWarnings("unchecked")
+  private final SessionRepository<Session> sessionRepository = mock(SessionRepository.class);
+
+  private NettyStreamingServer server;
+
+  private User loginUser;
+
+  @BeforeEach
+  void setUp() {
+    CodeGenProperties properties = new CodeGenProperties();
+    properties.getNetty().setPort(0);
+    properties.getCoalesce().setEnabled(false);
+    server = new NettyStreamingServer(appService, userService, sessionRepository,
+        new StreamMessageCoalescer(properties), properties, "/api", false);
+    server.start();
+
+    loginUser = new User();
+    loginUser.setId(1L);
+    MapSession session = new MapSession("s1");
+    session.setAttribute(UserConstant.USER_LOGIN_STATE, loginUser);
+    when(sessionRepository.findById("s1")).thenReturn(session);
+    when(userService.getLoginUser(any(User.class))).thenReturn(loginUser);
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.stop();
+  }
+
+  @Test
+  void testChatToGenCode() {
+    when(appService.chatToGenCode(eq(1L), eq("做一个页面"), eq(loginUser))).thenReturn(Flux.just(
+        StreamMessage.aiResponse("<div>").withId("g:1"),
+        StreamMessage.saved("site_1").withId("g:2")));
+    String body = HttpClient.create()
+        .headers(headers -> headers.add("Cookie", "SESSION=" + Base64.encode("s1")))
+        .get()
+        .uri("http://localhost:" + server.getPort() + "/api/app/chat/gen/code?appId=1&message="
+            + "%E5%81%9A%E4%B8%80%E4%B8%AA%E9%A1%B5%E9%9D%A2")
+        .responseContent()
+        .aggregate()
+        .asString()
+        .block(Duration.ofSeconds(5));
+    assertEquals("id:g:1\ndata:{\"d\":\"<div>\"}\n\n"
+        + "id:g:2\nevent:saved\ndata:{\"d\":\"site_1\"}\n\n"
+        + "event:done\ndata:\n\n", body);
+  }
+
+  @Test
+  void testNotLogin() {
+    // 与 Servlet 接口一致：错误码映射为状态码，响应体为一条 error 事件
+    assertError("/api/app/chat/gen/code?appId=1&message=abc", 401, "未登录");
+    verify(appService, never()).chatToGenCode(any(), any(), any());
+  }
+
+  @Test
+  void testInvalidAppId() {
+    assertError("/api/app/chat/gen/code?appId=-1&message=abc", 400, "应用ID无效");
+  }
+
+  private void assertError(String path, int status, String message) {
+    String[] response = HttpClient.create()
+        .get()
+        .uri("http://localhost:" + server.getPort() + path)
+        .responseSingle((res, content) -> content.asString().map(body -> new String[] {
+            String.valueOf(res.status().code()), res.responseHeaders().get("Content-Type"), body}))
+        .block(Duration.ofSeconds(5));
+    assertNotNull(response);
+    assertEquals(String.valueOf(status), response[0]);
+    assertTrue(response[1].startsWith("text/event-stream"));
+    assertEquals("event:error\ndata:{\"d\":\"" + message + "\"}\n\n", response[2]);
+  }
+}
@@ -0,0 +1,142 @@
+package com.carlos.aicodebackend.core;
+
+import com.carlos.aicodebackend.ai.AiCodeGeneratorService;
+import com.carlos.aicodebackend.ai.AbortableHttpClient;
+import com.carlos.aicodebackend.ai.AiCodeGeneratorServiceFactory;
+import com.carlos.aicodebackend.ai.model.message.StreamMessage;
+import com.carlos.aicodebackend.config.CodeGenProperties;
+import com.carlos.aicodebackend.core.handler.CodeGenTypeRegistry;
+import com.carlos.aicodebackend.core.handler.HtmlCodeGenTypeHandler;
+import com.carlos.aicodebackend.core.handler.MultiFileCodeGenTypeHandler;
+import com.carlos.aicodebackend.core.store.BlobStore;
+import com.carlos.aicodebackend.exception.BusinessException;
+import com.carlos.aicodebackend.model.enums.CodeGenTypeEnum;
+import dev.langchain4j.http.client.HttpClient;
+import dev.langchain4j.http.client.HttpMethod;
+import dev.langchain4j.http.client.HttpRequest;
+import dev.langchain4j.http.client.SuccessfulHttpResponse;
+import dev.langchain4j.http.client.sse.ServerSentEventListener;
+import dev.langchain4j.http.client.sse.ServerSentEventParser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * AI 代码生成外观类异步接口测试类
+ */
+class AiCodeGeneratorFacadeTest {
+
+  private final AiCodeGeneratorService aiCodeGeneratorService = mock(AiCodeGeneratorService.class);
+
+  private CodeGenCompletionExecutor completionExecutor;
+
+  private SimpleMeterRegistry meterRegistry;
+
+  private AiCodeGeneratorFacade facade;
+
+  @BeforeEach
+  void setUp() {
+    CodeGenProperties codeGenProperties = new CodeGenProperties();
+    meterRegistry = new SimpleMeterRegistry();
+    completionExecutor = new CodeGenCompletionExecutor(codeGenProperties, meterRegistry);
+    AiCodeGeneratorServiceFactory serviceFactory = mock(AiCodeGeneratorServiceFactory.class);
+    when(serviceFactory.getAiCodeGeneratorService(anyLong())).thenReturn(aiCodeGeneratorService);
+    facade = new AiCodeGeneratorFacade();
+    ReflectionTestUtils.setField(facade, "aiCodeGeneratorServiceFactory", serviceFactory);
+    ReflectionTestUtils.setField(facade, "codeGenProperties", codeGenProperties);
+    ReflectionTestUtils.setField(facade, "completionExecutor", completionExecutor);
+    ReflectionTestUtils.setField(facade, "meterRegistry", meterRegistry);
+    ReflectionTestUtils.setField(facade, "codeGenMetrics", new CodeGenMetrics(meterRegistry));
+    ReflectionTestUtils.setField(facade, "codeGenTypeRegistry", new CodeGenTypeRegistry(
+        List.of(new HtmlCodeGenTypeHandler(), new MultiFileCodeGenTypeHandler())));
+    ReflectionTestUtils.setField(facade, "blobStore", new BlobStore());
+  }
+
+  @AfterEach
+  void tearDown() {
+    completionExecutor.destroy();
+  }
+
+  @Test
+  void testDeadline() {
+    when(aiCodeGeneratorService.generateHtmlCodeStream(any())).thenReturn(Flux.never());
+    StepVerifier.create(facade.generateAndSaveCodeAsync("做一个页面", CodeGenTypeEnum.HTML, 1L,
+            Duration.ofMillis(200)))
+        .expectError(BusinessException.class)
+        .verify(Duration.ofSeconds(5));
+  }
+
+  @Test
+  void testCancelFuture() throws InterruptedException {
+    CountDownLatch cancelled = new CountDownLatch(1);
+    CountDownLatch subscribed = new CountDownLatch(1);
+    when(aiCodeGeneratorService.generateMultiFileCodeStream(any())).thenReturn(Flux.<String>never()
+        .doOnSubscribe(subscription -> subscribed.countDown())
+        .doOnCancel(cancelled::countDown));
+    CompletableFuture<File> future = facade.generateAndSaveCodeFuture("做一个页面", CodeGenTypeEnum.MULTI_FILE, 1L);
+    assertTrue(subscribed.await(5, TimeUnit.SECONDS));
+    future.cancel(true);
+    assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+    assertTrue(future.isCancelled());
+  }
+
+  @Test
+  void testCancelStreamAbortsUpstream() throws InterruptedException {
+    CountDownLatch closed = new CountDownLatch(1);
+    InputStream responseStream = new ByteArrayInputStream(new byte[0]) {
+      @Override
+      public void close() {
+        closed.countDown();
+      }
+    };
+    // 模拟模型在调用线程上同步发起流式请求，响应流一直不结束
+    HttpClient httpClient = new AbortableHttpClient(new HttpClient() {
+      @Override
+      public SuccessfulHttpResponse execute(HttpRequest request) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public void execute(HttpRequest request, ServerSentEventParser parser, ServerSentEventListener listener) {
+        parser.parse(responseStream, listener);
+      }
+    });
+    HttpRequest request = HttpRequest.builder().method(HttpMethod.POST).url("http://localhost/chat").build();
+    when(aiCodeGeneratorService.generateHtmlCodeStream(any())).thenAnswer(invocation -> {
+      httpClient.execute(request, (inputStream, listener) -> {
+      }, mock(ServerSentEventListener.class));
+      return Flux.just("```html\n<div>").concatWith(Flux.never());
+    });
+    ChunkAccumulator accumulator = facade.newAccumulator();
+    CountDownLatch received = new CountDownLatch(1);
+    Disposable subscription = facade.generateAndSaveCodeStream("做一个页面", CodeGenTypeEnum.HTML, 1L, accumulator)
+        .filter(StreamMessage::isAiResponse)
+        .subscribe(message -> received.countDown());
+    assertTrue(received.await(5, TimeUnit.SECONDS));
+    assertEquals(1, closed.getCount());
+    subscription.dispose();
+    assertTrue(closed.await(5, TimeUnit.SECONDS));
+    assertEquals(1.0, meterRegistry.counter("code.gen.cancelled", "type", "html").count());
+    assertNotNull(meterRegistry.find("code.gen.stream.duration").tags("type", "html", "outcome", "cancelled").timer());
+    assertEquals("```html\n<div>", accumulator.toString());
+  }
+}
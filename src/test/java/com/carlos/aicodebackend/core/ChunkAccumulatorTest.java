@@ -0,0 +1,57 @@
+package com.carlos.aicodebackend.core;
+
+import com.carlos.aicodebackend.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 输出累加器测试类
+ */
+class ChunkAccumulatorTest {
+
+  @Test
+  void testReadAcrossChunks() {
+    ChunkAccumulator accumulator = new ChunkAccumulator();
+    String[] chunks = {"```ht", "ml\n<p>", "", "你好</p>\n`", "``"};
+    StringBuilder expected = new StringBuilder();
+    for (String chunk : chunks) {
+      accumulator.append(chunk);
+      expected.append(chunk);
+    }
+    assertEquals(expected.length(), accumulator.length());
+    assertEquals(4, accumulator.getChunkCount());
+    for (int i = 0; i < expected.length(); i++) {
+      assertEquals(expected.charAt(i), accumulator.charAt(i));
+    }
+    assertEquals(expected.indexOf("```", 1), accumulator.indexOf("```", 1));
+    assertEquals(expected.substring(3, 15), accumulator.substring(3, 15));
+    assertEquals(expected.toString(), accumulator.toString());
+    // 合并后仍可继续追加
+    accumulator.append("!");
+    assertEquals(expected + "!", accumulator.toString());
+  }
+
+  @Test
+  void testSnapshotDoesNotMergeChunks() {
+    ChunkAccumulator accumulator = new ChunkAccumulator();
+    accumulator.append("<p>");
+    accumulator.append("你好");
+    assertEquals("<p>你好", accumulator.snapshot());
+    // 快照不合并片段，写入线程此时读取的位置仍然有效
+    assertEquals(2, accumulator.getChunkCount());
+    accumulator.append("</p>");
+    assertEquals('好', accumulator.charAt(4));
+    assertEquals("", new ChunkAccumulator().snapshot());
+  }
+
+  @Test
+  void testByteBudget() {
+    ChunkAccumulator accumulator = new ChunkAccumulator(8);
+    // 两个汉字共 6 字节
+    accumulator.append("你好");
+    assertEquals(6, accumulator.getByteCount());
+    accumulator.append("ab");
+    assertThrows(BusinessException.class, () -> accumulator.append("c"));
+  }
+}
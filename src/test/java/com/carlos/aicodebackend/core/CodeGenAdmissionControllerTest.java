@@ -0,0 +1,109 @@
+package com.carlos.aicodebackend.core;
+
+import com.carlos.aicodebackend.ai.model.message.StreamMessage;
+import com.carlos.aicodebackend.ai.model.message.StreamMessageTypeEnum;
+import com.carlos.aicodebackend.config.CodeGenProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 生成准入控制测试类
+ */
+class CodeGenAdmissionControllerTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private final List<String> started = new ArrayList<>();
+
+  private final Map<String, Sinks.Many<StreamMessage>> generations = new HashMap<>();
+
+  private final Map<String, List<StreamMessage>> received = new HashMap<>();
+
+  private CodeGenAdmissionController newController(int maxConcurrent, int maxPerUser) {
+    CodeGenProperties properties = new CodeGenProperties();
+    properties.getAdmission().setMaxConcurrent(maxConcurrent);
+    properties.getAdmission().setMaxPerUser(maxPerUser);
+    return new CodeGenAdmissionController(properties, meterRegistry);
+  }
+
+  private Disposable submit(CodeGenAdmissionController controller, String name, long userId, boolean priority) {
+    List<StreamMessage> messages = new ArrayList<>();
+    received.put(name, messages);
+    return controller.admit(userId, priority, () -> {
+      started.add(name);
+      Sinks.Many<StreamMessage> sink = Sinks.many().unicast().onBackpressureBuffer();
+      generations.put(name, sink);
+      return sink.asFlux();
+    }).subscribe(messages::add);
+  }
+
+  private void finish(String name) {
+    generations.get(name).tryEmitComplete();
+  }
+
+  @Test
+  void testRoundRobinAcrossUsers() {
+    CodeGenAdmissionController controller = newController(1, 2);
+    submit(controller, "x", 9L, false);
+    submit(controller, "a1", 1L, false);
+    submit(controller, "a2", 1L, false);
+    submit(controller, "a3", 1L, false);
+    submit(controller, "b1", 2L, false);
+    assertEquals(List.of("x"), started);
+    assertEquals(4, controller.getQueuedCount());
+    // 用户 B 的请求排在用户 A 的第二个请求之前
+    assertEquals("3", received.get("a2").getLast().getData());
+    assertEquals("2", received.get("b1").getLast().getData());
+    assertEquals(StreamMessageTypeEnum.QUEUED.getValue(), received.get("b1").getLast().getType());
+
+    for (String name : List.of("x", "a1", "b1", "a2")) {
+      finish(name);
+    }
+    assertEquals(List.of("x", "a1", "b1", "a2", "a3"), started);
+    assertEquals(1, controller.getRunningCount());
+    assertEquals(5, meterRegistry.get("code.gen.admission.wait").tag("lane", "normal").timer().count());
+  }
+
+  @Test
+  void testPriorityLaneAndPerUserCap() {
+    CodeGenAdmissionController controller = newController(2, 1);
+    submit(controller, "a1", 1L, false);
+    submit(controller, "a2", 1L, false);
+    // 用户 A 达到单用户上限，B 可以直接开始
+    submit(controller, "b1", 2L, false);
+    submit(controller, "c1", 3L, false);
+    submit(controller, "admin", 4L, true);
+    assertEquals(List.of("a1", "b1"), started);
+    assertEquals("1", received.get("admin").getLast().getData());
+
+    finish("b1");
+    assertEquals(List.of("a1", "b1", "admin"), started);
+    finish("admin");
+    // a2 仍受单用户上限限制，c1 先开始
+    assertEquals(List.of("a1", "b1", "admin", "c1"), started);
+  }
+
+  @Test
+  void testCancelWhileQueued() {
+    CodeGenAdmissionController controller = newController(1, 1);
+    submit(controller, "a1", 1L, false);
+    Disposable queued = submit(controller, "b1", 2L, false);
+    submit(controller, "c1", 3L, false);
+    assertEquals("2", received.get("c1").getLast().getData());
+    queued.dispose();
+    assertEquals("1", received.get("c1").getLast().getData());
+    finish("a1");
+    assertEquals(List.of("a1", "c1"), started);
+    assertEquals(0, controller.getQueuedCount());
+  }
+}
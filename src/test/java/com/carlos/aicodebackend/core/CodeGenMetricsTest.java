@@ -0,0 +1,92 @@
+package com.carlos.aicodebackend.core;
+
+import com.carlos.aicodebackend.model.enums.CodeGenTypeEnum;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 代码生成链路指标测试类
+ */
+class CodeGenMetricsTest {
+
+  private SimpleMeterRegistry meterRegistry;
+
+  private CodeGenMetrics metrics;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    metrics = new CodeGenMetrics(meterRegistry);
+  }
+
+  @Test
+  void testStreamObservation() {
+    CodeGenMetrics.StreamObservation observation = metrics.startStream(CodeGenTypeEnum.HTML);
+    Flux<String> codeStream = Flux.just("```html\n", "<div>", "任务", "</div>\n```")
+        .delayElements(Duration.ofMillis(20));
+    StepVerifier.create(observation.observe(codeStream, chunk -> chunk))
+        .expectNextCount(4)
+        .verifyComplete();
+
+    Timer ttft = timer("code.gen.ttft", "success");
+    assertEquals(1, ttft.count());
+    assertTrue(ttft.totalTime(TimeUnit.MILLISECONDS) >= 15);
+    // 片段间隔不带结果标签
+    Timer interToken = meterRegistry.find("code.gen.inter.token").tags("type", "html").timer();
+    assertNotNull(interToken);
+    assertNull(interToken.getId().getTag("outcome"));
+    assertEquals(3, interToken.count());
+    assertEquals(1, timer("code.gen.stream.duration", "success").count());
+    assertEquals(4, summary("code.gen.stream.chunks").totalAmount());
+    // 中文每个字符 3 字节
+    assertEquals(8 + 5 + 6 + 10, summary("code.gen.stream.bytes").totalAmount());
+  }
+
+  @Test
+  void testStreamCancelled() {
+    CodeGenMetrics.StreamObservation observation = metrics.startStream(CodeGenTypeEnum.HTML);
+    StepVerifier.create(observation.observe(Flux.just("<div>", "<p>").concatWith(Flux.never()), chunk -> chunk))
+        .expectNext("<div>", "<p>")
+        // 流结束前片段间隔已经写入
+        .then(() -> assertEquals(1, meterRegistry.find("code.gen.inter.token").timer().count()))
+        .thenCancel()
+        .verify();
+    assertEquals(1, timer("code.gen.stream.duration", "cancelled").count());
+    // 片段在结束后到达时不再计入
+    observation.onChunk("late");
+    observation.finish(CodeGenMetrics.SUCCESS);
+    assertNull(meterRegistry.find("code.gen.stream.duration").tag("outcome", "success").timer());
+  }
+
+  @Test
+  void testTimeParseAndSave() {
+    assertEquals("ok", metrics.timeParse(CodeGenTypeEnum.HTML, () -> "ok"));
+    assertThrows(IllegalStateException.class, () -> metrics.timeSave(CodeGenTypeEnum.HTML, () -> {
+      throw new IllegalStateException("磁盘已满");
+    }));
+    assertEquals(1, timer("code.gen.parse", "success").count());
+    assertEquals(1, timer("code.gen.save", "error").count());
+  }
+
+  private Timer timer(String name, String outcome) {
+    Timer timer = meterRegistry.find(name).tags("type", "html", "outcome", outcome).timer();
+    assertNotNull(timer, name);
+    return timer;
+  }
+
+  private DistributionSummary summary(String name) {
+    DistributionSummary summary = meterRegistry.find(name).tags("type", "html", "outcome", "success").summary();
+    assertNotNull(summary, name);
+    return summary;
+  }
+}
@@ -0,0 +1,61 @@
+package com.carlos.aicodebackend.core;
+
+import com.carlos.aicodebackend.config.CodeGenProperties;
+import com.carlos.aicodebackend.core.handler.CodeGenTypeRegistry;
+import com.carlos.aicodebackend.core.handler.HtmlCodeGenTypeHandler;
+import com.carlos.aicodebackend.core.handler.MultiFileCodeGenTypeHandler;
+import com.carlos.aicodebackend.model.enums.CodeGenTypeEnum;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 生成输出缓存测试类
+ */
+class CodeGenOutputCacheTest {
+
+  @TempDir
+  Path tempDir;
+
+  private final CodeGenTypeRegistry codeGenTypeRegistry = new CodeGenTypeRegistry(
+      List.of(new HtmlCodeGenTypeHandler(), new MultiFileCodeGenTypeHandler()));
+
+  @Test
+  void testMemoryAndDiskTier() {
+    CodeGenProperties properties = new CodeGenProperties();
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    CodeGenOutputCache cache = new CodeGenOutputCache(properties, meterRegistry, codeGenTypeRegistry, tempDir);
+    String output = "```html\n<h1>待办清单</h1>\n```";
+
+    assertNull(cache.get(CodeGenTypeEnum.HTML, "待办清单"));
+    cache.put(CodeGenTypeEnum.HTML, "待办清单", output);
+    // 提示词规范化后相同即命中，不同生成类型互不影响
+    assertEquals(output, cache.get(CodeGenTypeEnum.HTML, " 待办清单\n"));
+    assertNull(cache.get(CodeGenTypeEnum.MULTI_FILE, "待办清单"));
+
+    // 新实例内存为空，从磁盘读取
+    CodeGenOutputCache restarted = new CodeGenOutputCache(properties, meterRegistry, codeGenTypeRegistry, tempDir);
+    assertEquals(output, restarted.get(CodeGenTypeEnum.HTML, "待办清单"));
+
+    assertEquals(1, meterRegistry.get("code.gen.output.cache").tag("tier", "memory").counter().count());
+    assertEquals(1, meterRegistry.get("code.gen.output.cache").tag("tier", "disk").counter().count());
+    assertEquals(2, meterRegistry.get("code.gen.output.cache").tag("result", "miss").counter().count());
+  }
+
+  @Test
+  void testReplay() {
+    CodeGenProperties properties = new CodeGenProperties();
+    properties.getOutputCache().setReplayChunkSize(2);
+    properties.getOutputCache().setReplayInterval(Duration.ofMillis(1));
+    CodeGenOutputCache cache = new CodeGenOutputCache(properties, new SimpleMeterRegistry(), codeGenTypeRegistry, tempDir);
+    List<String> chunks = cache.replay("a😀bc").collectList().block(Duration.ofSeconds(5));
+    // 代理对不会被拆开
+    assertEquals(List.of("a😀", "bc"), chunks);
+  }
+}
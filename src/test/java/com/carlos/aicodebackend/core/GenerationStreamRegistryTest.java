@@ -0,0 +1,177 @@
+package com.carlos.aicodebackend.core;
+
+import com.carlos.aicodebackend.ai.model.message.StreamMessage;
+import com.carlos.aicodebackend.config.CodeGenProperties;
+import com.carlos.aicodebackend.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 生成流注册表测试类
+ */
+class GenerationStreamRegistryTest {
+
+  private final CodeGenProperties properties = new CodeGenProperties();
+
+  private GenerationStreamRegistry newRegistry() {
+    return new GenerationStreamRegistry(properties, Schedulers.immediate());
+  }
+
+  @Test
+  void testCoalesceDuplicateRequests() {
+    GenerationStreamRegistry registry = newRegistry();
+    AtomicInteger upstreamCalls = new AtomicInteger();
+    Sinks.Many<StreamMessage> upstream = Sinks.many().unicast().onBackpressureBuffer();
+    GenerationStream first = registry.getOrCreate(1L, 10L, "做一个 待办清单", () -> {
+      upstreamCalls.incrementAndGet();
+      return upstream.asFlux();
+    });
+    // 空白不同的重复请求也会合并
+    GenerationStream second = registry.getOrCreate(1L, 10L, "  做一个\n待办清单 ", () -> {
+      upstreamCalls.incrementAndGet();
+      return Flux.empty();
+    });
+    assertSame(first, second);
+
+    List<StreamMessage> firstReceived = new ArrayList<>();
+    List<StreamMessage> secondReceived = new ArrayList<>();
+    first.subscribe(0).subscribe(firstReceived::add);
+    upstream.tryEmitNext(StreamMessage.aiResponse("a"));
+    // 后来者先拿到重放的消息，再继续接收新消息
+    second.subscribe(0).subscribe(secondReceived::add);
+    upstream.tryEmitNext(StreamMessage.aiResponse("b"));
+    upstream.tryEmitComplete();
+
+    assertEquals(1, upstreamCalls.get());
+    assertEquals(List.of("a", "b"), firstReceived.stream().map(StreamMessage::getData).toList());
+    assertEquals(firstReceived, secondReceived);
+    assertEquals(first.getId() + ":2", firstReceived.get(1).getId());
+    // 结束后不再合并，但保留期内仍可按 ID 找到
+    assertEquals(0, registry.getInFlightCount());
+    assertSame(first, registry.get(first.getId()));
+  }
+
+  @Test
+  void testCoalescedJoinAfterRingWrapped() {
+    properties.getStream().setRingBufferSize(2);
+    GenerationStreamRegistry registry = newRegistry();
+    Sinks.Many<StreamMessage> upstream = Sinks.many().unicast().onBackpressureBuffer();
+    GenerationStream first = registry.getOrCreate(1L, 10L, "个人博客", upstream::asFlux);
+    first.watch().subscribe();
+    upstream.tryEmitNext(StreamMessage.aiResponse("a"));
+    upstream.tryEmitNext(StreamMessage.aiResponse("b"));
+    upstream.tryEmitNext(StreamMessage.aiResponse("c"));
+
+    // 重复请求在缓冲区回绕后仍合并到同一生成，从最早保留的消息开始
+    GenerationStream second = registry.getOrCreate(1L, 10L, "个人博客", Flux::empty);
+    assertSame(first, second);
+    StepVerifier.create(second.watch().map(StreamMessage::getData))
+        .expectNext("b", "c")
+        .then(() -> upstream.tryEmitComplete())
+        .verifyComplete();
+    // 按序号续传时超出缓冲范围仍然报错
+    StepVerifier.create(first.subscribe(0)).expectError(BusinessException.class).verify();
+  }
+
+  @Test
+  void testResumeAfterDisconnect() {
+    GenerationStreamRegistry registry = newRegistry();
+    Sinks.Many<StreamMessage> upstream = Sinks.many().unicast().onBackpressureBuffer();
+    GenerationStream stream = registry.getOrCreate(1L, 10L, "个人博客", upstream::asFlux);
+    List<String> received = new ArrayList<>();
+    Disposable connection = stream.subscribe(0).map(StreamMessage::getData).subscribe(received::add);
+    upstream.tryEmitNext(StreamMessage.aiResponse("a"));
+    upstream.tryEmitNext(StreamMessage.aiResponse("b"));
+    connection.dispose();
+    // 断线期间生成继续
+    upstream.tryEmitNext(StreamMessage.aiResponse("c"));
+    assertEquals(List.of("a", "b"), received);
+
+    StepVerifier.create(stream.subscribe(1).map(StreamMessage::getData))
+        .expectNext("b", "c")
+        .then(() -> upstream.tryEmitComplete())
+        .verifyComplete();
+  }
+
+  @Test
+  void testCancelWhenIdle() throws InterruptedException {
+    properties.getStream().setIdleTimeout(Duration.ofMillis(50));
+    GenerationStreamRegistry registry = newRegistry();
+    CountDownLatch cancelled = new CountDownLatch(1);
+    GenerationStream stream = registry.getOrCreate(1L, 10L, "个人博客",
+        () -> Flux.<StreamMessage>never().doOnCancel(cancelled::countDown));
+    stream.subscribe(0).subscribe().dispose();
+    assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+    assertTrue(stream.isTerminated());
+  }
+
+  @Test
+  void testCancelImmediatelyWithoutIdleTimeout() {
+    properties.getStream().setIdleTimeout(Duration.ZERO);
+    GenerationStreamRegistry registry = newRegistry();
+    AtomicInteger cancelled = new AtomicInteger();
+    GenerationStream stream = registry.getOrCreate(1L, 10L, "个人博客",
+        () -> Flux.<StreamMessage>never().doOnCancel(cancelled::incrementAndGet));
+    stream.subscribe(0).subscribe().dispose();
+    assertEquals(1, cancelled.get());
+    assertTrue(stream.isTerminated());
+  }
+
+  @Test
+  void testSlowSubscriberDoesNotStallProducer() {
+    properties.getStream().setSubscriberBufferSize(4);
+    GenerationStreamRegistry registry = newRegistry();
+    Sinks.Many<StreamMessage> upstream = Sinks.many().unicast().onBackpressureBuffer();
+    GenerationStream stream = registry.getOrCreate(1L, 10L, "个人博客", upstream::asFlux);
+    List<String> fast = new ArrayList<>();
+    stream.subscribe(0).map(StreamMessage::getData).subscribe(fast::add);
+    StepVerifier.Step<StreamMessage> slow = StepVerifier.create(stream.subscribe(0), 0);
+    slow.then(() -> {
+          for (int i = 0; i < 1000; i++) {
+            upstream.tryEmitNext(StreamMessage.aiResponse(String.valueOf(i)));
+          }
+          upstream.tryEmitComplete();
+        })
+        .thenRequest(Long.MAX_VALUE)
+        .thenConsumeWhile(message -> true)
+        .expectError(BusinessException.class)
+        .verify(Duration.ofSeconds(5));
+    assertEquals(1000, fast.size());
+  }
+
+  @Test
+  void testWatchLatestGeneration() {
+    properties.getStream().setRingBufferSize(2);
+    GenerationStreamRegistry registry = newRegistry();
+    Sinks.Many<StreamMessage> upstream = Sinks.many().unicast().onBackpressureBuffer();
+    GenerationStream stream = registry.getOrCreate(1L, 10L, "个人博客", upstream::asFlux);
+    List<String> owner = new ArrayList<>();
+    stream.subscribe(0).map(StreamMessage::getData).subscribe(owner::add);
+    upstream.tryEmitNext(StreamMessage.aiResponse("a"));
+    upstream.tryEmitNext(StreamMessage.aiResponse("b"));
+    upstream.tryEmitNext(StreamMessage.aiResponse("c"));
+
+    assertSame(stream, registry.getLatestByApp(1L));
+    // 旁观者从缓冲区中最早的消息开始，与发起者共享同一个上游
+    StepVerifier.create(registry.getLatestByApp(1L).watch().map(StreamMessage::getData))
+        .expectNext("b", "c")
+        .then(() -> upstream.tryEmitNext(StreamMessage.aiResponse("d")))
+        .expectNext("d")
+        .then(() -> upstream.tryEmitComplete())
+        .expectComplete().verify(Duration.ofSeconds(3));
+    assertEquals(List.of("a", "b", "c", "d"), owner);
+  }
+}
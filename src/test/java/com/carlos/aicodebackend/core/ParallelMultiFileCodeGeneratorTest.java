@@ -0,0 +1,119 @@
+package com.carlos.aicodebackend.core;
+
+import com.carlos.aicodebackend.ai.ParallelMultiFileGeneratorService;
+import com.carlos.aicodebackend.ai.model.MultiFileCodeResult;
+import com.carlos.aicodebackend.ai.model.message.StreamMessage;
+import com.carlos.aicodebackend.config.CodeGenProperties;
+import com.carlos.aicodebackend.core.parser.MultiFileCodeParser;
+import com.carlos.aicodebackend.core.parser.StreamingCodeParser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 多文件并行生成器测试类
+ */
+class ParallelMultiFileCodeGeneratorTest {
+
+  private final ParallelMultiFileGeneratorService generatorService = mock(ParallelMultiFileGeneratorService.class);
+
+  private CodeGenCompletionExecutor completionExecutor;
+
+  private ParallelMultiFileCodeGenerator generator;
+
+  @BeforeEach
+  void setUp() {
+    CodeGenProperties properties = new CodeGenProperties();
+    completionExecutor = new CodeGenCompletionExecutor(properties, new SimpleMeterRegistry());
+    generator = new ParallelMultiFileCodeGenerator(generatorService, completionExecutor, properties);
+  }
+
+  @AfterEach
+  void tearDown() {
+    completionExecutor.destroy();
+  }
+
+  @Test
+  void testGenerateConcurrently() {
+    when(generatorService.planMultiFileStream("做一个博客")).thenReturn(Flux.just("区块：", "header#top"));
+    // 每个文件都要等三个文件的生成全部开始后才输出，顺序生成时会超时
+    CountDownLatch started = new CountDownLatch(3);
+    when(generatorService.generateHtmlFileStream(eq("做一个博客"), eq("区块：header#top")))
+        .thenReturn(fileStream(started, "```html\n<header id=\"top\"></header>\n```"));
+    when(generatorService.generateCssFileStream(any(), any()))
+        .thenReturn(fileStream(started, "```css\n#top { color: red; }\n```"));
+    when(generatorService.generateJsFileStream(any(), any()))
+        .thenReturn(fileStream(started, "```js\nconsole.log(1);\n```"));
+
+    ChunkAccumulator accumulator = new ChunkAccumulator();
+    StreamingCodeParser streamingParser = new StreamingCodeParser(accumulator, null);
+    List<StreamMessage> messages = generator.generate("做一个博客", streamingParser)
+        .collectList()
+        .block(Duration.ofSeconds(10));
+
+    assertNotNull(messages);
+    // 规划片段不带文件名，文件片段以文件名标记
+    assertNull(messages.get(0).getFile());
+    assertEquals("区块：", messages.get(0).getData());
+    assertEquals(List.of("index.html", "script.js", "style.css"), messages.stream()
+        .map(StreamMessage::getFile)
+        .filter(file -> file != null)
+        .distinct()
+        .sorted()
+        .toList());
+
+    streamingParser.finish();
+    MultiFileCodeResult result = new MultiFileCodeParser().parseCode(streamingParser);
+    assertEquals("<header id=\"top\"></header>", result.getHtmlCode());
+    assertEquals("#top { color: red; }", result.getCssCode());
+    assertEquals("console.log(1);", result.getJsCode());
+    assertTrue(accumulator.toString().startsWith("区块：header#top\n\n```"));
+  }
+
+  @Test
+  void testFileErrorCancelsOthers() throws InterruptedException {
+    when(generatorService.planMultiFileStream(any())).thenReturn(Flux.just("约定"));
+    CountDownLatch cancelled = new CountDownLatch(2);
+    when(generatorService.generateHtmlFileStream(any(), any()))
+        .thenReturn(Flux.<String>never().doOnCancel(cancelled::countDown));
+    when(generatorService.generateCssFileStream(any(), any()))
+        .thenReturn(Flux.<String>never().doOnCancel(cancelled::countDown));
+    when(generatorService.generateJsFileStream(any(), any()))
+        .thenReturn(Flux.error(new IllegalStateException("模型调用失败")));
+
+    assertThrows(IllegalStateException.class, () -> generator.generate("做一个博客", new StreamingCodeParser())
+        .blockLast(Duration.ofSeconds(10)));
+    assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void testEmptyPlan() {
+    when(generatorService.planMultiFileStream(any())).thenReturn(Flux.just(" "));
+    assertThrows(RuntimeException.class, () -> generator.generate("做一个博客", new StreamingCodeParser())
+        .blockLast(Duration.ofSeconds(10)));
+    verify(generatorService, never()).generateHtmlFileStream(any(), any());
+  }
+
+  private static Flux<String> fileStream(CountDownLatch started, String output) {
+    return Flux.defer(() -> {
+      started.countDown();
+      return Mono.fromCallable(() -> started.await(5, TimeUnit.SECONDS))
+          .flatMapMany(allStarted -> allStarted
+              ? Flux.fromArray(output.split("(?<=\n)"))
+              : Flux.error(new IllegalStateException("文件没有并行生成")));
+    });
+  }
+}
@@ -0,0 +1,113 @@
+package com.carlos.aicodebackend.core;
+
+import com.carlos.aicodebackend.ai.model.message.StreamMessage;
+import com.carlos.aicodebackend.config.CodeGenProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SSE 片段合并器测试类
+ */
+class StreamMessageCoalescerTest {
+
+  private CodeGenProperties properties;
+
+  private StreamMessageCoalescer coalescer;
+
+  @BeforeEach
+  void setUp() {
+    properties = new CodeGenProperties();
+    coalescer = new StreamMessageCoalescer(properties);
+  }
+
+  @Test
+  void testMergeWithinWindow() {
+    Flux<StreamMessage> source = Flux.just(
+        StreamMessage.aiResponse("<di").withId("g:1"),
+        StreamMessage.aiResponse("v>").withId("g:2"),
+        StreamMessage.saved("site_1").withId("g:3"),
+        StreamMessage.aiResponse("尾").withId("g:4"));
+    StepVerifier.create(coalescer.coalesce(source, null, null))
+        .assertNext(message -> {
+          // 合并后的事件 ID 取最后一个片段的，续传位置不变
+          assertEquals("<div>", message.getData());
+          assertEquals("g:2", message.getId());
+        })
+        .assertNext(message -> assertEquals("g:3", message.getId()))
+        .assertNext(message -> assertEquals("尾", message.getData()))
+        .verifyComplete();
+  }
+
+  @Test
+  void testNotMergeAcrossFiles() {
+    Flux<StreamMessage> source = Flux.just(
+        StreamMessage.aiResponse("<div", "index.html"),
+        StreamMessage.aiResponse(">", "index.html"),
+        StreamMessage.aiResponse("body {", "style.css"),
+        StreamMessage.aiResponse("</div>", "index.html"));
+    StepVerifier.create(coalescer.coalesce(source, null, null))
+        .assertNext(message -> {
+          assertEquals("<div>", message.getData());
+          assertEquals("index.html", message.getFile());
+        })
+        .assertNext(message -> assertEquals("style.css", message.getFile()))
+        .assertNext(message -> assertEquals("</div>", message.getData()))
+        .verifyComplete();
+  }
+
+  @Test
+  void testFlushBySize() {
+    Sinks.Many<StreamMessage> upstream = Sinks.many().unicast().onBackpressureBuffer();
+    StepVerifier.create(coalescer.coalesce(upstream.asFlux(), 10_000L, 4))
+        .then(() -> {
+          upstream.tryEmitNext(StreamMessage.aiResponse("ab"));
+          upstream.tryEmitNext(StreamMessage.aiResponse("cd"));
+        })
+        // 达到字节上限立即推送，不等时间窗口
+        .expectNextMatches(message -> "abcd".equals(message.getData()))
+        .then(upstream::tryEmitComplete)
+        .expectComplete()
+        .verify(Duration.ofSeconds(3));
+  }
+
+  @Test
+  void testMergeWhileDownstreamSlow() {
+    Sinks.Many<StreamMessage> upstream = Sinks.many().unicast().onBackpressureBuffer();
+    StepVerifier.create(coalescer.coalesce(upstream.asFlux(), 10L, 4), 0)
+        .then(() -> {
+          for (int i = 0; i < 100; i++) {
+            upstream.tryEmitNext(StreamMessage.aiResponse("x").withId("g:" + (i + 1)));
+          }
+        })
+        .expectNoEvent(Duration.ofMillis(100))
+        // 下游没有需求期间片段持续合并，需求到达时一次推送
+        .thenRequest(1)
+        .assertNext(message -> {
+          assertEquals(100, message.getData().length());
+          assertEquals("g:100", message.getId());
+        })
+        .thenRequest(1)
+        .then(upstream::tryEmitComplete)
+        .expectComplete()
+        .verify(Duration.ofSeconds(3));
+  }
+
+  @Test
+  void testClientDisablesCoalescing() {
+    Flux<StreamMessage> source = Flux.just("a", "b", "c").map(StreamMessage::aiResponse);
+    StepVerifier.create(coalescer.coalesce(source, 0L, null))
+        .expectNextCount(3)
+        .verifyComplete();
+    properties.getCoalesce().setEnabled(false);
+    StepVerifier.create(coalescer.coalesce(source, null, null))
+        .expectNextCount(3)
+        .verifyComplete();
+  }
+}
@@ -0,0 +1,65 @@
+package com.carlos.aicodebackend.core;
+
+import cn.hutool.json.JSONUtil;
+import com.carlos.aicodebackend.ai.model.message.StreamMessage;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SSE 消息编码器测试类
+ */
+class StreamMessageEncoderTest {
+
+  private static final List<String> SAMPLES = List.of(
+      "",
+      "<div class=\"app\">",
+      "C:\\tmp\\index.html",
+      "第一行\n\t第二行\r\n",
+      "控制字符\u0001\u001f",
+      "表情😀和分隔符\u2028\u2029",
+      "孤立代理\ud83d结尾");
+
+  @Test
+  void testToJsonRoundTrip() {
+    for (String sample : SAMPLES) {
+      String json = StreamMessageEncoder.toJson(sample);
+      assertTrue(json.startsWith("{\"d\":\""));
+      // 编码结果不含原始换行，SSE 的 data 行不会被拆开
+      assertFalse(json.contains("\n") || json.contains("\r"));
+      assertEquals(sample, JSONUtil.parseObj(json).getStr("d"));
+    }
+    assertEquals("{\"d\":null}", StreamMessageEncoder.toJson(null));
+  }
+
+  @Test
+  void testEncodeMatchesJsonPath() {
+    for (String sample : SAMPLES) {
+      DataBuffer buffer = StreamMessageEncoder.encode(StreamMessage.aiResponse(sample).withId("g:7"),
+          DefaultDataBufferFactory.sharedInstance);
+      String expected = "id:g:7\ndata:" + StreamMessageEncoder.toJson(sample) + "\n\n";
+      // 孤立代理按 UTF-8 编码规则替换为 '?'
+      assertEquals(new String(expected.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8),
+          buffer.toString(StandardCharsets.UTF_8));
+      // 按精确大小分配
+      assertEquals(expected.getBytes(StandardCharsets.UTF_8).length, buffer.readableByteCount());
+    }
+  }
+
+  @Test
+  void testEncodeEvent() {
+    DataBuffer saved = StreamMessageEncoder.encode(StreamMessage.saved("site_1"), DefaultDataBufferFactory.sharedInstance);
+    assertEquals("event:saved\ndata:{\"d\":\"site_1\"}\n\n", saved.toString(StandardCharsets.UTF_8));
+    DataBuffer fileChunk = StreamMessageEncoder.encode(StreamMessage.aiResponse("a{}", "style.css"),
+        DefaultDataBufferFactory.sharedInstance);
+    assertEquals("data:{\"d\":\"a{}\",\"f\":\"style.css\"}\n\n", fileChunk.toString(StandardCharsets.UTF_8));
+    assertEquals("{\"d\":\"a{}\",\"f\":\"style.css\"}", StreamMessageEncoder.toJson("a{}", "style.css"));
+    DataBuffer done = StreamMessageEncoder.encodeDone(DefaultDataBufferFactory.sharedInstance);
+    assertEquals("event:done\ndata:\n\n", done.toString(StandardCharsets.UTF_8));
+  }
+}
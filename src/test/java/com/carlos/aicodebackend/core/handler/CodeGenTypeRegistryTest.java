@@ -0,0 +1,34 @@
+package com.carlos.aicodebackend.core.handler;
+
+import com.carlos.aicodebackend.config.CodeGenProperties;
+import com.carlos.aicodebackend.exception.BusinessException;
+import com.carlos.aicodebackend.model.enums.CodeGenTypeEnum;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 代码生成类型注册表测试类
+ */
+class CodeGenTypeRegistryTest {
+
+  @Test
+  void testGetHandler() {
+    CodeGenTypeRegistry registry = new CodeGenTypeRegistry(List.of(new HtmlCodeGenTypeHandler(),
+        new MultiFileCodeGenTypeHandler(), new ProjectCodeGenTypeHandler(new CodeGenProperties())));
+    for (CodeGenTypeEnum codeGenType : CodeGenTypeEnum.values()) {
+      assertEquals(codeGenType, registry.getHandler(codeGenType).getCodeGenType());
+    }
+    assertThrows(BusinessException.class, () -> registry.getHandler(null));
+  }
+
+  @Test
+  void testMissingAndDuplicateHandler() {
+    CodeGenTypeRegistry registry = new CodeGenTypeRegistry(List.of(new HtmlCodeGenTypeHandler()));
+    assertThrows(BusinessException.class, () -> registry.getHandler(CodeGenTypeEnum.MULTI_FILE));
+    assertThrows(BusinessException.class, () -> new CodeGenTypeRegistry(
+        List.of(new HtmlCodeGenTypeHandler(), new HtmlCodeGenTypeHandler())));
+  }
+}
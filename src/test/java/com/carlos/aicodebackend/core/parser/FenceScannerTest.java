@@ -0,0 +1,75 @@
+package com.carlos.aicodebackend.core.parser;
+
+import com.carlos.aicodebackend.ai.model.HtmlCodeResult;
+import com.carlos.aicodebackend.ai.model.MultiFileCodeResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 围栏代码块扫描器测试类
+ */
+class FenceScannerTest {
+
+  @Test
+  void testScan_OffsetsAndTrim() {
+    String output = "说明\n```html \n\n  <p>hi</p>  \n```\n其他\n```css\np{}\n```";
+    List<FenceScanner.Fence> fences = FenceScanner.scan(output);
+    assertEquals(2, fences.size());
+    FenceScanner.Fence html = fences.get(0);
+    assertEquals("html", html.language());
+    assertEquals("<p>hi</p>", html.content(output));
+    assertEquals(output.indexOf("<p>"), html.contentStart());
+    assertEquals("css", fences.get(1).language());
+    assertEquals(output.length(), fences.get(1).closeEnd());
+  }
+
+  @Test
+  void testScan_LanguageAliases() {
+    String output = "```HTM\na\n```\n```JavaScript\nb\n```\n```mjs\nc\n```\n```js title=app\nd\n```\n```Python\ne\n```";
+    List<String> languages = FenceScanner.scan(output).stream().map(FenceScanner.Fence::language).toList();
+    assertEquals(List.of("html", "js", "js", "js", "python"), languages);
+  }
+
+  @Test
+  void testScan_IgnoresUnterminatedAndEmpty() {
+    String output = "```css\n   \n```\n```js\nconsole.log(1);\n";
+    List<FenceScanner.Fence> fences = FenceScanner.scan(output);
+    assertEquals(1, fences.size());
+    assertTrue(fences.get(0).isEmpty());
+    assertNull(FenceScanner.findFirst(output, "js"));
+  }
+
+  @Test
+  void testFindFirst() {
+    String output = "```css\na{}\n```\n```html\n<p>1</p>\n```\n```html\n<p>2</p>\n```";
+    FenceScanner.Fence fence = FenceScanner.findFirst(output, "html");
+    assertNotNull(fence);
+    assertEquals("<p>1</p>", fence.content(output));
+  }
+
+  @Test
+  void testParsers_FirstBlockPerLanguage() {
+    String output = "```mjs\nexport {};\n```\n```css\n\n```\n```css\nb{}\n```\n```htm\n<p/>\n```";
+    MultiFileCodeResult result = new MultiFileCodeParser().parseCode(output);
+    assertEquals("<p/>", result.getHtmlCode());
+    // 第一个 css 代码块为空时与流式解析一致，不取后面的代码块
+    assertNull(result.getCssCode());
+    assertEquals("export {};", result.getJsCode());
+    HtmlCodeResult htmlResult = new HtmlCodeParser().parseCode("  没有代码块  ");
+    assertEquals("没有代码块", htmlResult.getHtmlCode());
+  }
+
+  @Test
+  void testScan_LinearOnManyUnclosedOpenings() {
+    String output = "```html\n<div>未闭合</div>\n".repeat(20_000);
+    long start = System.nanoTime();
+    List<FenceScanner.Fence> fences = FenceScanner.scan(output);
+    long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+    // 后一个开头的 ``` 被当作结束标记，每两个开头组成一个代码块
+    assertEquals(10_000, fences.size());
+    assertTrue(elapsedMillis < 2_000, "扫描耗时 " + elapsedMillis + "ms");
+  }
+}
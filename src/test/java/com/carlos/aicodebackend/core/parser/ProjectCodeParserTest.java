@@ -0,0 +1,105 @@
+package com.carlos.aicodebackend.core.parser;
+
+import com.carlos.aicodebackend.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 项目代码解析器测试类
+ */
+class ProjectCodeParserTest {
+
+  private static final String PROJECT_OUTPUT = """
+      项目结构如下：
+
+      ```html path=index.html
+      <link rel="stylesheet" href="css/style.css">
+      ```
+
+      ```css path="css/style.css"
+      body { margin: 0; }
+      ```
+
+      ```js
+      // 没有路径标注的示例代码
+      ```
+
+      ```json path=./data/posts.json
+      [{"title": "第一篇"}]
+      ```
+
+      ```js path=css/style.css
+      // 同一路径只取第一个代码块
+      ```
+      """;
+
+  @Test
+  void testGetAnnotatedPath() {
+    assertEquals("src/app.js", ProjectCodeParser.getAnnotatedPath("js path=src/app.js"));
+    assertEquals("a b.txt", ProjectCodeParser.getAnnotatedPath("text title=x path='a b.txt'"));
+    assertNull(ProjectCodeParser.getAnnotatedPath("js xpath=src/app.js"));
+    assertNull(ProjectCodeParser.getAnnotatedPath("js"));
+  }
+
+  @Test
+  void testParse_BuildsFileTree() {
+    VirtualFileTree fileTree = new ProjectCodeParser(FileTreeLimits.UNLIMITED).parseCode(PROJECT_OUTPUT)
+        .getFileTree();
+    assertEquals(Map.of(
+        "css/style.css", "body { margin: 0; }",
+        "data/posts.json", "[{\"title\": \"第一篇\"}]",
+        "index.html", "<link rel=\"stylesheet\" href=\"css/style.css\">"), fileTree.getFiles());
+    assertEquals(List.of("css/style.css", "data/posts.json", "index.html"), List.copyOf(fileTree.getFiles().keySet()));
+
+    // 流式解析结果与整段解析一致
+    StreamingCodeParser streamingParser = new StreamingCodeParser();
+    for (int i = 0; i < PROJECT_OUTPUT.length(); i += 7) {
+      streamingParser.append(PROJECT_OUTPUT.substring(i, Math.min(PROJECT_OUTPUT.length(), i + 7)));
+    }
+    streamingParser.finish();
+    assertEquals(fileTree.getFiles(), new ProjectCodeParser(FileTreeLimits.UNLIMITED).parseCode(streamingParser)
+        .getFileTree().getFiles());
+  }
+
+  @Test
+  void testParse_SkipsUnsafePaths() {
+    ProjectCodeParser parser = new ProjectCodeParser(FileTreeLimits.UNLIMITED);
+    for (String path : List.of("../etc/passwd", "/abs.html", "a//b.js", ".env", "src/../x.js", "a\\..\\b.js",
+        "my@file.js")) {
+      // 与流式保存一致：跳过该代码块，其余文件照常保存
+      VirtualFileTree fileTree = parser.parseCode("```html path=index.html\n<p>\n```\n```js path=" + path
+          + "\nx\n```").getFileTree();
+      assertEquals(List.of("index.html"), List.copyOf(fileTree.getFiles().keySet()), path);
+    }
+    // 文件与目录同名
+    assertThrows(BusinessException.class,
+        () -> parser.parseCode("```js path=src\nx\n```\n```js path=src/app.js\ny\n```"));
+  }
+
+  @Test
+  void testParse_SkipsBlankFiles() {
+    ProjectCodeParser parser = new ProjectCodeParser(FileTreeLimits.UNLIMITED);
+    // 与保存器一致：只有空白的代码块不生成文件，也不满足入口文件校验
+    VirtualFileTree fileTree = parser.parseCode("```html path=index.html\n  \n\t\n```\n```js path=app.js\nx\n```")
+        .getFileTree();
+    assertEquals(List.of("app.js"), List.copyOf(fileTree.getFiles().keySet()));
+    assertFalse(fileTree.containsFile("index.html"));
+  }
+
+  @Test
+  void testParse_Limits() {
+    String output = "```js path=a.js\n12345\n```\n```js path=b.js\n12345\n```";
+    assertEquals(2, new ProjectCodeParser(new FileTreeLimits(2, 5, 10)).parseCode(output).getFileTree()
+        .getFileCount());
+    assertThrows(BusinessException.class,
+        () -> new ProjectCodeParser(new FileTreeLimits(1, 5, 10)).parseCode(output));
+    assertThrows(BusinessException.class,
+        () -> new ProjectCodeParser(new FileTreeLimits(2, 4, 10)).parseCode(output));
+    assertThrows(BusinessException.class,
+        () -> new ProjectCodeParser(new FileTreeLimits(2, 5, 9)).parseCode(output));
+  }
+}
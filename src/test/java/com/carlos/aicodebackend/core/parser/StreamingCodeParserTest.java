@@ -0,0 +1,90 @@
+package com.carlos.aicodebackend.core.parser;
+
+import com.carlos.aicodebackend.ai.model.HtmlCodeResult;
+import com.carlos.aicodebackend.ai.model.MultiFileCodeResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 流式代码解析器测试类
+ * 验证任意切分方式下的解析结果与整段正则解析一致
+ */
+class StreamingCodeParserTest {
+
+  private static final String MULTI_FILE_OUTPUT = """
+      好的，下面是生成的代码：
+
+      ```html
+      <!DOCTYPE html>
+      <html>
+      <head><link rel="stylesheet" href="style.css"></head>
+      <body><h1>任务管理</h1><code>`inline`</code></body>
+      </html>
+      ```
+
+      ```css
+      body { margin: 0; }
+      ```
+
+      ```javascript
+      const s = `template ${1}`;
+      console.log(s);
+      ```
+      以上就是全部代码。
+      """;
+
+  @Test
+  void testParseMultiFile_AnyChunking() {
+    MultiFileCodeResult expected = new MultiFileCodeParser().parseCode(MULTI_FILE_OUTPUT);
+    Random random = new Random(42);
+    for (int round = 0; round < 200; round++) {
+      StreamingCodeParser streamingParser = new StreamingCodeParser();
+      for (String chunk : randomChunks(MULTI_FILE_OUTPUT, random)) {
+        streamingParser.append(chunk);
+      }
+      streamingParser.finish();
+      MultiFileCodeResult actual = new MultiFileCodeParser().parseCode(streamingParser);
+      assertEquals(expected.getHtmlCode(), actual.getHtmlCode());
+      assertEquals(expected.getCssCode(), actual.getCssCode());
+      assertEquals("const s = `template ${1}`;\nconsole.log(s);", actual.getJsCode());
+    }
+  }
+
+  @Test
+  void testBlockCompleteCallback() {
+    List<String> languages = new ArrayList<>();
+    StreamingCodeParser streamingParser = new StreamingCodeParser(block -> languages.add(block.getLanguage()));
+    streamingParser.append("```html\n<p>hi</p>\n``");
+    assertTrue(languages.isEmpty());
+    streamingParser.append("`\n```css\np{}\n```");
+    assertEquals(List.of("html", "css"), languages);
+  }
+
+  @Test
+  void testHtmlFallback_UnterminatedFence() {
+    String output = "```html\n<p>未闭合</p>\n";
+    StreamingCodeParser streamingParser = new StreamingCodeParser();
+    streamingParser.append(output);
+    streamingParser.finish();
+    HtmlCodeResult result = new HtmlCodeParser().parseCode(streamingParser);
+    // 与正则解析一致：没有完整代码块时使用整个内容
+    assertEquals(new HtmlCodeParser().parseCode(output).getHtmlCode(), result.getHtmlCode());
+    assertTrue(streamingParser.getCompletedBlocks().isEmpty());
+  }
+
+  private List<String> randomChunks(String text, Random random) {
+    List<String> chunks = new ArrayList<>();
+    int index = 0;
+    while (index < text.length()) {
+      int end = Math.min(text.length(), index + 1 + random.nextInt(6));
+      chunks.add(text.substring(index, end));
+      index = end;
+    }
+    return chunks;
+  }
+}
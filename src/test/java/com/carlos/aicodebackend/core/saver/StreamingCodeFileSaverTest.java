@@ -0,0 +1,136 @@
+package com.carlos.aicodebackend.core.saver;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.carlos.aicodebackend.core.parser.FileTreeLimits;
+import com.carlos.aicodebackend.core.parser.StreamingCodeParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 流式代码文件保存器测试类
+ */
+class StreamingCodeFileSaverTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void testWriteWhileStreaming() throws IOException {
+    Path appDir = Files.createDirectories(tempDir.resolve("multi_file_1"));
+    StreamingCodeFileSaver saver = new StreamingCodeFileSaver(appDir.toString(),
+        new MultiFileCodeFileSaverTemplate()::getFileName);
+    StreamingCodeParser parser = new StreamingCodeParser(saver);
+    parser.append("说明\n```html\n  <h1>你好");
+    // 代码块未闭合时只存在暂存目录中的临时文件
+    Path stagingDir = stagingDir();
+    assertTrue(Files.exists(stagingDir.resolve("index.html.part")));
+    parser.append("，世界 😀</h1>\n\n``");
+    parser.append("`\n```css\nh1 { color: red; }\n```\n```js\nconsole.log(1);\n");
+    parser.finish();
+    // 发布前应用目录不变
+    assertTrue(isEmpty(appDir));
+    saver.publish();
+
+    assertEquals("<h1>你好，世界 😀</h1>", Files.readString(appDir.resolve("index.html"), StandardCharsets.UTF_8));
+    assertEquals("h1 { color: red; }", Files.readString(appDir.resolve("style.css")));
+    // 未闭合的 JS 代码块被丢弃
+    assertFalse(Files.exists(appDir.resolve("script.js")));
+    assertFalse(Files.exists(stagingDir));
+    assertTrue(saver.hasWrittenFiles());
+    // 摘要在写入时计算，与文件内容一致
+    assertEquals(Map.of("index.html", DigestUtil.sha256Hex("<h1>你好，世界 😀</h1>"),
+        "style.css", DigestUtil.sha256Hex("h1 { color: red; }")), saver.getDigests());
+  }
+
+  @Test
+  void testCloseFromAnotherThread() throws Exception {
+    Path appDir = Files.createDirectories(tempDir.resolve("multi_file_1"));
+    StreamingCodeFileSaver saver = new StreamingCodeFileSaver(appDir.toString(),
+        new MultiFileCodeFileSaverTemplate()::getFileName);
+    StreamingCodeParser parser = new StreamingCodeParser(saver);
+    parser.append("```html\n");
+    CountDownLatch writing = new CountDownLatch(1);
+    CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+      for (int i = 0; i < 20_000; i++) {
+        parser.append("<p>" + i + "</p>\n");
+        writing.countDown();
+      }
+      parser.append("```\n");
+    });
+    assertTrue(writing.await(5, TimeUnit.SECONDS));
+    // 模拟取消：推送线程仍在写入时由其他线程关闭
+    saver.close();
+    writer.get(10, TimeUnit.SECONDS);
+
+    // 关闭后到达的内容和闭合被忽略，不会误判为写入失败，也不会留下临时文件
+    assertFalse(saver.isFailed());
+    assertFalse(saver.hasWrittenFiles());
+    assertTrue(isEmpty(appDir));
+    try (Stream<Path> files = Files.list(tempDir)) {
+      assertEquals(1, files.count());
+    }
+  }
+
+  @Test
+  void testCloseKeepsPreviousFiles() throws IOException {
+    Path appDir = Files.createDirectories(tempDir.resolve("multi_file_1"));
+    Files.writeString(appDir.resolve("index.html"), "<p>旧版本</p>");
+    StreamingCodeFileSaver saver = new StreamingCodeFileSaver(appDir.toString(),
+        new MultiFileCodeFileSaverTemplate()::getFileName);
+    StreamingCodeParser parser = new StreamingCodeParser(saver);
+    parser.append("```html\n<p>新版本</p>\n```\n");
+    parser.finish();
+    // 收尾校验失败或取消：已闭合的代码块也不移入应用目录
+    saver.close();
+
+    assertEquals("<p>旧版本</p>", Files.readString(appDir.resolve("index.html"), StandardCharsets.UTF_8));
+    try (Stream<Path> files = Files.list(tempDir)) {
+      assertEquals(1, files.count());
+    }
+  }
+
+  @Test
+  void testWriteFileTreeWhileStreaming() throws IOException {
+    FileTreeLimits limits = new FileTreeLimits(2, 1024, 4096);
+    Path appDir = Files.createDirectories(tempDir.resolve("project_1"));
+    StreamingCodeFileSaver saver = new StreamingCodeFileSaver(appDir.toString(),
+        new ProjectCodeFileSaverTemplate(limits)::getFileName, limits);
+    StreamingCodeParser parser = new StreamingCodeParser(saver);
+    parser.append("```html path=index.html\n<p>首页</p>\n```\n```js\n// 没有路径\n```\n");
+    parser.append("```js path=src/app/main.js\nconsole.log(1);\n```\n");
+    Path stagingDir = stagingDir();
+    assertEquals("<p>首页</p>", Files.readString(stagingDir.resolve("index.html"), StandardCharsets.UTF_8));
+    assertEquals("console.log(1);", Files.readString(stagingDir.resolve("src/app/main.js")));
+    // 超出文件数限制后停止流式写入，丢弃暂存的文件，由收尾阶段整体保存
+    parser.append("```css path=style.css\np {}\n```");
+    parser.finish();
+
+    assertTrue(saver.isFailed());
+    assertFalse(Files.exists(stagingDir));
+    assertTrue(isEmpty(appDir));
+  }
+
+  private Path stagingDir() throws IOException {
+    try (Stream<Path> files = Files.list(tempDir)) {
+      return files.filter(path -> path.getFileName().toString().startsWith(".")).findFirst().orElseThrow();
+    }
+  }
+
+  private static boolean isEmpty(Path dir) throws IOException {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files.findAny().isEmpty();
+    }
+  }
+}
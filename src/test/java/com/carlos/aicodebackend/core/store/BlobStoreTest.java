@@ -0,0 +1,180 @@
+package com.carlos.aicodebackend.core.store;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 内容寻址存储测试类
+ */
+class BlobStoreTest {
+
+  @TempDir
+  Path tempDir;
+
+  private BlobStore blobStore;
+
+  @BeforeEach
+  void setUp() {
+    blobStore = new BlobStore(tempDir.resolve("blobs"));
+  }
+
+  @Test
+  void testIdenticalContentSharesOneBlob() throws IOException {
+    Path first = write(tempDir.resolve("html_1"), "index.html", "<h1>你好</h1>");
+    Path second = write(tempDir.resolve("html_2"), "index.html", "<h1>你好</h1>");
+    write(second, "css/style.css", "h1 { color: red; }");
+
+    Map<String, String> firstManifest = blobStore.commit(first);
+    Map<String, String> secondManifest = blobStore.commit(second);
+
+    String hash = DigestUtil.sha256Hex("<h1>你好</h1>");
+    assertEquals(Map.of("index.html", hash), firstManifest);
+    assertEquals(hash, secondManifest.get("index.html"));
+    assertEquals(DigestUtil.sha256Hex("h1 { color: red; }"), secondManifest.get("css/style.css"));
+    assertEquals(2, blobStore.getReferenceCount(hash));
+    assertTrue(Files.isSameFile(first.resolve("index.html"), second.resolve("index.html")));
+    // 对象按摘要前缀分片
+    assertTrue(Files.exists(tempDir.resolve("blobs/objects").resolve(hash.substring(0, 2))
+        .resolve(hash.substring(2, 4)).resolve(hash)));
+
+    JSONObject manifest = JSONUtil.parseObj(Files.readString(second.resolve(BlobStore.MANIFEST_FILE)));
+    assertEquals("SHA-256", manifest.getStr("algorithm"));
+    assertEquals(hash, manifest.getJSONObject("files").getStr("index.html"));
+    // 重复提交不会把清单当作生成文件
+    assertEquals(secondManifest, blobStore.commit(second));
+  }
+
+  @Test
+  void testCommitWithKnownHashes() throws IOException {
+    Path dir = write(tempDir.resolve("html_1"), "index.html", "<p>a</p>");
+    write(dir, "about.html", "<p>b</p>");
+    String known = DigestUtil.sha256Hex("<p>a</p>");
+
+    // 写入时已计算摘要的文件直接链接，其余文件读取计算
+    Map<String, String> manifest = blobStore.commit(dir, Map.of("index.html", known));
+
+    assertEquals(Map.of("index.html", known, "about.html", DigestUtil.sha256Hex("<p>b</p>")), manifest);
+    assertEquals(1, blobStore.getReferenceCount(known));
+    assertEquals("<p>a</p>", Files.readString(dir.resolve("index.html")));
+  }
+
+  @Test
+  void testReplacedFileReleasesOldBlob() throws IOException {
+    Path dir = write(tempDir.resolve("multi_file_1"), "index.html", "v1");
+    blobStore.commit(dir);
+    String oldHash = DigestUtil.sha256Hex("v1");
+    assertEquals(1, blobStore.getReferenceCount(oldHash));
+
+    // 保存器先删除再写入，不会改动共享的对象
+    Files.delete(dir.resolve("index.html"));
+    write(dir, "index.html", "v2");
+    Map<String, String> manifest = blobStore.commit(dir);
+
+    assertEquals(DigestUtil.sha256Hex("v2"), manifest.get("index.html"));
+    assertFalse(blobStore.contains(oldHash));
+    assertEquals(1, blobStore.getReferenceCount(manifest.get("index.html")));
+  }
+
+  @Test
+  void testLinkTreeReplacesDeployDir() throws IOException {
+    Path source = write(tempDir.resolve("code_output/html_1"), "index.html", "<h1>部署</h1>");
+    Path deploy = write(tempDir.resolve("code_deploy/abc123"), "stale.html", "旧内容");
+
+    blobStore.linkTree(source, deploy);
+
+    String hash = DigestUtil.sha256Hex("<h1>部署</h1>");
+    assertTrue(Files.isSameFile(source.resolve("index.html"), deploy.resolve("index.html")));
+    assertFalse(Files.exists(deploy.resolve("stale.html")));
+    // 清单不放进对外提供的部署目录
+    assertFalse(Files.exists(deploy.resolve(BlobStore.MANIFEST_FILE)));
+    JSONObject manifest = JSONUtil.parseObj(Files.readString(tempDir.resolve("blobs/deploys/abc123.json")));
+    assertEquals(hash, manifest.getJSONObject("files").getStr("index.html"));
+    assertEquals(2, blobStore.getReferenceCount(hash));
+    // 此前按目录部署时直接互换目录，旧目录已清理
+    assertFalse(Files.isSymbolicLink(deploy));
+    try (var files = Files.list(deploy.getParent())) {
+      assertEquals(1, files.count());
+    }
+
+    // 源目录删除后部署内容仍在
+    Files.delete(source.resolve("index.html"));
+    assertEquals("<h1>部署</h1>", Files.readString(deploy.resolve("index.html"), StandardCharsets.UTF_8));
+    assertEquals(1, blobStore.getReferenceCount(hash));
+  }
+
+  @Test
+  void testRedeploySwapsSymlink() throws IOException {
+    Path source = write(tempDir.resolve("code_output/html_1"), "index.html", "v1");
+    Path deploy = tempDir.resolve("code_deploy/abc123");
+
+    blobStore.linkTree(source, deploy);
+    assertTrue(Files.isSymbolicLink(deploy));
+    Path firstVersion = deploy.resolveSibling(Files.readSymbolicLink(deploy));
+    assertEquals("v1", Files.readString(deploy.resolve("index.html")));
+
+    Files.delete(source.resolve("index.html"));
+    write(source, "index.html", "v2");
+    blobStore.linkTree(source, deploy);
+
+    // 链接指向新版本，旧版本及其对象已删除
+    assertEquals("v2", Files.readString(deploy.resolve("index.html")));
+    assertFalse(Files.exists(firstVersion));
+    assertFalse(blobStore.contains(DigestUtil.sha256Hex("v1")));
+    try (var files = Files.list(deploy.getParent())) {
+      assertEquals(2, files.count());
+    }
+  }
+
+  @Test
+  void testDeleteTreeReleasesObjects() throws IOException {
+    Path source = write(tempDir.resolve("code_output/html_1"), "index.html", "<p>删除</p>");
+    Path deploy = tempDir.resolve("code_deploy/abc123");
+    blobStore.linkTree(source, deploy);
+    String hash = DigestUtil.sha256Hex("<p>删除</p>");
+
+    // 部署目录仍引用对象
+    blobStore.deleteTree(source);
+    assertFalse(Files.exists(source));
+    assertEquals(1, blobStore.getReferenceCount(hash));
+
+    // 删除部署链接及其版本目录后对象随之释放
+    blobStore.deleteTree(deploy);
+    assertFalse(blobStore.contains(hash));
+    assertFalse(Files.exists(tempDir.resolve("blobs/deploys/abc123.json")));
+    try (var files = Files.list(deploy.getParent())) {
+      assertEquals(0, files.count());
+    }
+  }
+
+  @Test
+  void testCollectGarbage() throws IOException {
+    Path dir = write(tempDir.resolve("html_1"), "index.html", "<p>a</p>");
+    write(dir, "about.html", "<p>b</p>");
+    blobStore.commit(dir);
+
+    // 目录被直接删除，没有经过提交
+    Files.delete(dir.resolve("about.html"));
+    assertEquals(1, blobStore.collectGarbage());
+    assertFalse(blobStore.contains(DigestUtil.sha256Hex("<p>b</p>")));
+    assertTrue(blobStore.contains(DigestUtil.sha256Hex("<p>a</p>")));
+  }
+
+  private static Path write(Path dir, String path, String content) throws IOException {
+    Path file = dir.resolve(path);
+    Files.createDirectories(file.getParent());
+    Files.writeString(file, content, StandardCharsets.UTF_8);
+    return dir;
+  }
+}
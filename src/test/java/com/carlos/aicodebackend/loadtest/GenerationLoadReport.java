@@ -0,0 +1,223 @@
+package com.carlos.aicodebackend.loadtest;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * 生成链路压测报告
+ * 汇总每个会话的首个事件耗时、done 事件耗时和错误，以及压测期间的 GC 停顿和每个打开的流占用的堆内存，
+ * 以 JSON 写入文件，便于在发版前比较单节点的流容量
+ */
+class GenerationLoadReport {
+
+  private final Map<String, Object> config;
+
+  private final List<SessionResult> results;
+
+  private final JvmMonitor jvmMonitor;
+
+  private final long elapsedNanos;
+
+  GenerationLoadReport(Map<String, Object> config, List<SessionResult> results, JvmMonitor jvmMonitor,
+      long elapsedNanos) {
+    this.config = config;
+    this.results = results;
+    this.jvmMonitor = jvmMonitor;
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  int errors() {
+    return (int) results.stream().filter(result -> result.error() != null).count();
+  }
+
+  double errorRate() {
+    return results.isEmpty() ? 0 : (double) errors() / results.size();
+  }
+
+  JSONObject toJson() {
+    List<SessionResult> completed = results.stream().filter(result -> result.error() == null).toList();
+    Map<String, Integer> errorsByType = new TreeMap<>();
+    results.stream()
+        .filter(result -> result.error() != null)
+        .forEach(result -> errorsByType.merge(result.error(), 1, Integer::sum));
+    JSONObject sessions = JSONUtil.createObj()
+        .set("total", results.size())
+        .set("completed", completed.size())
+        .set("errors", errors())
+        .set("errorRate", errorRate())
+        .set("errorsByType", errorsByType);
+    long bytes = results.stream().mapToLong(SessionResult::bytes).sum();
+    return JSONUtil.createObj()
+        .set("timestamp", Instant.now().toString())
+        .set("config", config)
+        .set("elapsedMillis", Duration.ofNanos(elapsedNanos).toMillis())
+        .set("sessions", sessions)
+        // 首个事件包括排队通知
+        .set("timeToFirstEventMillis", distribution(results.stream()
+            .filter(result -> result.firstEventNanos() > 0).toList(), SessionResult::firstEventNanos))
+        .set("timeToDoneMillis", distribution(completed, SessionResult::doneNanos))
+        .set("bytesReceived", bytes)
+        .set("heap", jvmMonitor.heapJson())
+        .set("gc", jvmMonitor.gcJson());
+  }
+
+  /**
+   * 写入报告文件
+   *
+   * @param file 报告文件
+   */
+  void write(File file) {
+    FileUtil.writeString(toJson().toStringPretty(), file, StandardCharsets.UTF_8);
+  }
+
+  private static JSONObject distribution(List<SessionResult> results, ToLongFunction<SessionResult> metric) {
+    List<Long> values = new ArrayList<>(results.size());
+    for (SessionResult result : results) {
+      values.add(metric.applyAsLong(result));
+    }
+    Collections.sort(values);
+    JSONObject json = JSONUtil.createObj().set("count", values.size());
+    if (values.isEmpty()) {
+      return json;
+    }
+    double mean = values.stream().mapToLong(Long::longValue).average().orElse(0);
+    return json.set("mean", mean / 1e6)
+        .set("p50", percentile(values, 0.5) / 1e6)
+        .set("p90", percentile(values, 0.9) / 1e6)
+        .set("p99", percentile(values, 0.99) / 1e6)
+        .set("max", values.get(values.size() - 1) / 1e6);
+  }
+
+  private static long percentile(List<Long> sorted, double percentile) {
+    int index = (int) Math.min(sorted.size() - 1, Math.ceil(percentile * sorted.size()) - 1);
+    return sorted.get(Math.max(0, index));
+  }
+
+  /**
+   * 单个会话的结果
+   *
+   * @param firstEventNanos 发起生成请求到收到首个 SSE 事件的耗时，未收到时为 0
+   * @param doneNanos       发起生成请求到收到 done 事件的耗时
+   * @param bytes           收到的 SSE 字节数
+   * @param error           错误类型（error 事件、HTTP 状态、业务错误码或异常类名），成功时为 null
+   */
+  record SessionResult(long firstEventNanos, long doneNanos, long bytes, String error) {
+  }
+
+  /**
+   * 压测期间的 JVM 监控：记录 GC 停顿（不含并发周期和测量时主动触发的 GC），
+   * 并在指定时刻测量 GC 后的堆占用，用于估算每个打开的流占用的堆内存（压测客户端在同一进程内，其状态很小）
+   */
+  static class JvmMonitor implements NotificationListener {
+
+    private static final String SYSTEM_GC_CAUSE = "System.gc()";
+
+    private final List<Long> pauseMillis = Collections.synchronizedList(new ArrayList<>());
+
+    private long baselineHeap = -1;
+
+    private long peakHeap = -1;
+
+    private int openStreams;
+
+    void start() {
+      for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+        if (gcBean instanceof NotificationEmitter emitter) {
+          emitter.addNotificationListener(this, null, null);
+        }
+      }
+    }
+
+    void stop() {
+      for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+        if (gcBean instanceof NotificationEmitter emitter) {
+          try {
+            emitter.removeNotificationListener(this);
+          } catch (Exception ignored) {
+            // 未注册
+          }
+        }
+      }
+    }
+
+    /**
+     * 所有会话准备完成、尚未打开流时测量基线
+     */
+    void measureBaseline() {
+      baselineHeap = heapAfterGc();
+    }
+
+    /**
+     * 打开的流最多时测量
+     *
+     * @param openStreams 当前打开的流数
+     */
+    void measurePeak(int openStreams) {
+      this.openStreams = openStreams;
+      this.peakHeap = heapAfterGc();
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+      if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+        return;
+      }
+      GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from(
+          (CompositeData) notification.getUserData());
+      if (SYSTEM_GC_CAUSE.equals(info.getGcCause()) || info.getGcName().contains("Concurrent")) {
+        return;
+      }
+      pauseMillis.add(info.getGcInfo().getDuration());
+    }
+
+    JSONObject heapJson() {
+      JSONObject json = JSONUtil.createObj()
+          .set("baselineBytes", baselineHeap)
+          .set("peakBytes", peakHeap)
+          .set("openStreamsAtPeak", openStreams);
+      if (baselineHeap >= 0 && peakHeap >= 0 && openStreams > 0) {
+        json.set("bytesPerOpenStream", (peakHeap - baselineHeap) / openStreams);
+      }
+      return json;
+    }
+
+    JSONObject gcJson() {
+      List<Long> pauses;
+      synchronized (pauseMillis) {
+        pauses = new ArrayList<>(pauseMillis);
+      }
+      Collections.sort(pauses);
+      JSONObject json = JSONUtil.createObj()
+          .set("pauses", pauses.size())
+          .set("totalPauseMillis", pauses.stream().mapToLong(Long::longValue).sum());
+      if (!pauses.isEmpty()) {
+        json.set("p99PauseMillis", percentile(pauses, 0.99)).set("maxPauseMillis", pauses.get(pauses.size() - 1));
+      }
+      return json;
+    }
+
+    private static long heapAfterGc() {
+      System.gc();
+      return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+  }
+}
@@ -0,0 +1,315 @@
+package com.carlos.aicodebackend.loadtest;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.net.NetUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.carlos.aicodebackend.config.CodeGenProperties;
+import com.carlos.aicodebackend.constant.AppConstant;
+import com.carlos.aicodebackend.model.enums.CodeGenTypeEnum;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import redis.embedded.RedisServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 生成链路压测
+ * 在进程内启动完整应用（模拟模型、H2 内存库、嵌入式 Redis），N 个会话各自注册登录、调用 /app/add 创建应用，
+ * 再同时（按爬坡时间错开）请求 /app/chat/gen/code，统计首个事件和 done 事件的耗时、错误率、GC 停顿和每个流的堆占用，
+ * 报告以 JSON 写入 target/loadtest。默认跳过，使用 -Dloadtest=true 运行，可调参数：
+ * <ul>
+ *   <li>-Dloadtest.sessions：会话数（默认 50）</li>
+ *   <li>-Dloadtest.ramp-up-millis：开始生成的爬坡时间（默认 2000）</li>
+ *   <li>-Dloadtest.max-error-rate：允许的错误率（默认 0）</li>
+ *   <li>-Dloadtest.report：报告文件路径</li>
+ *   <li>-Dcode-gen.simulated.*、-Dcode-gen.admission.* 等：模拟模型的延迟和故障、服务端的并发上限</li>
+ * </ul>
+ */
+@Slf4j
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "spring.datasource.url=jdbc:h2:mem:loadtest;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+        + "CASE_INSENSITIVE_IDENTIFIERS=TRUE;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1",
+    "spring.sql.init.mode=always",
+    "spring.sql.init.schema-locations=classpath:loadtest/schema.sql",
+    "spring.data.redis.host=localhost",
+    "spring.data.redis.password=" + GenerationLoadTest.REDIS_PASSWORD,
+    // 按线上配置合并 SSE 片段
+    "code-gen.coalesce.enabled=true"
+})
+@ActiveProfiles({"test", "simulated"})
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class GenerationLoadTest {
+
+  static final String REDIS_PASSWORD = "loadtest";
+
+  private static final int SESSIONS = Integer.getInteger("loadtest.sessions", 50);
+
+  private static final long RAMP_UP_MILLIS = Long.getLong("loadtest.ramp-up-millis", 2000);
+
+  private static final double MAX_ERROR_RATE = Double.parseDouble(System.getProperty("loadtest.max-error-rate", "0"));
+
+  private static final Duration STREAM_TIMEOUT = Duration.ofMinutes(5);
+
+  private static final String PASSWORD = "12345678";
+
+  private static RedisServer redisServer;
+
+  @LocalServerPort
+  private int port;
+
+  @Autowired
+  private CodeGenProperties codeGenProperties;
+
+  @Value("${spring.threads.virtual.enabled:false}")
+  private boolean virtualThreads;
+
+  private HttpClient client;
+
+  @DynamicPropertySource
+  static void redisProperties(DynamicPropertyRegistry registry) throws IOException {
+    int redisPort = NetUtil.getUsableLocalPort();
+    // RedisChatMemoryStore 以 root 用户登录，Spring Session 使用默认用户
+    redisServer = RedisServer.newRedisServer()
+        .port(redisPort)
+        .setting("requirepass " + REDIS_PASSWORD)
+        .setting("user root on >" + REDIS_PASSWORD + " ~* &* +@all")
+        .build();
+    redisServer.start();
+    registry.add("spring.data.redis.port", () -> redisPort);
+  }
+
+  @AfterAll
+  static void stopRedis() throws IOException {
+    if (redisServer != null) {
+      redisServer.stop();
+    }
+  }
+
+  @Test
+  void testGenerationCapacity() throws Exception {
+    List<Session> sessions = new ArrayList<>(SESSIONS);
+    GenerationLoadReport.JvmMonitor jvmMonitor = new GenerationLoadReport.JvmMonitor();
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      client = HttpClient.newBuilder()
+          .executor(executor)
+          .version(HttpClient.Version.HTTP_1_1)
+          .connectTimeout(Duration.ofSeconds(10))
+          .build();
+      // 准备阶段：注册、登录、创建应用，不计入结果
+      List<Future<Session>> prepared = new ArrayList<>(SESSIONS);
+      String runId = IdUtil.nanoId(6);
+      for (int i = 0; i < SESSIONS; i++) {
+        String account = "lt_" + runId + "_" + i;
+        prepared.add(executor.submit(() -> prepare(account)));
+      }
+      for (Future<Session> future : prepared) {
+        sessions.add(future.get());
+      }
+      log.info("{} 个会话准备完成，开始生成", SESSIONS);
+
+      jvmMonitor.start();
+      jvmMonitor.measureBaseline();
+      AtomicInteger openStreams = new AtomicInteger();
+      CountDownLatch firstEvents = new CountDownLatch(SESSIONS);
+      long start = System.nanoTime();
+      List<Future<GenerationLoadReport.SessionResult>> futures = new ArrayList<>(SESSIONS);
+      for (int i = 0; i < SESSIONS; i++) {
+        Session session = sessions.get(i);
+        long startDelayNanos = Duration.ofMillis(RAMP_UP_MILLIS).toNanos() * i / SESSIONS;
+        futures.add(executor.submit(() -> {
+          long delay = start + startDelayNanos - System.nanoTime();
+          if (delay > 0) {
+            Thread.sleep(Duration.ofNanos(delay));
+          }
+          return generate(session, openStreams, firstEvents);
+        }));
+      }
+      // 所有流都收到首个事件后（此时打开的流最多）测量堆占用
+      Future<?> peakMeasure = executor.submit(() -> {
+        firstEvents.await();
+        jvmMonitor.measurePeak(openStreams.get());
+        return null;
+      });
+      List<GenerationLoadReport.SessionResult> results = new ArrayList<>(SESSIONS);
+      for (Future<GenerationLoadReport.SessionResult> future : futures) {
+        results.add(future.get());
+      }
+      peakMeasure.get();
+      long elapsed = System.nanoTime() - start;
+      jvmMonitor.stop();
+
+      GenerationLoadReport report = new GenerationLoadReport(config(), results, jvmMonitor, elapsed);
+      File reportFile = new File(System.getProperty("loadtest.report",
+          "target/loadtest/generation-report-" + System.currentTimeMillis() + ".json"));
+      report.write(reportFile);
+      log.info("压测报告已写入 {}:\n{}", reportFile.getAbsolutePath(), report.toJson().toStringPretty());
+      assertEquals(SESSIONS, results.size());
+      assertTrue(report.errorRate() <= MAX_ERROR_RATE, "错误率 " + report.errorRate() + " 超过 " + MAX_ERROR_RATE);
+    } finally {
+      // 清理生成的代码目录
+      for (Session session : sessions) {
+        FileUtil.del(AppConstant.CODE_OUTPUT_ROOT_DIR + File.separator
+            + CodeGenTypeEnum.MULTI_FILE.getValue() + "_" + session.appId());
+      }
+    }
+  }
+
+  private Session prepare(String account) throws IOException, InterruptedException {
+    JSONObject register = JSONUtil.createObj()
+        .set("userAccount", account).set("userPassword", PASSWORD).set("checkPassword", PASSWORD);
+    checkSuccess(post("/user/register", register, null));
+    HttpResponse<String> login = post("/user/login",
+        JSONUtil.createObj().set("userAccount", account).set("userPassword", PASSWORD), null);
+    checkSuccess(login);
+    String cookie = login.headers().allValues("set-cookie").stream()
+        .filter(value -> value.startsWith("SESSION="))
+        .map(value -> value.substring(0, value.indexOf(';') < 0 ? value.length() : value.indexOf(';')))
+        .findFirst()
+        .orElseThrow(() -> new IllegalStateException("登录响应中没有 SESSION Cookie"));
+    HttpResponse<String> addApp = post("/app/add",
+        JSONUtil.createObj().set("initPrompt", "做一个个人博客首页，包含文章列表和关于我"), cookie);
+    Long appId = checkSuccess(addApp).getLong("data");
+    return new Session(cookie, appId);
+  }
+
+  /**
+   * 请求生成并读取 SSE 直到 done 事件或连接关闭
+   */
+  private GenerationLoadReport.SessionResult generate(Session session, AtomicInteger openStreams,
+      CountDownLatch firstEvents) {
+    String message = URLEncoder.encode("做一个个人博客首页，包含文章列表和关于我", StandardCharsets.UTF_8);
+    HttpRequest request = HttpRequest.newBuilder(uri("/app/chat/gen/code?appId=" + session.appId()
+            + "&message=" + message))
+        .header("Cookie", session.cookie())
+        .header("Accept", "text/event-stream")
+        .timeout(STREAM_TIMEOUT)
+        .GET()
+        .build();
+    long start = System.nanoTime();
+    long firstEvent = 0;
+    long done = 0;
+    long bytes = 0;
+    String error = null;
+    openStreams.incrementAndGet();
+    try {
+      HttpResponse<Stream<String>> response = client.send(request, HttpResponse.BodyHandlers.ofLines());
+      String contentType = response.headers().firstValue("content-type").orElse("");
+      try (Stream<String> lines = response.body()) {
+        if (response.statusCode() != 200) {
+          error = "http_" + response.statusCode();
+        } else if (!contentType.startsWith("text/event-stream")) {
+          // 请求校验、准入拒绝等业务错误以 JSON 返回
+          error = "code_" + JSONUtil.parseObj(String.join("\n", lines.toList())).getInt("code");
+        } else {
+          String event = null;
+          Iterator<String> iterator = lines.iterator();
+          while (iterator.hasNext() && done == 0) {
+            String line = iterator.next();
+            bytes += line.getBytes(StandardCharsets.UTF_8).length + 1;
+            if (line.startsWith("event:")) {
+              event = line.substring("event:".length()).trim();
+            } else if (line.startsWith("data:")) {
+              if (firstEvent == 0) {
+                firstEvent = System.nanoTime() - start;
+                firstEvents.countDown();
+              }
+              if ("error".equals(event) && error == null) {
+                error = "error_event";
+              } else if ("done".equals(event)) {
+                done = System.nanoTime() - start;
+              }
+            } else if (line.isEmpty()) {
+              event = null;
+            }
+          }
+          if (done == 0 && error == null) {
+            error = "no_done_event";
+          }
+        }
+      }
+    } catch (Exception e) {
+      error = e.getClass().getSimpleName();
+    } finally {
+      openStreams.decrementAndGet();
+      if (firstEvent == 0) {
+        firstEvents.countDown();
+      }
+    }
+    return new GenerationLoadReport.SessionResult(firstEvent, done, bytes, error);
+  }
+
+  private Map<String, Object> config() {
+    CodeGenProperties.Simulated simulated = codeGenProperties.getSimulated();
+    Map<String, Object> config = new LinkedHashMap<>();
+    config.put("sessions", SESSIONS);
+    config.put("rampUpMillis", RAMP_UP_MILLIS);
+    config.put("virtualThreads", virtualThreads);
+    config.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+    config.put("maxHeapBytes", Runtime.getRuntime().maxMemory());
+    config.put("admission", codeGenProperties.getAdmission());
+    config.put("coalesce", codeGenProperties.getCoalesce());
+    config.put("simulated", simulated);
+    return config;
+  }
+
+  private HttpResponse<String> post(String path, JSONObject body, String cookie)
+      throws IOException, InterruptedException {
+    HttpRequest.Builder builder = HttpRequest.newBuilder(uri(path))
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(body.toString()));
+    if (cookie != null) {
+      builder.header("Cookie", cookie);
+    }
+    return client.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+  }
+
+  private static JSONObject checkSuccess(HttpResponse<String> response) {
+    JSONObject body = JSONUtil.parseObj(response.body());
+    if (response.statusCode() != 200 || body.getInt("code") != 0) {
+      throw new IllegalStateException(response.uri().getPath() + " 请求失败: " + response.body());
+    }
+    return body;
+  }
+
+  private URI uri(String path) {
+    return URI.create("http://localhost:" + port + "/api" + path);
+  }
+
+  /**
+   * 已登录并创建了应用的会话
+   */
+  private record Session(String cookie, Long appId) {
+  }
+}
@@ -0,0 +1,20 @@
+package com.carlos.aicodebackend.loadtest;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 平台线程模式压测：并发上限为 Tomcat 线程数，超出的请求在连接队列中等待
+ */
+@TestPropertySource(properties = "spring.threads.virtual.enabled=false")
+class PlatformThreadLoadTest extends RequestPathLoadTestSupport {
+
+  @Test
+  void testConcurrencyCeiling() throws Exception {
+    LoadReport report = runLoad("platform");
+    assertEquals(0, report.failures());
+    assertTrue(report.maxConcurrency() <= TOMCAT_MAX_THREADS);
+  }
+}
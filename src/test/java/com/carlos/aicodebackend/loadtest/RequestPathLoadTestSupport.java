@@ -0,0 +1,195 @@
+package com.carlos.aicodebackend.loadtest;
+
+import com.carlos.aicodebackend.config.TestConfig;
+import com.carlos.aicodebackend.model.entity.User;
+import com.carlos.aicodebackend.model.vo.LoginUserVO;
+import com.carlos.aicodebackend.service.AppService;
+import com.carlos.aicodebackend.service.ChatHistoryService;
+import com.carlos.aicodebackend.service.UserService;
+import com.sun.management.OperatingSystemMXBean;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * 请求路径压测基类
+ * Mock 的 UserService#getLoginUser 经 HikariCP 连接池在 H2 上执行一条耗时固定的查询，模拟每个请求一次数据库往返，
+ * 阻塞发生在连接池和 JDBC 驱动内部（与生产环境相同的连接池，驱动为 H2 而非 MySQL Connector/J）。
+ * 并发请求 /user/get/login，统计服务端同时处理中的请求数（并发上限）、吞吐量、延迟和每个请求消耗的 CPU 时间。
+ * 压测耗时较长，默认跳过，使用 -Dloadtest=true 运行；排查虚拟线程钉住可再加 -DargLine=-Djdk.tracePinnedThreads=short
+ */
+@Slf4j
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "spring.main.allow-bean-definition-overriding=true",
+    "spring.autoconfigure.exclude=org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration",
+    "server.tomcat.threads.max=" + RequestPathLoadTestSupport.TOMCAT_MAX_THREADS
+})
+@ActiveProfiles("test")
+@Import(TestConfig.class)
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+abstract class RequestPathLoadTestSupport {
+
+  static final int TOMCAT_MAX_THREADS = 50;
+
+  static final int CLIENTS = 400;
+
+  static final int REQUESTS_PER_CLIENT = 5;
+
+  static final Duration DB_LATENCY = Duration.ofMillis(100);
+
+  /**
+   * 连接数与客户端数相同，并发上限只取决于请求线程模型，不受连接池限制
+   */
+  static final int POOL_SIZE = CLIENTS;
+
+  @LocalServerPort
+  private int port;
+
+  @MockitoBean
+  private AppService appService;
+
+  @MockitoBean
+  private UserService userService;
+
+  @MockitoBean
+  private ChatHistoryService chatHistoryService;
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  private final AtomicInteger maxInFlight = new AtomicInteger();
+
+  private HikariDataSource dataSource;
+
+  @BeforeEach
+  void setUpUserService() throws SQLException {
+    HikariConfig config = new HikariConfig();
+    config.setJdbcUrl("jdbc:h2:mem:loadtest_" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+    config.setMaximumPoolSize(POOL_SIZE);
+    config.setMinimumIdle(POOL_SIZE);
+    dataSource = new HikariDataSource(config);
+    try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+      statement.execute("CREATE ALIAS IF NOT EXISTS SLEEP FOR 'java.lang.Thread.sleep(long)'");
+    }
+    User user = new User();
+    user.setId(1L);
+    when(userService.getLoginUser(any(HttpServletRequest.class))).thenAnswer(invocation -> {
+      maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      try (Connection connection = dataSource.getConnection();
+          PreparedStatement statement = connection.prepareStatement("CALL SLEEP(?)")) {
+        statement.setLong(1, DB_LATENCY.toMillis());
+        statement.execute();
+      } finally {
+        inFlight.decrementAndGet();
+      }
+      return user;
+    });
+    when(userService.getLoginUserVO(any())).thenReturn(new LoginUserVO());
+  }
+
+  @AfterEach
+  void closeDataSource() {
+    dataSource.close();
+  }
+
+  /**
+   * 每个客户端一个虚拟线程，各自顺序发送请求
+   *
+   * @param mode 模式名，用于报告
+   * @return 压测结果
+   */
+  protected LoadReport runLoad(String mode) throws Exception {
+    URI uri = URI.create("http://localhost:" + port + "/api/user/get/login");
+    List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+    AtomicInteger failures = new AtomicInteger();
+    OperatingSystemMXBean os = (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+    long cpuStart = os.getProcessCpuTime();
+    long start = System.nanoTime();
+    try (HttpClient client = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+        ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+      List<Future<?>> futures = new ArrayList<>(CLIENTS);
+      for (int i = 0; i < CLIENTS; i++) {
+        futures.add(clients.submit(() -> {
+          for (int j = 0; j < REQUESTS_PER_CLIENT; j++) {
+            long requestStart = System.nanoTime();
+            try {
+              HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).GET().build(),
+                  HttpResponse.BodyHandlers.ofString());
+              if (response.statusCode() != 200) {
+                failures.incrementAndGet();
+              }
+            } catch (Exception e) {
+              failures.incrementAndGet();
+            }
+            latencies.add(System.nanoTime() - requestStart);
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    }
+    LoadReport report = new LoadReport(mode, maxInFlight.get(), failures.get(), latencies,
+        System.nanoTime() - start, os.getProcessCpuTime() - cpuStart);
+    log.info("压测结果 {}", report);
+    return report;
+  }
+
+  /**
+   * 压测结果
+   * 客户端和服务端在同一进程中，cpuMillisPerRequest 为两端处理一个请求合计消耗的 CPU 时间，
+   * cpuBoundThroughput（处理器数 / 每请求 CPU 时间）是本机 CPU 能支撑的吞吐上限，
+   * 实测吞吐接近它时瓶颈在 CPU 而不是线程模型
+   */
+  record LoadReport(String mode, int maxConcurrency, int failures, double throughput, long p50Millis,
+      long p99Millis, int processors, double cpuMillisPerRequest, double cpuBoundThroughput) {
+
+    LoadReport(String mode, int maxConcurrency, int failures, List<Long> latencies, long elapsedNanos,
+        long cpuNanos) {
+      this(mode, maxConcurrency, failures, latencies.size() * 1e9 / elapsedNanos,
+          percentile(latencies, 0.5), percentile(latencies, 0.99), Runtime.getRuntime().availableProcessors(),
+          cpuNanos / 1e6 / latencies.size(),
+          Runtime.getRuntime().availableProcessors() * 1e9 * latencies.size() / cpuNanos);
+    }
+
+    private static long percentile(List<Long> latencies, double percentile) {
+      List<Long> sorted = new ArrayList<>(latencies);
+      Collections.sort(sorted);
+      if (sorted.isEmpty()) {
+        return 0;
+      }
+      int index = (int) Math.min(sorted.size() - 1, Math.ceil(percentile * sorted.size()) - 1);
+      return Duration.ofNanos(sorted.get(Math.max(0, index))).toMillis();
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package com.carlos.aicodebackend.loadtest;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 虚拟线程模式压测：并发不再受 Tomcat 线程数限制，阻塞等待不占用平台线程
+ */
+@TestPropertySource(properties = "spring.threads.virtual.enabled=true")
+class VirtualThreadLoadTest extends RequestPathLoadTestSupport {
+
+  @Test
+  void testConcurrencyCeiling() throws Exception {
+    LoadReport report = runLoad("virtual");
+    assertEquals(0, report.failures());
+    assertTrue(report.maxConcurrency() > TOMCAT_MAX_THREADS);
+  }
+}
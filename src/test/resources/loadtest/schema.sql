@@ -0,0 +1,48 @@
+-- 生成链路压测使用的 H2 表结构（MySQL 兼容模式，字段与 my.sql 一致）
+create table if not exists user
+(
+    id           bigint primary key,
+    userAccount  varchar(256)                          not null,
+    userPassword varchar(512)                          not null,
+    userName     varchar(256),
+    userAvatar   varchar(1024),
+    userProfile  varchar(512),
+    userRole     varchar(256) default 'user'           not null,
+    editTime     datetime     default CURRENT_TIMESTAMP not null,
+    createTime   datetime     default CURRENT_TIMESTAMP not null,
+    updateTime   datetime     default CURRENT_TIMESTAMP not null,
+    isDelete     tinyint      default 0                 not null,
+    constraint uk_userAccount unique (userAccount)
+);
+
+create table if not exists app
+(
+    id           bigint primary key,
+    appName      varchar(256),
+    cover        varchar(512),
+    initPrompt   text,
+    codeGenType  varchar(64),
+    deployKey    varchar(64),
+    deployedTime datetime,
+    priority     int      default 0                 not null,
+    userId       bigint                             not null,
+    editTime     datetime default CURRENT_TIMESTAMP not null,
+    createTime   datetime default CURRENT_TIMESTAMP not null,
+    updateTime   datetime default CURRENT_TIMESTAMP not null,
+    isDelete     tinyint  default 0                 not null,
+    constraint uk_deployKey unique (deployKey)
+);
+
+create table if not exists chat_history
+(
+    id          bigint primary key,
+    message     text                               not null,
+    messageType varchar(32)                        not null,
+    appId       bigint                             not null,
+    userId      bigint                             not null,
+    createTime  datetime default CURRENT_TIMESTAMP not null,
+    updateTime  datetime default CURRENT_TIMESTAMP not null,
+    isDelete    tinyint  default 0                 not null
+);
+
+create index if not exists idx_appId_createTime on chat_history (appId, createTime);